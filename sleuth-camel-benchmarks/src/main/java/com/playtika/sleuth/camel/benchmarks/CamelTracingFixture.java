@@ -0,0 +1,76 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Playtika
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.playtika.sleuth.camel.benchmarks;
+
+import brave.sampler.Sampler;
+import com.playtika.sleuth.camel.CamelContextInstrumenter;
+import com.playtika.sleuth.camel.RouteStartedEventNotifier;
+import com.playtika.sleuth.camel.TracingFixture;
+import org.apache.camel.builder.RouteBuilder;
+import org.apache.camel.impl.DefaultCamelContext;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Benchmark specifics on top of {@link TracingFixture} tests of sleuth-camel-core wire tracing with.
+ */
+final class CamelTracingFixture {
+
+    private CamelTracingFixture() {
+    }
+
+    static CamelContextInstrumenter instrumenter(TracingFixture fixture, boolean precompute) {
+        return precompute ? fixture.instrumenter(new RouteStartedEventNotifier()) : fixture.instrumenter();
+    }
+
+    static Sampler sampler(String tracing) {
+        return "sampled".equals(tracing) ? Sampler.ALWAYS_SAMPLE : Sampler.NEVER_SAMPLE;
+    }
+
+    /**
+     * Benchmarks are compiled for Java 8, virtual threads need Java 21 at runtime.
+     */
+    static ExecutorService virtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Virtual threads require Java 21 or later", e);
+        }
+    }
+
+    static DefaultCamelContext camelContext(int routes) throws Exception {
+        DefaultCamelContext camelContext = new DefaultCamelContext();
+        camelContext.addRoutes(new RouteBuilder() {
+            @Override
+            public void configure() {
+                for (int i = 0; i < routes; i++) {
+                    from("direct:route" + i).routeId("route" + i).setHeader("route", constant(i));
+                }
+            }
+        });
+        return camelContext;
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Playtika
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.playtika.sleuth.camel.benchmarks;
+
+import brave.handler.SpanHandler;
+import brave.sampler.Sampler;
+import com.playtika.sleuth.camel.EventRecordReader;
+import com.playtika.sleuth.camel.EventRecordReader.EventRecord;
+import com.playtika.sleuth.camel.EventRecorder;
+import com.playtika.sleuth.camel.EventReplayer;
+import com.playtika.sleuth.camel.TracingFixture;
+import org.apache.camel.ProducerTemplate;
+import org.apache.camel.builder.RouteBuilder;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Notifiers fed with a recorded run of {@value #EXCHANGES} exchanges, a sync route and a seda hop each,
+ * so the benchmark sees the production-shaped event sequence without camel routing costs around it.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EventReplayBenchmark {
+
+    static final int EXCHANGES = 10_000;
+
+    @Param({"unsampled", "sampled"})
+    public String tracing;
+
+    private List<EventRecord> records;
+    private TracingFixture fixture;
+    private EventReplayer replayer;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        records = EventRecordReader.read(record());
+        fixture = TracingFixture.create(CamelTracingFixture.sampler(tracing), SpanHandler.NOOP);
+        replayer = new EventReplayer(new DefaultCamelContext(), fixture.notifiers());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        replayer.close();
+        fixture.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EXCHANGES)
+    public void replayRecordedRun() throws InterruptedException {
+        replayer.replay(records);
+    }
+
+    private static byte[] record() throws Exception {
+        TracingFixture recordedFixture = TracingFixture.create(Sampler.NEVER_SAMPLE, SpanHandler.NOOP);
+        EventRecorder recorder = new EventRecorder(Long.MAX_VALUE);
+        DefaultCamelContext camelContext = new DefaultCamelContext();
+        camelContext.addRoutes(new RouteBuilder() {
+            @Override
+            public void configure() {
+                from("direct:start").routeId("start").setHeader("hop", constant(1)).to("seda:queue?waitForTaskToComplete=Always");
+                from("seda:queue?waitForTaskToComplete=Always").routeId("queue").setHeader("hop", constant(2));
+            }
+        });
+        // ahead of tracing notifiers, so created events are recorded with headers messages came with
+        camelContext.getManagementStrategy().addEventNotifier(recorder);
+        CamelTracingFixture.instrumenter(recordedFixture, true).instrument(camelContext);
+        camelContext.start();
+        ProducerTemplate producer = camelContext.createProducerTemplate();
+        for (int i = 0; i < EXCHANGES; i++) {
+            producer.sendBody("direct:start", i);
+        }
+        camelContext.stop();
+        recordedFixture.close();
+        return recorder.toByteArray();
+    }
+}
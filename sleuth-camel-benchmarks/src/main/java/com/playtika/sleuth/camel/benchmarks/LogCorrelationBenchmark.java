@@ -0,0 +1,119 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Playtika
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.playtika.sleuth.camel.benchmarks;
+
+import brave.context.slf4j.MDCScopeDecorator;
+import brave.handler.SpanHandler;
+import brave.propagation.CurrentTraceContext.ScopeDecorator;
+import brave.propagation.ThreadLocalCurrentTraceContext;
+import brave.sampler.Sampler;
+import com.playtika.sleuth.camel.CamelThreadScopeDecorator;
+import com.playtika.sleuth.camel.TracingFixture;
+import org.apache.camel.ProducerTemplate;
+import org.apache.camel.builder.RouteBuilder;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Traced exchange through a route that never logs, sent from a thread named like camel pool threads.
+ * {@code mdc} updates the MDC on every scope change, {@code lazy} skips it there as
+ * {@code spring.sleuth.camel.log-correlation.lazy} does, {@code none} has no decorator at all.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class LogCorrelationBenchmark {
+
+    @Param({"none", "mdc", "lazy"})
+    public String decorator;
+
+    private TracingFixture fixture;
+    private DefaultCamelContext camelContext;
+    private ProducerTemplate producer;
+    private String threadName;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        threadName = Thread.currentThread().getName();
+        Thread.currentThread().setName("Camel (benchmark) thread #1 - direct://silent");
+
+        ThreadLocalCurrentTraceContext.Builder currentTraceContext = ThreadLocalCurrentTraceContext.newBuilder();
+        ScopeDecorator scopeDecorator = scopeDecorator(decorator);
+        if (scopeDecorator != null) {
+            currentTraceContext.addScopeDecorator(scopeDecorator);
+        }
+        fixture = TracingFixture.create(Sampler.ALWAYS_SAMPLE, SpanHandler.NOOP, currentTraceContext.build());
+        camelContext = new DefaultCamelContext();
+        camelContext.addRoutes(new RouteBuilder() {
+            @Override
+            public void configure() {
+                from("direct:silent").routeId("silent").setHeader("silent", constant(true));
+            }
+        });
+        CamelTracingFixture.instrumenter(fixture, true).instrument(camelContext);
+        camelContext.start();
+        producer = camelContext.createProducerTemplate();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        camelContext.stop();
+        fixture.close();
+        Thread.currentThread().setName(threadName);
+    }
+
+    @Benchmark
+    public Object tracedExchange() {
+        return producer.requestBody("direct:silent", "body");
+    }
+
+    private static ScopeDecorator scopeDecorator(String decorator) {
+        switch (decorator) {
+            case "mdc":
+                return MDCScopeDecorator.get();
+            case "lazy":
+                return new CamelThreadScopeDecorator(MDCScopeDecorator.get());
+            default:
+                return null;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Playtika
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.playtika.sleuth.camel.benchmarks;
+
+import brave.handler.SpanHandler;
+import brave.sampler.Sampler;
+import com.playtika.sleuth.camel.TracingFixture;
+import org.apache.camel.ProducerTemplate;
+import org.apache.camel.builder.RouteBuilder;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import zipkin2.Span;
+import zipkin2.codec.Encoding;
+import zipkin2.codec.SpanBytesEncoder;
+import zipkin2.reporter.AsyncReporter;
+import zipkin2.reporter.InMemoryReporterMetrics;
+import zipkin2.reporter.brave.ZipkinSpanHandler;
+import zipkin2.reporter.urlconnection.URLConnectionSender;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sampled exchanges through routes shaped like the functional test app ones, a sync route and a {@code threads()} one,
+ * with every finished span encoded and reported over http to a {@link LocalCollector} on the same machine.
+ * <p>
+ * {@code noop} drops spans in the handler and is the baseline, the other configurations report through
+ * an {@link AsyncReporter}: {@code json} and {@code proto3} with default settings, {@code json-uncompressed}
+ * without gzip and {@code json-small-messages} with 16 KiB messages instead of 500 KiB ones.
+ * Throughput and latency percentiles come from the benchmark modes, allocation from {@code -prof gc}.
+ * Spans dropped by the reporter and bytes the collector received are printed after every trial,
+ * a configuration dropping spans is not keeping up and its numbers are not comparable.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ReportingPipelineBenchmark {
+
+    @Param({"noop", "json", "proto3", "json-uncompressed", "json-small-messages"})
+    public String handler;
+
+    private final InMemoryReporterMetrics reporterMetrics = new InMemoryReporterMetrics();
+
+    private LocalCollector collector;
+    private AsyncReporter<Span> reporter;
+    private TracingFixture fixture;
+    private DefaultCamelContext camelContext;
+    private ProducerTemplate producer;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        collector = new LocalCollector();
+        reporter = reporter(handler, collector.endpoint(), reporterMetrics);
+        SpanHandler spanHandler = reporter != null ? ZipkinSpanHandler.create(reporter) : SpanHandler.NOOP;
+        fixture = TracingFixture.create(Sampler.ALWAYS_SAMPLE, spanHandler);
+        camelContext = new DefaultCamelContext();
+        camelContext.addRoutes(new RouteBuilder() {
+            @Override
+            public void configure() {
+                from("direct:directRoute").routeId("directRoute")
+                        .setHeader("processed", constant(true))
+                        .to("log:directRoute?level=OFF");
+                from("direct:asyncDirectRoute").routeId("asyncDirectRoute")
+                        .setHeader("processed", constant(true))
+                        .threads()
+                        .to("log:asyncDirectRoute?level=OFF");
+            }
+        });
+        CamelTracingFixture.instrumenter(fixture, true).instrument(camelContext);
+        camelContext.start();
+        producer = camelContext.createProducerTemplate();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        camelContext.stop();
+        fixture.close();
+        if (reporter != null) {
+            reporter.flush();
+            reporter.close();
+            System.out.printf("%n%s: %d spans dropped, collector received %d messages, %d bytes%n",
+                    handler, reporterMetrics.spansDropped(), collector.getMessages(), collector.getBytes());
+        }
+        collector.close();
+        reporterMetrics.clear();
+    }
+
+    @Benchmark
+    public Object directRoute() {
+        return producer.requestBody("direct:directRoute", "body");
+    }
+
+    @Benchmark
+    public Object asyncDirectRoute() {
+        return producer.requestBody("direct:asyncDirectRoute", "body");
+    }
+
+    private static AsyncReporter<Span> reporter(String handler, String endpoint, InMemoryReporterMetrics metrics) {
+        if ("noop".equals(handler)) {
+            return null;
+        }
+        URLConnectionSender.Builder sender = URLConnectionSender.newBuilder().endpoint(endpoint);
+        SpanBytesEncoder encoder = SpanBytesEncoder.JSON_V2;
+        switch (handler) {
+            case "json":
+                break;
+            case "proto3":
+                sender.encoding(Encoding.PROTO3);
+                encoder = SpanBytesEncoder.PROTO3;
+                break;
+            case "json-uncompressed":
+                sender.compressionEnabled(false);
+                break;
+            case "json-small-messages":
+                sender.messageMaxBytes(16 * 1024);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown span handler configuration: " + handler);
+        }
+        return AsyncReporter.builder(sender.build()).metrics(metrics).build(encoder);
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Playtika
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.playtika.sleuth.camel.benchmarks;
+
+import brave.handler.SpanHandler;
+import brave.sampler.Sampler;
+import com.playtika.sleuth.camel.TracingFixture;
+import org.apache.camel.ProducerTemplate;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cold path cost of a freshly started camel context: context start, and the first exchange of every route,
+ * with and without route tracing metadata computed on route start.
+ * <p>
+ * Run with {@code java -jar sleuth-camel-benchmarks/target/benchmarks.jar StartupBenchmark}.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 10)
+@Measurement(iterations = 30)
+@Fork(3)
+public class StartupBenchmark {
+
+    @State(Scope.Thread)
+    public static class StoppedContext {
+
+        @Param({"true", "false"})
+        public boolean precompute;
+
+        @Param({"200"})
+        public int routes;
+
+        TracingFixture fixture;
+        DefaultCamelContext camelContext;
+
+        @Setup(Level.Invocation)
+        public void setUp() throws Exception {
+            fixture = TracingFixture.create(Sampler.ALWAYS_SAMPLE, SpanHandler.NOOP);
+            camelContext = CamelTracingFixture.camelContext(routes);
+            CamelTracingFixture.instrumenter(fixture, precompute).instrument(camelContext);
+        }
+
+        @TearDown(Level.Invocation)
+        public void tearDown() {
+            camelContext.stop();
+            fixture.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class StartedContext extends StoppedContext {
+
+        ProducerTemplate producer;
+
+        @Setup(Level.Invocation)
+        public void start() {
+            camelContext.start();
+            producer = camelContext.createProducerTemplate();
+        }
+    }
+
+    @Benchmark
+    public void startAndServeFirstExchanges(StoppedContext context) {
+        context.camelContext.start();
+        sendToEveryRoute(context.camelContext.createProducerTemplate(), context.routes);
+    }
+
+    @Benchmark
+    public void serveFirstExchanges(StartedContext context) {
+        sendToEveryRoute(context.producer, context.routes);
+    }
+
+    private static void sendToEveryRoute(ProducerTemplate producer, int routes) {
+        for (int i = 0; i < routes; i++) {
+            producer.sendBody("direct:route" + i, i);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Playtika
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.playtika.sleuth.camel.benchmarks;
+
+import brave.Span;
+import brave.Tracer;
+import brave.handler.SpanHandler;
+import brave.sampler.Sampler;
+import com.playtika.sleuth.camel.SleuthCamelConstants;
+import com.playtika.sleuth.camel.TraceStateCodec;
+import com.playtika.sleuth.camel.TracingAggregationRepository;
+import com.playtika.sleuth.camel.TracingFixture;
+import org.apache.camel.CamelContext;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.apache.camel.processor.aggregate.MemoryAggregationRepository;
+import org.apache.camel.spi.AggregationRepository;
+import org.apache.camel.support.DefaultExchange;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parks {@value #EXCHANGES} exchanges in an in-memory aggregation repository and resumes them, plain and wrapped
+ * with {@link TracingAggregationRepository}, so the difference is the per-exchange cost of saving and restoring trace state.
+ * Exchange creation is paid by both. Stored trace state size per exchange is printed after every trial.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class TraceStatePersistenceBenchmark {
+
+    static final int EXCHANGES = 1_000_000;
+
+    @Param({"plain", "traced"})
+    public String repository;
+
+    private TracingFixture fixture;
+    private Span parkingSpan;
+    private CamelContext camelContext;
+    private MemoryAggregationRepository parked;
+    private AggregationRepository aggregationRepository;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        fixture = TracingFixture.create(Sampler.ALWAYS_SAMPLE, SpanHandler.NOOP);
+        parkingSpan = fixture.getTracer().nextSpan().start();
+        camelContext = new DefaultCamelContext();
+    }
+
+    @Setup(Level.Iteration)
+    public void setUpIteration() {
+        parked = new MemoryAggregationRepository();
+        aggregationRepository = "traced".equals(repository)
+                ? TracingAggregationRepository.wrap(parked, fixture.getTracing(), fixture.getInFlightSpans())
+                : parked;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if ("traced".equals(repository)) {
+            String header = TraceStateCodec.toHeaderValue(parkingSpan.context());
+            long storedBytes = (long) (SleuthCamelConstants.EXCHANGE_TRACE_STATE.length() + header.length()) * EXCHANGES;
+            System.out.printf("%ntrace state per exchange: %d bytes encoded, %d ascii chars as header value, %d MB of headers stored for %d exchanges%n",
+                    TraceStateCodec.ENCODED_LENGTH, header.length(), storedBytes / (1024 * 1024), EXCHANGES);
+        }
+        parkingSpan.finish();
+        fixture.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EXCHANGES)
+    public AggregationRepository park() {
+        try (Tracer.SpanInScope ignored = fixture.getTracer().withSpanInScope(parkingSpan)) {
+            for (int i = 0; i < EXCHANGES; i++) {
+                aggregationRepository.add(camelContext, Integer.toString(i), new DefaultExchange(camelContext));
+            }
+        }
+        return aggregationRepository;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EXCHANGES)
+    public AggregationRepository parkAndResume() {
+        park();
+        for (int i = 0; i < EXCHANGES; i++) {
+            aggregationRepository.get(camelContext, Integer.toString(i));
+        }
+        return aggregationRepository;
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Playtika
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.playtika.sleuth.camel.benchmarks;
+
+import brave.handler.SpanHandler;
+import com.playtika.sleuth.camel.TracingFixture;
+import org.apache.camel.ProducerTemplate;
+import org.apache.camel.builder.RouteBuilder;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Exchanges sent from a virtual thread each, all of them parked in the route at once before being released,
+ * so spans of every exchange are in flight simultaneously. Needs Java 21, run with
+ * {@code java -jar sleuth-camel-benchmarks/target/benchmarks.jar VirtualThreadsBenchmark -prof gc}.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class VirtualThreadsBenchmark {
+
+    @Param({"100000"})
+    public int exchanges;
+
+    @Param({"off", "unsampled", "sampled"})
+    public String tracing;
+
+    private TracingFixture fixture;
+    private DefaultCamelContext camelContext;
+    private ProducerTemplate producer;
+    private volatile CountDownLatch parked;
+    private volatile CountDownLatch release;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        fixture = TracingFixture.create(CamelTracingFixture.sampler(tracing), SpanHandler.NOOP);
+        camelContext = new DefaultCamelContext();
+        camelContext.addRoutes(new RouteBuilder() {
+            @Override
+            public void configure() {
+                from("direct:park").routeId("park").process(exchange -> {
+                    parked.countDown();
+                    release.await();
+                });
+            }
+        });
+        if (!"off".equals(tracing)) {
+            CamelTracingFixture.instrumenter(fixture, true).instrument(camelContext);
+        }
+        camelContext.start();
+        producer = camelContext.createProducerTemplate();
+    }
+
+    @Setup(Level.Invocation)
+    public void resetLatches() {
+        parked = new CountDownLatch(exchanges);
+        release = new CountDownLatch(1);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        camelContext.stop();
+        fixture.close();
+    }
+
+    @Benchmark
+    public void parkAndReleaseInFlightExchanges() throws Exception {
+        ExecutorService executor = CamelTracingFixture.virtualThreadPerTaskExecutor();
+        try {
+            for (int i = 0; i < exchanges; i++) {
+                int body = i;
+                executor.execute(() -> producer.sendBody("direct:park", body));
+            }
+            parked.await();
+            release.countDown();
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        }
+    }
+}
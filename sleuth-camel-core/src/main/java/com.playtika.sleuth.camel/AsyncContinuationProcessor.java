@@ -0,0 +1,80 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Playtika
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.playtika.sleuth.camel;
+
+import brave.propagation.CurrentTraceContext;
+import brave.propagation.TraceContext;
+import org.apache.camel.AsyncCallback;
+import org.apache.camel.AsyncProcessor;
+import org.apache.camel.Exchange;
+import org.apache.camel.Processor;
+import org.apache.camel.support.processor.DelegateAsyncProcessor;
+
+/**
+ * Puts camel span of the exchange in scope around a processor and around the continuation of its callback,
+ * which runs on whatever thread the processor completed the exchange on once it went async.
+ * <p>
+ * Exchanges without a bound span are passed through as they are. Plain processors always complete on the calling
+ * thread, within the scope, so only callbacks of async processors are wrapped, the only allocation per exchange.
+ */
+class AsyncContinuationProcessor extends DelegateAsyncProcessor {
+
+    private final CurrentTraceContext currentTraceContext;
+    private final boolean async;
+
+    AsyncContinuationProcessor(Processor processor, CurrentTraceContext currentTraceContext) {
+        super(processor);
+        this.currentTraceContext = currentTraceContext;
+        this.async = processor instanceof AsyncProcessor;
+    }
+
+    @Override
+    public boolean process(Exchange exchange, AsyncCallback callback) {
+        TraceContext context = ExchangeBoundSpans.context(exchange);
+        if (context == null) {
+            return processor.process(exchange, callback);
+        }
+        try (CurrentTraceContext.Scope scope = CamelThreadScopeDecorator.maybeScopeCamelSpan(currentTraceContext, context)) {
+            if (!async) {
+                return processor.process(exchange, callback);
+            }
+            return processor.process(exchange, doneSync -> {
+                if (doneSync) {
+                    // still on the calling thread, within the scope above
+                    callback.done(true);
+                    return;
+                }
+                try (CurrentTraceContext.Scope continuation = CamelThreadScopeDecorator.maybeScopeCamelSpan(currentTraceContext, context)) {
+                    callback.done(false);
+                }
+            });
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "AsyncContinuation[" + processor + "]";
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Playtika
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.playtika.sleuth.camel;
+
+import org.apache.camel.Endpoint;
+import org.apache.camel.support.EndpointHelper;
+import org.springframework.lang.Nullable;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Baggage fields propagated through camel message headers, by endpoint pattern of the route exchange comes from.
+ * Patterns are matched as in {@link EndpointHelper#matchEndpoint}, so wildcards and regular expressions are supported.
+ * Endpoints matching no pattern propagate no baggage, trace context headers are never filtered.
+ */
+public class BaggageAllowlist {
+
+    private final Map<String, Set<String>> fieldsByPattern = new LinkedHashMap<>();
+    private final Map<String, Set<String>> fieldsByEndpoint = new ConcurrentHashMap<>();
+
+    public BaggageAllowlist(Map<String, ? extends Collection<String>> fieldsByPattern) {
+        fieldsByPattern.forEach((pattern, fields) -> {
+            Set<String> names = new HashSet<>();
+            fields.forEach(field -> names.add(field.toLowerCase(Locale.ROOT)));
+            this.fieldsByPattern.put(pattern, names);
+        });
+    }
+
+    /**
+     * Lower-cased names of baggage fields allowed for the endpoint, resolved once per endpoint,
+     * exchanges coming from the same endpoint reuse the result.
+     */
+    public Set<String> allowedFields(@Nullable Endpoint endpoint) {
+        if (endpoint == null) {
+            return Collections.emptySet();
+        }
+        Set<String> fields = fieldsByEndpoint.get(endpoint.getEndpointKey());
+        if (fields == null) {
+            fields = resolve(endpoint);
+            fieldsByEndpoint.put(endpoint.getEndpointKey(), fields);
+        }
+        return fields;
+    }
+
+    private Set<String> resolve(Endpoint endpoint) {
+        Set<String> fields = new HashSet<>();
+        fieldsByPattern.forEach((pattern, names) -> {
+            if (EndpointHelper.matchEndpoint(endpoint.getCamelContext(), endpoint.getEndpointUri(), pattern)) {
+                fields.addAll(names);
+            }
+        });
+        return fields;
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Playtika
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.playtika.sleuth.camel;
+
+import org.apache.camel.AsyncCallback;
+import org.apache.camel.Exchange;
+import org.apache.camel.Processor;
+import org.apache.camel.support.processor.DelegateAsyncProcessor;
+
+import static com.playtika.sleuth.camel.SleuthCamelConstants.EXCHANGE_BRANCHING;
+import static com.playtika.sleuth.camel.SleuthCamelConstants.EXCHANGE_IS_TRACED_BY_BRAVE;
+
+/**
+ * Marks a traced exchange as branching while it is sent to multicast or recipient list branches, till their results
+ * are aggregated, so that {@link ExchangeBranch} tells its branch copies from exchanges which merely carry
+ * branch properties left over by an earlier fan-out. The mark is the id of the exchange, copies inherit it
+ * with a value other than their own id.
+ */
+class BranchingProcessor extends DelegateAsyncProcessor {
+
+    BranchingProcessor(Processor processor) {
+        super(processor);
+    }
+
+    @Override
+    public boolean process(Exchange exchange, AsyncCallback callback) {
+        if (exchange.getProperty(EXCHANGE_IS_TRACED_BY_BRAVE) == null) {
+            return processor.process(exchange, callback);
+        }
+        exchange.setProperty(EXCHANGE_BRANCHING, exchange.getExchangeId());
+        return processor.process(exchange, doneSync -> {
+            exchange.removeProperty(EXCHANGE_BRANCHING);
+            callback.done(doneSync);
+        });
+    }
+
+    @Override
+    public String toString() {
+        return "Branching[" + processor + "]";
+    }
+}
@@ -0,0 +1,259 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Playtika
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.playtika.sleuth.camel;
+
+import brave.propagation.CurrentTraceContext;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.camel.CamelContext;
+import org.apache.camel.ExtendedCamelContext;
+import org.apache.camel.spi.CamelEvent;
+import org.apache.camel.spi.EventNotifier;
+import org.apache.camel.support.EventNotifierSupport;
+import org.springframework.lang.Nullable;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Registers tracing event notifiers on a camel context. Camel context beans are instrumented automatically,
+ * contexts created outside of spring application context should be passed here before being started.
+ * <p>
+ * Given a {@link CurrentTraceContext}, route processors put exchange-bound spans in scope: those of exchanges created
+ * on virtual threads, on Java 21+, and, with async continuations, those of every exchange.
+ * Given a threshold, spans of exchanges taking longer are tagged with time spent in each route processor.
+ * Given in-flight spans, route processors record the thread running each exchange, for {@link StuckExchangeWatchdog} to sample.
+ * <p>
+ * Notifiers may be supplied lazily, they are resolved on every {@link #instrument(CamelContext)} call.
+ */
+@Slf4j
+public class CamelContextInstrumenter {
+
+    private final CamelTracingToggles toggles;
+    private final Supplier<List<EventNotifier>> eventNotifiers;
+    @Nullable
+    private final CurrentTraceContext currentTraceContext;
+    private final boolean asyncContinuations;
+    @Nullable
+    private final Duration processorTimingsThreshold;
+    @Nullable
+    private final InFlightSpans inFlightOwners;
+
+    public CamelContextInstrumenter(CamelTracingToggles toggles, List<EventNotifier> eventNotifiers) {
+        this(newBuilder(toggles).eventNotifiers(eventNotifiers));
+    }
+
+    private CamelContextInstrumenter(Builder builder) {
+        this.toggles = builder.toggles;
+        this.eventNotifiers = builder.eventNotifiers;
+        this.currentTraceContext = builder.currentTraceContext;
+        this.asyncContinuations = builder.asyncContinuations;
+        this.processorTimingsThreshold = builder.processorTimingsThreshold;
+        this.inFlightOwners = builder.inFlightOwners;
+    }
+
+    public void instrument(CamelContext camelContext) {
+        if (CamelContextTracing.of(camelContext) != null) {
+            log.debug("Camel context [{}] is already instrumented.", camelContext.getName());
+            return;
+        }
+        RouteTracingToggles routeToggles = toggles.register(camelContext.getName());
+        boolean scopesAsyncContinuations = currentTraceContext != null && asyncContinuations;
+        boolean scopesVirtualThreads = currentTraceContext != null && VirtualThreads.isSupported();
+        camelContext.setExtension(CamelContextTracing.class,
+                new CamelContextTracing(routeToggles, scopesAsyncContinuations, scopesVirtualThreads));
+        if (VirtualThreads.isMissingAtRuntime()) {
+            log.info("Exchanges of camel context [{}] on virtual threads are traced like on platform threads, "
+                    + "this sleuth-camel jar is built without Java 21 classes.", camelContext.getName());
+        }
+        if (scopesAsyncContinuations || scopesVirtualThreads) {
+            camelContext.adapt(ExtendedCamelContext.class).addInterceptStrategy(new AsyncContinuationInterceptStrategy(currentTraceContext));
+        }
+        camelContext.adapt(ExtendedCamelContext.class).addInterceptStrategy(new BranchingInterceptStrategy());
+        if (processorTimingsThreshold != null) {
+            camelContext.adapt(ExtendedCamelContext.class).addInterceptStrategy(new ProcessorTimingInterceptStrategy(processorTimingsThreshold.toNanos()));
+        }
+        if (inFlightOwners != null) {
+            camelContext.adapt(ExtendedCamelContext.class).addInterceptStrategy(new InFlightOwnerInterceptStrategy(inFlightOwners));
+        }
+        List<EventNotifier> notifiers = eventNotifiers.get();
+        List<EventNotifier> registered = camelContext.getManagementStrategy().getEventNotifiers();
+        for (EventNotifier eventNotifier : notifiers) {
+            // camel spring boot registers event notifier beans in its own context by itself
+            if (!registered.contains(eventNotifier)) {
+                camelContext.getManagementStrategy().addEventNotifier(new ContextEventNotifier(eventNotifier));
+            }
+            if (eventNotifier instanceof TracingEventNotifier) {
+                ((TracingEventNotifier) eventNotifier).instrument(camelContext);
+            }
+        }
+        log.info("Camel context [{}] is instrumented for tracing.", camelContext.getName());
+    }
+
+    public static Builder newBuilder(CamelTracingToggles toggles) {
+        return new Builder(toggles);
+    }
+
+    /**
+     * Toggles are required, notifiers default to none. Route processors are instrumented only for what is set:
+     * current trace context, optionally with async continuations, processor timings threshold and in-flight owners.
+     */
+    public static final class Builder {
+
+        private final CamelTracingToggles toggles;
+        private Supplier<List<EventNotifier>> eventNotifiers = Collections::emptyList;
+        @Nullable
+        private CurrentTraceContext currentTraceContext;
+        private boolean asyncContinuations;
+        @Nullable
+        private Duration processorTimingsThreshold;
+        @Nullable
+        private InFlightSpans inFlightOwners;
+
+        private Builder(CamelTracingToggles toggles) {
+            this.toggles = toggles;
+        }
+
+        public Builder eventNotifiers(List<EventNotifier> eventNotifiers) {
+            this.eventNotifiers = () -> eventNotifiers;
+            return this;
+        }
+
+        /**
+         * Notifiers resolved on every {@link #instrument(CamelContext)} call.
+         */
+        public Builder lazyEventNotifiers(Supplier<List<EventNotifier>> eventNotifiers) {
+            this.eventNotifiers = eventNotifiers;
+            return this;
+        }
+
+        public Builder currentTraceContext(@Nullable CurrentTraceContext currentTraceContext) {
+            this.currentTraceContext = currentTraceContext;
+            return this;
+        }
+
+        public Builder asyncContinuations(boolean asyncContinuations) {
+            this.asyncContinuations = asyncContinuations;
+            return this;
+        }
+
+        public Builder processorTimingsThreshold(@Nullable Duration processorTimingsThreshold) {
+            this.processorTimingsThreshold = processorTimingsThreshold;
+            return this;
+        }
+
+        public Builder inFlightOwners(@Nullable InFlightSpans inFlightOwners) {
+            this.inFlightOwners = inFlightOwners;
+            return this;
+        }
+
+        public CamelContextInstrumenter build() {
+            return new CamelContextInstrumenter(this);
+        }
+    }
+
+    /**
+     * Camel starts and stops event notifiers along with the context they are registered in,
+     * so every context gets own wrappers around the shared notifiers.
+     * Ignored event types are delegated too, so camel does not create events nobody listens to.
+     */
+    @AllArgsConstructor
+    private static class ContextEventNotifier extends EventNotifierSupport {
+
+        private final EventNotifier delegate;
+
+        @Override
+        public void notify(CamelEvent event) throws Exception {
+            delegate.notify(event);
+        }
+
+        @Override
+        public boolean isEnabled(CamelEvent event) {
+            return delegate.isEnabled(event);
+        }
+
+        @Override
+        public boolean isIgnoreCamelContextEvents() {
+            return delegate.isIgnoreCamelContextEvents();
+        }
+
+        @Override
+        public boolean isIgnoreRouteEvents() {
+            return delegate.isIgnoreRouteEvents();
+        }
+
+        @Override
+        public boolean isIgnoreServiceEvents() {
+            return delegate.isIgnoreServiceEvents();
+        }
+
+        @Override
+        public boolean isIgnoreExchangeEvents() {
+            return delegate.isIgnoreExchangeEvents();
+        }
+
+        @Override
+        public boolean isIgnoreExchangeCreatedEvent() {
+            return delegate.isIgnoreExchangeCreatedEvent();
+        }
+
+        @Override
+        public boolean isIgnoreExchangeCompletedEvent() {
+            return delegate.isIgnoreExchangeCompletedEvent();
+        }
+
+        @Override
+        public boolean isIgnoreExchangeFailedEvents() {
+            return delegate.isIgnoreExchangeFailedEvents();
+        }
+
+        @Override
+        public boolean isIgnoreExchangeRedeliveryEvents() {
+            return delegate.isIgnoreExchangeRedeliveryEvents();
+        }
+
+        @Override
+        public boolean isIgnoreExchangeSentEvents() {
+            return delegate.isIgnoreExchangeSentEvents();
+        }
+
+        @Override
+        public boolean isIgnoreExchangeSendingEvents() {
+            return delegate.isIgnoreExchangeSendingEvents();
+        }
+
+        @Override
+        public boolean isIgnoreStepEvents() {
+            return delegate.isIgnoreStepEvents();
+        }
+
+        @Override
+        public String toString() {
+            return delegate.toString();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Playtika
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.playtika.sleuth.camel;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.apache.camel.CamelContext;
+import org.apache.camel.Endpoint;
+import org.apache.camel.Route;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tracing state of a single camel context, kept as camel context extension.
+ */
+@RequiredArgsConstructor
+public class CamelContextTracing {
+
+    /**
+     * Bounds the cache for exchanges created by producer templates against dynamic endpoints.
+     */
+    static final int MAX_CACHED_ENDPOINTS = 1024;
+
+    @Getter
+    private final RouteTracingToggles routeToggles;
+    /**
+     * Whether processors of this context carry exchange spans across async continuations.
+     */
+    @Getter
+    private final boolean asyncContinuations;
+    /**
+     * Whether processors of this context put spans of exchanges created on virtual threads in scope.
+     */
+    @Getter
+    private final boolean virtualThreads;
+    private final Map<String, TracedEndpoint> endpoints = new ConcurrentHashMap<>();
+
+    public CamelContextTracing(RouteTracingToggles routeToggles) {
+        this(routeToggles, false);
+    }
+
+    public CamelContextTracing(RouteTracingToggles routeToggles, boolean asyncContinuations) {
+        this(routeToggles, asyncContinuations, false);
+    }
+
+    public static CamelContextTracing of(CamelContext camelContext) {
+        return camelContext == null ? null : camelContext.getExtension(CamelContextTracing.class);
+    }
+
+    public TracedEndpoint endpoint(Endpoint endpoint) {
+        String endpointKey = endpoint.getEndpointKey();
+        TracedEndpoint tracedEndpoint = endpoints.get(endpointKey);
+        if (tracedEndpoint == null) {
+            tracedEndpoint = new TracedEndpoint(endpoint);
+            if (endpoints.size() < MAX_CACHED_ENDPOINTS) {
+                endpoints.putIfAbsent(endpointKey, tracedEndpoint);
+            }
+        }
+        return tracedEndpoint;
+    }
+
+    /**
+     * Computes route tracing metadata ahead of its first exchange, including the index of its tracing toggle,
+     * so that exchanges of the route resolve both with the lookup of their endpoint.
+     */
+    public void prepare(Route route) {
+        Endpoint endpoint = route.getEndpoint();
+        String routeId = route.getRouteId();
+        // routes are few, their endpoints are cached whatever the bound
+        endpoints.put(endpoint.getEndpointKey(), new TracedEndpoint(endpoint, routeId, routeToggles.routeIndex(routeId)));
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Playtika
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.playtika.sleuth.camel;
+
+import lombok.AllArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Exposes most frequent and slowest camel routes and endpoints, counted by {@link HotPathsEventNotifier},
+ * as {@code camelhotpaths} actuator endpoint. Deleting it starts counting anew.
+ */
+@AllArgsConstructor
+@Endpoint(id = "camelhotpaths")
+public class CamelHotPathsEndpoint {
+
+    private final HotPathsEventNotifier hotPaths;
+
+    @ReadOperation
+    public Map<String, Object> hotPaths() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("since", Instant.ofEpochMilli(hotPaths.getSince()).toString());
+        result.put("routes", report(hotPaths.getRoutes()));
+        result.put("endpoints", report(hotPaths.getEndpoints()));
+        return result;
+    }
+
+    @DeleteOperation
+    public void reset() {
+        hotPaths.reset();
+    }
+
+    private static Map<String, Object> report(HotPaths paths) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("frequent", paths.frequent());
+        result.put("slowest", paths.slowest());
+        return result;
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Playtika
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.playtika.sleuth.camel;
+
+import brave.propagation.CurrentTraceContext;
+import brave.propagation.CurrentTraceContext.Scope;
+import brave.propagation.CurrentTraceContext.ScopeDecorator;
+import brave.propagation.TraceContext;
+
+/**
+ * Skips the decorator, normally the MDC one, for camel spans put in scope on threads of camel thread pools,
+ * which change the current span several times per exchange and often never log. Log events of those threads get
+ * trace ids from {@link TraceContextPatternConverter}, which captures the current trace context only once an event
+ * is actually logged. Spans of user code running on camel threads are decorated as usual.
+ * <p>
+ * Camel threads are recognized by name prefix, by default that of the default camel thread name pattern,
+ * {@code Camel (#camelId#) thread ##counter# - #name#}.
+ */
+public class CamelThreadScopeDecorator implements ScopeDecorator {
+
+    public static final String DEFAULT_THREAD_NAME_PREFIX = "Camel (";
+
+    private static final ThreadLocal<Boolean> CAMEL_SPAN_SCOPE = new ThreadLocal<>();
+    private static volatile boolean installed;
+
+    private final ScopeDecorator delegate;
+    private final String threadNamePrefix;
+
+    public CamelThreadScopeDecorator(ScopeDecorator delegate) {
+        this(delegate, DEFAULT_THREAD_NAME_PREFIX);
+    }
+
+    public CamelThreadScopeDecorator(ScopeDecorator delegate, String threadNamePrefix) {
+        this.delegate = delegate;
+        this.threadNamePrefix = threadNamePrefix;
+        installed = true;
+    }
+
+    @Override
+    public Scope decorateScope(TraceContext context, Scope scope) {
+        if (CAMEL_SPAN_SCOPE.get() != null && isCamelThread(Thread.currentThread())) {
+            return scope;
+        }
+        return delegate.decorateScope(context, scope);
+    }
+
+    boolean isCamelThread(Thread thread) {
+        return thread.getName().startsWith(threadNamePrefix);
+    }
+
+    static boolean isInstalled() {
+        return installed;
+    }
+
+    /**
+     * Marks scopes opened on this thread till {@link #endCamelSpanScope(boolean)} as scopes of a camel span.
+     * Costs nothing until a decorator is created.
+     */
+    static boolean beginCamelSpanScope() {
+        if (!installed) {
+            return false;
+        }
+        CAMEL_SPAN_SCOPE.set(Boolean.TRUE);
+        return true;
+    }
+
+    static void endCamelSpanScope(boolean begun) {
+        if (begun) {
+            CAMEL_SPAN_SCOPE.remove();
+        }
+    }
+
+    static Scope maybeScopeCamelSpan(CurrentTraceContext currentTraceContext, TraceContext context) {
+        boolean begun = beginCamelSpanScope();
+        try {
+            return currentTraceContext.maybeScope(context);
+        } finally {
+            endCamelSpanScope(begun);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "CamelThreadScopeDecorator{" + delegate + "}";
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Playtika
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.playtika.sleuth.camel;
+
+import lombok.AllArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Exposes {@link CamelTracingToggles} as {@code cameltracing} actuator endpoint.
+ */
+@AllArgsConstructor
+@Endpoint(id = "cameltracing")
+public class CamelTracingEndpoint {
+
+    private final CamelTracingToggles toggles;
+
+    @ReadOperation
+    public Map<String, Object> toggles() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", toggles.isEnabled());
+        result.put("disabledRoutes", toggles.getDisabledRoutes());
+        return result;
+    }
+
+    @ReadOperation
+    public Map<String, Object> route(@Selector String routeId) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("routeId", routeId);
+        List<String> disabledInContexts = new ArrayList<>();
+        toggles.getDisabledRoutes().forEach((contextName, routes) -> {
+            if (routes.contains(routeId)) {
+                disabledInContexts.add(contextName);
+            }
+        });
+        result.put("enabled", toggles.isEnabled() && disabledInContexts.isEmpty());
+        result.put("disabledInContexts", disabledInContexts);
+        return result;
+    }
+
+    /**
+     * Toggles tracing of the given route, or globally if no route id is given.
+     * Route is toggled in every camel context unless context name is given.
+     */
+    @WriteOperation
+    public void toggle(@Nullable String context, @Nullable String routeId, boolean enabled) {
+        if (routeId == null) {
+            toggles.setEnabled(enabled);
+        } else {
+            toggles.setRouteEnabled(context, routeId, enabled);
+        }
+    }
+}
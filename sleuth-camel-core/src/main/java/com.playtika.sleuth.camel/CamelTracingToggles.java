@@ -0,0 +1,125 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Playtika
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.playtika.sleuth.camel;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.camel.Exchange;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.lang.Nullable;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Runtime switches for camel tracing, globally and per route id of every instrumented camel context.
+ * Route switches live in {@link RouteTracingToggles} of each context, so contexts never share route flags.
+ */
+@Slf4j
+@ManagedResource(objectName = "com.playtika.sleuth.camel:type=CamelTracingToggles",
+        description = "Runtime toggles for camel routes tracing")
+public class CamelTracingToggles {
+
+    private final Map<String, RouteTracingToggles> contexts = new ConcurrentHashMap<>();
+    private volatile boolean enabled = true;
+
+    public boolean isTracingEnabled(Exchange exchange) {
+        return isTracingEnabled(CamelContextTracing.of(exchange.getContext()), exchange.getFromRouteId());
+    }
+
+    public boolean isTracingEnabled(CamelContextTracing contextTracing, String routeId) {
+        if (!enabled) {
+            return false;
+        }
+        return contextTracing == null || contextTracing.getRouteToggles().isTracingEnabled(routeId);
+    }
+
+    /**
+     * Reads the toggle of the route by the index resolved for its endpoint, if the exchange comes from that route.
+     */
+    public boolean isTracingEnabled(CamelContextTracing contextTracing, @Nullable TracedEndpoint fromEndpoint, String routeId) {
+        if (!enabled) {
+            return false;
+        }
+        if (contextTracing == null) {
+            return true;
+        }
+        RouteTracingToggles routeToggles = contextTracing.getRouteToggles();
+        return fromEndpoint != null && fromEndpoint.isConsumedBy(routeId)
+                ? routeToggles.isTracingEnabled(fromEndpoint.getRouteIndex())
+                : routeToggles.isTracingEnabled(routeId);
+    }
+
+    public RouteTracingToggles register(String contextName) {
+        return contexts.computeIfAbsent(contextName, RouteTracingToggles::new);
+    }
+
+    @ManagedAttribute(description = "Whether camel routes tracing is enabled")
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @ManagedAttribute(description = "Enables or disables camel routes tracing")
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        log.info("Camel tracing is {}.", enabled ? "enabled" : "disabled");
+    }
+
+    @ManagedAttribute(description = "Route ids with disabled tracing by camel context name")
+    public Map<String, Set<String>> getDisabledRoutes() {
+        Map<String, Set<String>> disabledRoutes = new TreeMap<>();
+        contexts.forEach((contextName, routeToggles) -> {
+            Set<String> routes = routeToggles.getDisabledRoutes();
+            if (!routes.isEmpty()) {
+                disabledRoutes.put(contextName, routes);
+            }
+        });
+        return disabledRoutes;
+    }
+
+    @ManagedOperation(description = "Enables tracing of the given route in all camel contexts")
+    public void enableRoute(String routeId) {
+        setRouteEnabled(null, routeId, true);
+    }
+
+    @ManagedOperation(description = "Disables tracing of the given route in all camel contexts")
+    public void disableRoute(String routeId) {
+        setRouteEnabled(null, routeId, false);
+    }
+
+    /**
+     * Toggles tracing of the given route in the given camel context, or in all of them if no context name is given.
+     */
+    public void setRouteEnabled(@Nullable String contextName, String routeId, boolean enabled) {
+        if (contextName != null) {
+            register(contextName).setRouteEnabled(routeId, enabled);
+        } else {
+            contexts.values().forEach(routeToggles -> routeToggles.setRouteEnabled(routeId, enabled));
+        }
+    }
+}
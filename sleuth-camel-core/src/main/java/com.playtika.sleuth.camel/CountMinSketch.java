@@ -0,0 +1,110 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Playtika
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.playtika.sleuth.camel;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Approximate counts of an unbounded set of keys in fixed memory. Estimates never undercount,
+ * they may overcount by colliding keys, which wider rows make less likely.
+ * <p>
+ * Every row hashes the chars of the key with murmur3 under its own seed, so keys colliding in one row,
+ * like ones with equal {@link String#hashCode()}, are unlikely to collide in the others.
+ */
+final class CountMinSketch {
+
+    private static final int[] SEEDS = {0x9E3779B1, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F};
+
+    private final int mask;
+    private final AtomicLongArray counters;
+
+    /**
+     * @param width counters per row, rounded up to a power of two
+     */
+    CountMinSketch(int width) {
+        int rowWidth = Integer.highestOneBit(Math.max(2, width - 1)) << 1;
+        this.mask = rowWidth - 1;
+        this.counters = new AtomicLongArray(SEEDS.length * rowWidth);
+    }
+
+    /**
+     * Counts the key once more and returns its estimated count.
+     */
+    long add(String key) {
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < SEEDS.length; row++) {
+            estimate = Math.min(estimate, counters.incrementAndGet(index(key, row)));
+        }
+        return estimate;
+    }
+
+    long estimate(String key) {
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < SEEDS.length; row++) {
+            estimate = Math.min(estimate, counters.get(index(key, row)));
+        }
+        return estimate;
+    }
+
+    void clear() {
+        for (int i = 0; i < counters.length(); i++) {
+            counters.set(i, 0);
+        }
+    }
+
+    private int index(String key, int row) {
+        return row * (mask + 1) + (murmur3(key, SEEDS[row]) & mask);
+    }
+
+    /**
+     * Murmur3 x86 32-bit hash of the UTF-16 chars of the key, two chars per block, computed without copying them.
+     */
+    static int murmur3(String key, int seed) {
+        int h1 = seed;
+        int length = key.length();
+        for (int i = 1; i < length; i += 2) {
+            int k1 = key.charAt(i - 1) | key.charAt(i) << 16;
+            h1 ^= mixK1(k1);
+            h1 = Integer.rotateLeft(h1, 13);
+            h1 = h1 * 5 + 0xE6546B64;
+        }
+        if ((length & 1) == 1) {
+            h1 ^= mixK1(key.charAt(length - 1));
+        }
+        h1 ^= 2 * length;
+        h1 ^= h1 >>> 16;
+        h1 *= 0x85EBCA6B;
+        h1 ^= h1 >>> 13;
+        h1 *= 0xC2B2AE35;
+        h1 ^= h1 >>> 16;
+        return h1;
+    }
+
+    private static int mixK1(int k1) {
+        k1 *= 0xCC9E2D51;
+        k1 = Integer.rotateLeft(k1, 15);
+        return k1 * 0x1B873593;
+    }
+}
@@ -27,59 +27,132 @@ package com.playtika.sleuth.camel;
 import brave.Span;
 import brave.Tracer;
 import brave.Tracing;
+import brave.baggage.BaggagePropagation;
+import brave.propagation.Propagation;
 import brave.propagation.ThreadLocalSpan;
 import brave.propagation.TraceContext;
 import brave.propagation.TraceContextOrSamplingFlags;
+import com.playtika.sleuth.camel.InFlightSpans.InFlightSpan;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.camel.Endpoint;
 import org.apache.camel.Exchange;
 import org.apache.camel.Message;
 import org.apache.camel.spi.CamelEvent;
 import org.apache.camel.support.EventNotifierSupport;
-import org.springframework.cloud.sleuth.internal.SpanNameUtil;
+import org.springframework.lang.Nullable;
 
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static com.playtika.sleuth.camel.SleuthCamelConstants.EXCHANGE_ENQUEUED_NANOS;
 import static com.playtika.sleuth.camel.SleuthCamelConstants.EXCHANGE_IS_TRACED_BY_BRAVE;
 
+/**
+ * Starts camel span of every created exchange.
+ * <p>
+ * Runs once per exchange, so it keeps within the allocation budget checked by {@code AllocationBudgetTest}:
+ * carriers, injector and extractor are created once, logging is guarded and the current span is not materialized
+ * when the message carries its own trace context.
+ */
 @Slf4j
-public class CreatedEventNotifier extends EventNotifierSupport {
+public class CreatedEventNotifier extends EventNotifierSupport implements TracingEventNotifier {
 
     static final String EXCHANGE_EVENT_CREATED_ANNOTATION = "camel-exchange-event-created";
     static final String EXCHANGE_ID_TAG_ANNOTATION = "camel-exchange-id";
-    private static final String MESSAGE_COMPONENT = "camel";
+    static final String QUEUE_WAIT_TAG = "camel-queue-wait-micros";
 
     private final ThreadLocalSpan threadLocalSpan;
 
     private final TraceContext.Injector<Message> injector;
     private final TraceContext.Extractor<Message> extractor;
     private final Tracer tracer;
+    private final CamelTracingToggles toggles;
+    private final InFlightSpans inFlightSpans;
+    private final ExchangeBoundSpans exchangeBoundSpans;
+    private final QueueWaitListener queueWaitListener;
+    private final PayloadSizes payloadSizes;
+    private final BaggageAllowlist baggageAllowlist;
+    private final String[] baggageKeys;
 
     public CreatedEventNotifier(Tracing tracing, ThreadLocalSpan threadLocalSpan, Tracer tracer) {
-        this.threadLocalSpan = threadLocalSpan;
-        this.tracer = tracer;
+        this(newBuilder(tracing, threadLocalSpan, tracer));
+    }
+
+    private CreatedEventNotifier(Builder builder) {
+        Tracing tracing = builder.tracing;
+        this.payloadSizes = builder.payloadSizes;
+        this.queueWaitListener = builder.queueWaitListener;
+        this.threadLocalSpan = builder.threadLocalSpan;
+        this.tracer = builder.tracer;
+        this.toggles = builder.toggles;
+        this.inFlightSpans = builder.inFlightSpans;
+        this.exchangeBoundSpans = new ExchangeBoundSpans(tracer);
+        this.baggageAllowlist = builder.baggageAllowlist;
+        this.baggageKeys = baggageAllowlist != null ? baggageKeys(tracing.propagation()) : new String[0];
         this.injector = tracing.propagation().injector(Message::setHeader);
         this.extractor = tracing.propagation().extractor((carrier, key) -> carrier.getHeader(key, String.class));
+        setIgnoreCamelContextEvents(true);
+        setIgnoreRouteEvents(true);
+        setIgnoreServiceEvents(true);
+        setIgnoreStepEvents(true);
+        setIgnoreExchangeSendingEvents(true);
+        setIgnoreExchangeSentEvents(true);
+        setIgnoreExchangeCompletedEvent(true);
+        setIgnoreExchangeFailedEvents(true);
+        setIgnoreExchangeRedeliveryEvents(true);
     }
 
     @Override
     public void notify(CamelEvent event) {
-        log.trace("Caught an event [{} - {}] - processing...", event.getClass().getSimpleName(), event);
+        if (log.isTraceEnabled()) {
+            log.trace("Caught an event [{} - {}] - processing...", event.getClass().getSimpleName(), event);
+        }
         CamelEvent.ExchangeCreatedEvent exchangeCreatedEvent = (CamelEvent.ExchangeCreatedEvent) event;
         Exchange exchange = exchangeCreatedEvent.getExchange();
+        CamelContextTracing contextTracing = CamelContextTracing.of(exchange.getContext());
         Endpoint endpoint = exchange.getFromEndpoint();
+        // the endpoint carries the toggle index of the route consuming from it, resolved once the route started
+        TracedEndpoint tracedEndpoint = contextTracing != null && endpoint != null ? contextTracing.endpoint(endpoint) : null;
+        if (!toggles.isTracingEnabled(contextTracing, tracedEndpoint, exchange.getFromRouteId())) {
+            if (log.isTraceEnabled()) {
+                log.trace("Skipping exchange [{}] since tracing of route [{}] is disabled.", exchange.getExchangeId(), exchange.getFromRouteId());
+            }
+            return;
+        }
         Message message = exchange.getIn();
-        TraceContextOrSamplingFlags extractedContext = extractor.extract(message);
+        Set<String> allowedBaggage = baggageAllowlist != null ? baggageAllowlist.allowedFields(endpoint) : null;
+        if (allowedBaggage != null) {
+            // inbound baggage is filtered before extraction, so neither the span nor routes down the line see it
+            removeBaggage(message, allowedBaggage);
+        }
+        ExchangeBranch branch = ExchangeBranch.of(exchange, inFlightSpans);
+        InFlightSpan branchParent = branch != null ? branch.getParent() : null;
+        // branches of a parallel multicast are children of the span their exchange was copied from
+        TraceContextOrSamplingFlags extractedContext = branchParent != null
+                ? TraceContextOrSamplingFlags.create(branchParent.getSpan().context())
+                : extractor.extract(message);
         boolean isExternalContext = TraceContextOrSamplingFlags.EMPTY != extractedContext;
-        Span possiblyExistingSpan = tracer.currentSpan();
+        Span possiblyExistingSpan = isExternalContext ? null : tracer.currentSpan();
 
-        Span span = threadLocalSpan.next(extractedContext);
-        String spanName = getSpanName(endpoint);
+        Span span = nextSpan(contextTracing, exchange, extractedContext);
+        String spanName = branchParent != null ? branch.spanName(exchange, contextTracing) : getSpanName(tracedEndpoint, endpoint);
         span.name(spanName);
         span.start();
 
         span.annotate(EXCHANGE_EVENT_CREATED_ANNOTATION);
         span.tag(EXCHANGE_ID_TAG_ANNOTATION, exchange.getExchangeId());
+        if (branchParent != null) {
+            span.tag(ExchangeBranch.BRANCH_INDEX_TAG, Integer.toString(branch.getIndex()));
+        }
+        recordQueueWait(exchange, endpoint, span);
+        if (payloadSizes != null) {
+            payloadSizes.recordIn(exchange, span);
+        }
 
         exchange.setProperty(EXCHANGE_IS_TRACED_BY_BRAVE, Boolean.TRUE);
+        inFlightSpans.add(exchange, span);
 
         // If an external tracing context could be extracted from the message, there is no
         // need to set a different one.
@@ -91,12 +164,65 @@ public class CreatedEventNotifier extends EventNotifierSupport {
                 // The span was created in this notifier, so use it.
                 injector.inject(span.context(), message);
             }
+            if (allowedBaggage != null) {
+                removeBaggage(message, allowedBaggage);
+            }
         }
         log.debug("Created/continued span [{}]", span);
     }
 
-    private String getSpanName(Endpoint endpoint) {
-        return SpanNameUtil.shorten(MESSAGE_COMPONENT + "::" + endpoint.getEndpointKey());
+    /**
+     * Exchanges consumed from seda, vm and disruptor queues carry the time they were enqueued at.
+     */
+    private void recordQueueWait(Exchange exchange, Endpoint endpoint, Span span) {
+        Object enqueuedNanos = exchange.removeProperty(EXCHANGE_ENQUEUED_NANOS);
+        if (!(enqueuedNanos instanceof Long)) {
+            return;
+        }
+        long waitNanos = Math.max(0, System.nanoTime() - (Long) enqueuedNanos);
+        if (!span.isNoop()) {
+            span.tag(QUEUE_WAIT_TAG, Long.toString(TimeUnit.NANOSECONDS.toMicros(waitNanos)));
+        }
+        if (queueWaitListener != null) {
+            queueWaitListener.onQueueWait(endpoint, waitNanos);
+        }
+    }
+
+    /**
+     * Removes baggage headers not allowed for the endpoint exchange comes from, trace context headers are always kept.
+     * Baggage is filtered once per exchange, producers down the route reuse the message headers.
+     */
+    private void removeBaggage(Message message, Set<String> allowedBaggage) {
+        for (String key : baggageKeys) {
+            if (!allowedBaggage.contains(key)) {
+                message.removeHeader(key);
+            }
+        }
+    }
+
+    private static String[] baggageKeys(Propagation<String> propagation) {
+        Set<String> baggageKeys = new LinkedHashSet<>();
+        BaggagePropagation.allKeyNames(propagation).forEach(key -> baggageKeys.add(key.toLowerCase(Locale.ROOT)));
+        propagation.keys().forEach(key -> baggageKeys.remove(key.toLowerCase(Locale.ROOT)));
+        return baggageKeys.toArray(new String[0]);
+    }
+
+    private Span nextSpan(CamelContextTracing contextTracing, Exchange exchange, TraceContextOrSamplingFlags extractedContext) {
+        // processors put bound spans in scope themselves, on whatever thread they run
+        if (contextTracing != null && (contextTracing.isAsyncContinuations()
+                || contextTracing.isVirtualThreads() && ExchangeBoundSpans.isEnabled())) {
+            return exchangeBoundSpans.next(exchange, extractedContext);
+        }
+        boolean camelSpanScope = CamelThreadScopeDecorator.beginCamelSpanScope();
+        try {
+            return threadLocalSpan.next(extractedContext);
+        } finally {
+            CamelThreadScopeDecorator.endCamelSpanScope(camelSpanScope);
+        }
+    }
+
+    private String getSpanName(@Nullable TracedEndpoint tracedEndpoint, Endpoint endpoint) {
+        return tracedEndpoint != null ? tracedEndpoint.getSpanName() : TracedEndpoint.spanName(endpoint);
     }
 
     @Override
@@ -104,4 +230,62 @@ public class CreatedEventNotifier extends EventNotifierSupport {
         return event instanceof CamelEvent.ExchangeCreatedEvent;
     }
 
+
+    public static Builder newBuilder(Tracing tracing, ThreadLocalSpan threadLocalSpan, Tracer tracer) {
+        return new Builder(tracing, threadLocalSpan, tracer);
+    }
+
+    /**
+     * Tracing, thread local span and tracer are required, toggles and in-flight spans default to ones of this notifier
+     * only, queue wait listener, baggage allowlist and payload sizes are not used unless set.
+     */
+    public static final class Builder {
+
+        private final Tracing tracing;
+        private final ThreadLocalSpan threadLocalSpan;
+        private final Tracer tracer;
+        private CamelTracingToggles toggles = new CamelTracingToggles();
+        private InFlightSpans inFlightSpans = new InFlightSpans();
+        @Nullable
+        private QueueWaitListener queueWaitListener;
+        @Nullable
+        private BaggageAllowlist baggageAllowlist;
+        @Nullable
+        private PayloadSizes payloadSizes;
+
+        private Builder(Tracing tracing, ThreadLocalSpan threadLocalSpan, Tracer tracer) {
+            this.tracing = tracing;
+            this.threadLocalSpan = threadLocalSpan;
+            this.tracer = tracer;
+        }
+
+        public Builder toggles(CamelTracingToggles toggles) {
+            this.toggles = toggles;
+            return this;
+        }
+
+        public Builder inFlightSpans(InFlightSpans inFlightSpans) {
+            this.inFlightSpans = inFlightSpans;
+            return this;
+        }
+
+        public Builder queueWaitListener(@Nullable QueueWaitListener queueWaitListener) {
+            this.queueWaitListener = queueWaitListener;
+            return this;
+        }
+
+        public Builder baggageAllowlist(@Nullable BaggageAllowlist baggageAllowlist) {
+            this.baggageAllowlist = baggageAllowlist;
+            return this;
+        }
+
+        public Builder payloadSizes(@Nullable PayloadSizes payloadSizes) {
+            this.payloadSizes = payloadSizes;
+            return this;
+        }
+
+        public CreatedEventNotifier build() {
+            return new CreatedEventNotifier(this);
+        }
+    }
 }
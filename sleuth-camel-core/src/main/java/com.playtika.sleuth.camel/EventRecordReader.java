@@ -0,0 +1,168 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Playtika
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.playtika.sleuth.camel;
+
+import lombok.Value;
+import lombok.experimental.UtilityClass;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.playtika.sleuth.camel.EventRecorder.*;
+
+/**
+ * Decodes event logs written by {@link EventRecorder}, in the order events were recorded across all threads.
+ * <p>
+ * Can be run from the command line: {@code java -cp <classpath> com.playtika.sleuth.camel.EventRecordReader <file>}
+ */
+@UtilityClass
+public class EventRecordReader {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Usage: EventRecordReader <event log file>");
+            System.exit(1);
+        }
+        for (EventRecord record : read(Paths.get(args[0]))) {
+            System.out.println(record);
+        }
+    }
+
+    public static List<EventRecord> read(Path path) throws IOException {
+        try (InputStream in = Files.newInputStream(path)) {
+            return read(in);
+        }
+    }
+
+    public static List<EventRecord> read(byte[] bytes) throws IOException {
+        return read(new ByteArrayInputStream(bytes));
+    }
+
+    public static List<EventRecord> read(InputStream source) throws IOException {
+        DataInputStream in = new DataInputStream(source);
+        if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+            throw new IOException("Not a camel event log");
+        }
+        List<String> strings = new ArrayList<>();
+        List<EventRecord> records = new ArrayList<>();
+        while (true) {
+            int type = in.read();
+            if (type < 0) {
+                records.sort(Comparator.comparingLong(EventRecord::getSequence));
+                return records;
+            }
+            if (type == SEGMENT) {
+                // every thread buffer has a dictionary of its own
+                strings = new ArrayList<>();
+                continue;
+            }
+            if (type == STRING) {
+                strings.add(in.readUTF());
+                continue;
+            }
+            try {
+                records.add(new EventRecord(
+                        (byte) type,
+                        in.readLong(),
+                        in.readLong(),
+                        string(strings, in.readInt()),
+                        string(strings, in.readInt()),
+                        string(strings, in.readInt()),
+                        string(strings, in.readInt()),
+                        string(strings, in.readInt()),
+                        in.readLong(),
+                        string(strings, in.readInt()),
+                        headers(strings, in)));
+            } catch (EOFException e) {
+                throw new IOException("Truncated camel event log, " + records.size() + " events read", e);
+            }
+        }
+    }
+
+    private static Map<String, String> headers(List<String> strings, DataInputStream in) throws IOException {
+        int count = in.readUnsignedByte();
+        if (count == 0) {
+            return Collections.emptyMap();
+        }
+        Map<String, String> headers = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            headers.put(string(strings, in.readInt()), string(strings, in.readInt()));
+        }
+        return headers;
+    }
+
+    private static String string(List<String> strings, int index) {
+        return index == NONE ? null : strings.get(index);
+    }
+
+    @Value
+    public static class EventRecord {
+        byte type;
+        long sequence;
+        long timestampNanos;
+        String thread;
+        String exchangeId;
+        String routeId;
+        String fromEndpointKey;
+        /**
+         * Endpoint exchange was sent to, for sent events only.
+         */
+        String endpointKey;
+        long timeTakenMillis;
+        String exceptionType;
+        /**
+         * Trace context headers of the message, for created and sent events only.
+         */
+        Map<String, String> headers;
+
+        public boolean isCreated() {
+            return type == CREATED;
+        }
+
+        public boolean isSent() {
+            return type == SENT;
+        }
+
+        public boolean isCompleted() {
+            return type == COMPLETED;
+        }
+
+        public boolean isFailed() {
+            return type == FAILED;
+        }
+    }
+}
@@ -0,0 +1,268 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Playtika
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.playtika.sleuth.camel;
+
+import brave.propagation.B3Propagation;
+import brave.propagation.Propagation;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.camel.Endpoint;
+import org.apache.camel.Exchange;
+import org.apache.camel.Message;
+import org.apache.camel.spi.CamelEvent;
+import org.apache.camel.support.EventNotifierSupport;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records the sequence of exchange events seen by {@link CreatedEventNotifier} and {@link SentEventNotifier}
+ * into a compact binary log, to be fed back into them with {@link EventReplayer}.
+ * <p>
+ * Every event is a fixed record of type, sequence number, timestamp, thread, exchange, route, endpoints and exception type,
+ * followed by trace context headers of the message for created and sent events, so replayed exchanges continue
+ * the traces they continued in the recorded run. Register the recorder before tracing notifiers,
+ * so created events are recorded with headers the message came with.
+ * <p>
+ * Every thread writes into a buffer of its own, with strings written once into an inline dictionary of the buffer
+ * and referenced by index afterwards. Recording stops once the log reaches its size limit.
+ * Use {@link EventRecordReader} to decode the log.
+ */
+@Slf4j
+public class EventRecorder extends EventNotifierSupport {
+
+    static final int MAGIC = 0x53434552;
+    static final int VERSION = 2;
+
+    static final byte STRING = 0;
+    static final byte CREATED = 1;
+    static final byte SENT = 2;
+    static final byte COMPLETED = 3;
+    static final byte FAILED = 4;
+    static final byte SEGMENT = 5;
+
+    static final int NONE = -1;
+
+    private final long maxBytes;
+    private final List<String> headers;
+    private final Queue<Buffer> buffers = new ConcurrentLinkedQueue<>();
+    private final ThreadLocal<Buffer> threadBuffer = ThreadLocal.withInitial(this::newBuffer);
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong size = new AtomicLong();
+    private final LongAdder events = new LongAdder();
+    private final LongAdder droppedEvents = new LongAdder();
+
+    public EventRecorder(long maxBytes) {
+        this(maxBytes, B3Propagation.B3_STRING);
+    }
+
+    /**
+     * Records message headers of the given propagation along with created and sent events.
+     */
+    public EventRecorder(long maxBytes, Propagation<String> propagation) {
+        this.maxBytes = maxBytes;
+        this.headers = propagation.keys();
+        setIgnoreCamelContextEvents(true);
+        setIgnoreRouteEvents(true);
+        setIgnoreServiceEvents(true);
+        setIgnoreStepEvents(true);
+        setIgnoreExchangeSendingEvents(true);
+        setIgnoreExchangeRedeliveryEvents(true);
+    }
+
+    @Override
+    public void notify(CamelEvent event) {
+        if (size.get() >= maxBytes) {
+            droppedEvents.increment();
+            return;
+        }
+        Buffer buffer = threadBuffer.get();
+        try {
+            // uncontended unless the log is being written out
+            synchronized (buffer) {
+                int before = buffer.bytes.size();
+                buffer.record((CamelEvent.ExchangeEvent) event);
+                size.addAndGet(buffer.bytes.size() - before);
+            }
+            events.increment();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public boolean isEnabled(CamelEvent event) {
+        return event instanceof CamelEvent.ExchangeCreatedEvent
+                || event instanceof CamelEvent.ExchangeSentEvent
+                || event instanceof CamelEvent.ExchangeCompletedEvent
+                || event instanceof CamelEvent.ExchangeFailedEvent;
+    }
+
+    public long getEvents() {
+        return events.sum();
+    }
+
+    public long getDroppedEvents() {
+        return droppedEvents.sum();
+    }
+
+    /**
+     * Writes buffers of all threads one after another, events are put back in order when the log is read.
+     */
+    public void writeTo(OutputStream target) throws IOException {
+        DataOutputStream out = new DataOutputStream(target);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        for (Buffer buffer : buffers) {
+            out.writeByte(SEGMENT);
+            synchronized (buffer) {
+                out.flush();
+                buffer.bytes.writeTo(target);
+            }
+        }
+        out.flush();
+    }
+
+    public void save(Path path) throws IOException {
+        try (OutputStream target = Files.newOutputStream(path)) {
+            writeTo(target);
+        }
+        log.info("Saved {} camel exchange events into [{}], {} dropped.", getEvents(), path, getDroppedEvents());
+    }
+
+    public byte[] toByteArray() {
+        ByteArrayOutputStream target = new ByteArrayOutputStream((int) Math.min(Integer.MAX_VALUE - 8, size.get() + 8));
+        try {
+            writeTo(target);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return target.toByteArray();
+    }
+
+    private Buffer newBuffer() {
+        Buffer buffer = new Buffer();
+        buffers.add(buffer);
+        return buffer;
+    }
+
+    private static byte type(CamelEvent event) {
+        if (event instanceof CamelEvent.ExchangeCreatedEvent) {
+            return CREATED;
+        }
+        if (event instanceof CamelEvent.ExchangeSentEvent) {
+            return SENT;
+        }
+        return event instanceof CamelEvent.ExchangeFailedEvent ? FAILED : COMPLETED;
+    }
+
+    private class Buffer {
+
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final DataOutputStream out = new DataOutputStream(bytes);
+        private final Map<String, Integer> strings = new HashMap<>();
+
+        private void record(CamelEvent.ExchangeEvent event) throws IOException {
+            Exchange exchange = event.getExchange();
+            Endpoint fromEndpoint = exchange.getFromEndpoint();
+            Exception exception = exchange.getException();
+            byte type = type(event);
+            int thread = string(Thread.currentThread().getName());
+            int exchangeId = string(exchange.getExchangeId());
+            int routeId = string(exchange.getFromRouteId());
+            int from = string(fromEndpoint != null ? fromEndpoint.getEndpointKey() : null);
+            int to = NONE;
+            long timeTaken = 0;
+            if (event instanceof CamelEvent.ExchangeSentEvent) {
+                CamelEvent.ExchangeSentEvent sentEvent = (CamelEvent.ExchangeSentEvent) event;
+                to = string(sentEvent.getEndpoint().getEndpointKey());
+                timeTaken = sentEvent.getTimeTaken();
+            }
+            int exceptionType = string(exception != null ? exception.getClass().getName() : null);
+            int[] headerValues = type == CREATED || type == SENT ? headers(exchange.getIn()) : null;
+
+            out.writeByte(type);
+            out.writeLong(sequence.getAndIncrement());
+            out.writeLong(System.nanoTime());
+            out.writeInt(thread);
+            out.writeInt(exchangeId);
+            out.writeInt(routeId);
+            out.writeInt(from);
+            out.writeInt(to);
+            out.writeLong(timeTaken);
+            out.writeInt(exceptionType);
+            if (headerValues == null) {
+                out.writeByte(0);
+                return;
+            }
+            out.writeByte(headerValues.length / 2);
+            for (int headerValue : headerValues) {
+                out.writeInt(headerValue);
+            }
+        }
+
+        /**
+         * Name and value string indexes of trace context headers the message carries.
+         */
+        private int[] headers(Message message) throws IOException {
+            int[] found = new int[headers.size() * 2];
+            int count = 0;
+            for (String header : headers) {
+                String value = message.getHeader(header, String.class);
+                if (value != null) {
+                    found[count++] = string(header);
+                    found[count++] = string(value);
+                }
+            }
+            return count == found.length ? found : Arrays.copyOf(found, count);
+        }
+
+        private int string(String value) throws IOException {
+            if (value == null) {
+                return NONE;
+            }
+            Integer index = strings.get(value);
+            if (index == null) {
+                index = strings.size();
+                strings.put(value, index);
+                out.writeByte(STRING);
+                out.writeUTF(value);
+            }
+            return index;
+        }
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Playtika
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.playtika.sleuth.camel;
+
+import com.playtika.sleuth.camel.EventRecordReader.EventRecord;
+import org.apache.camel.CamelContext;
+import org.apache.camel.Consumer;
+import org.apache.camel.Endpoint;
+import org.apache.camel.Exchange;
+import org.apache.camel.ExtendedExchange;
+import org.apache.camel.Processor;
+import org.apache.camel.Producer;
+import org.apache.camel.impl.event.ExchangeCompletedEvent;
+import org.apache.camel.impl.event.ExchangeCreatedEvent;
+import org.apache.camel.impl.event.ExchangeFailedEvent;
+import org.apache.camel.impl.event.ExchangeSentEvent;
+import org.apache.camel.spi.CamelEvent;
+import org.apache.camel.spi.EventNotifier;
+import org.apache.camel.support.DefaultEndpoint;
+import org.apache.camel.support.DefaultExchange;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Feeds events recorded by {@link EventRecorder} into notifiers, as fast as they can take them.
+ * <p>
+ * Every recorded thread is replayed by a thread of its own, with the same name, and events are replayed in exactly
+ * the recorded order: consecutive events of one thread run as a batch, then the next thread takes over.
+ * Thread-bound span state is thus exercised the way it was in the recorded run, deterministically.
+ * Exchanges and endpoints are stand-ins carrying recorded ids, routes and endpoint keys only.
+ * <p>
+ * Messages of created exchanges get the recorded trace context headers, with ids of recorded spans replaced
+ * by ids the same spans got in the replay, so exchanges continue traces of replayed exchanges the way they did
+ * in the recorded run.
+ */
+public class EventReplayer implements Closeable {
+
+    private final CamelContext camelContext;
+    private final List<EventNotifier> notifiers;
+    private final Map<String, ExecutorService> threads = new HashMap<>();
+    private final Map<String, Endpoint> endpoints = new HashMap<>();
+    private final Map<String, Exchange> exchanges = new HashMap<>();
+    private final Map<String, String> replayedHeaderValues = new ConcurrentHashMap<>();
+
+    public EventReplayer(CamelContext camelContext, List<EventNotifier> notifiers) {
+        this.camelContext = camelContext;
+        this.notifiers = new ArrayList<>(notifiers);
+    }
+
+    public void replay(List<EventRecord> records) throws InterruptedException {
+        try {
+            int start = 0;
+            while (start < records.size()) {
+                String thread = records.get(start).getThread();
+                int end = start + 1;
+                while (end < records.size() && Objects.equals(records.get(end).getThread(), thread)) {
+                    end++;
+                }
+                List<EventRecord> batch = records.subList(start, end);
+                thread(thread).submit(() -> batch.forEach(this::replay)).get();
+                start = end;
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Failed to replay camel events", e.getCause());
+        } finally {
+            exchanges.clear();
+            replayedHeaderValues.clear();
+        }
+    }
+
+    @Override
+    public void close() {
+        threads.values().forEach(ExecutorService::shutdownNow);
+        threads.clear();
+    }
+
+    private void replay(EventRecord record) {
+        Exchange exchange = exchanges.computeIfAbsent(record.getExchangeId(), exchangeId -> exchange(record));
+        CamelEvent event = event(record, exchange);
+        if (record.isCreated()) {
+            record.getHeaders().forEach((header, value) ->
+                    exchange.getIn().setHeader(header, replayedHeaderValues.getOrDefault(value, value)));
+        }
+        for (EventNotifier notifier : notifiers) {
+            if (!isIgnored(notifier, record) && notifier.isEnabled(event)) {
+                try {
+                    notifier.notify(event);
+                } catch (Exception e) {
+                    throw new IllegalStateException("Notifier " + notifier + " failed on replayed event " + record, e);
+                }
+            }
+        }
+        // headers injected in the replay stand for the recorded ones from now on
+        record.getHeaders().forEach((header, value) -> {
+            String replayedValue = exchange.getIn().getHeader(header, String.class);
+            if (replayedValue != null && !replayedValue.equals(value)) {
+                replayedHeaderValues.put(value, replayedValue);
+            }
+        });
+    }
+
+    private CamelEvent event(EventRecord record, Exchange exchange) {
+        if (record.getExceptionType() != null && exchange.getException() == null) {
+            exchange.setException(new ReplayedException(record.getExceptionType()));
+        }
+        if (record.isCreated()) {
+            return new ExchangeCreatedEvent(exchange);
+        }
+        if (record.isSent()) {
+            return new ExchangeSentEvent(exchange, endpoint(record.getEndpointKey()), record.getTimeTakenMillis());
+        }
+        if (record.isFailed()) {
+            return new ExchangeFailedEvent(exchange);
+        }
+        return new ExchangeCompletedEvent(exchange);
+    }
+
+    private Exchange exchange(EventRecord record) {
+        Exchange exchange = new DefaultExchange(camelContext);
+        exchange.setExchangeId(record.getExchangeId());
+        ExtendedExchange extendedExchange = exchange.adapt(ExtendedExchange.class);
+        extendedExchange.setFromRouteId(record.getRouteId());
+        if (record.getFromEndpointKey() != null) {
+            extendedExchange.setFromEndpoint(endpoint(record.getFromEndpointKey()));
+        }
+        return exchange;
+    }
+
+    private synchronized Endpoint endpoint(String endpointKey) {
+        return endpoints.computeIfAbsent(endpointKey, key -> new ReplayedEndpoint(key, camelContext));
+    }
+
+    private synchronized ExecutorService thread(String name) {
+        return threads.computeIfAbsent(name, threadName -> Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, threadName);
+            thread.setDaemon(true);
+            return thread;
+        }));
+    }
+
+    private static boolean isIgnored(EventNotifier notifier, EventRecord record) {
+        if (notifier.isIgnoreExchangeEvents()) {
+            return true;
+        }
+        switch (record.getType()) {
+            case EventRecorder.CREATED:
+                return notifier.isIgnoreExchangeCreatedEvent();
+            case EventRecorder.SENT:
+                return notifier.isIgnoreExchangeSentEvents();
+            case EventRecorder.FAILED:
+                return notifier.isIgnoreExchangeFailedEvents();
+            default:
+                return notifier.isIgnoreExchangeCompletedEvent();
+        }
+    }
+
+    /**
+     * Stands for the exception exchange failed with, recorded by type only.
+     */
+    public static class ReplayedException extends RuntimeException {
+
+        ReplayedException(String exceptionType) {
+            super(exceptionType, null, false, false);
+        }
+    }
+
+    private static class ReplayedEndpoint extends DefaultEndpoint {
+
+        ReplayedEndpoint(String endpointKey, CamelContext camelContext) {
+            super(endpointKey, null);
+            setCamelContext(camelContext);
+        }
+
+        @Override
+        public Producer createProducer() {
+            throw new UnsupportedOperationException("Replayed endpoint " + getEndpointUri() + " cannot produce");
+        }
+
+        @Override
+        public Consumer createConsumer(Processor processor) {
+            throw new UnsupportedOperationException("Replayed endpoint " + getEndpointUri() + " cannot consume");
+        }
+    }
+}
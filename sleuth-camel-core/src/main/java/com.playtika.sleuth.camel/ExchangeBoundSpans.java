@@ -0,0 +1,91 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Playtika
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.playtika.sleuth.camel;
+
+import brave.Span;
+import brave.Tracer;
+import brave.propagation.TraceContext;
+import brave.propagation.TraceContextOrSamplingFlags;
+import lombok.AllArgsConstructor;
+import lombok.Value;
+import org.apache.camel.Exchange;
+
+import static com.playtika.sleuth.camel.SleuthCamelConstants.EXCHANGE_BOUND_SPAN;
+
+/**
+ * Keeps camel span of an exchange in the exchange itself instead of {@link brave.propagation.ThreadLocalSpan}.
+ * <p>
+ * Used for exchanges handled on virtual threads, which are cheap and short-lived, so a span stack per thread only
+ * multiplies memory, and for exchanges of camel contexts with async continuations.
+ * <p>
+ * Bound spans are never put in scope of the creating thread, as the exchange may complete on another one and
+ * the scope would then stay open on the creating thread for whatever it runs next. {@link AsyncContinuationProcessor}
+ * scopes the span around every processor and callback instead, and closes the scope once the processor returns.
+ */
+@AllArgsConstructor
+class ExchangeBoundSpans {
+
+    private final Tracer tracer;
+
+    static boolean isEnabled() {
+        return VirtualThreads.isVirtual(Thread.currentThread());
+    }
+
+    /**
+     * Whether the exchange owns a bound span; copies of the exchange carry the property, but do not own the span.
+     */
+    static boolean isBound(Exchange exchange) {
+        BoundSpan boundSpan = (BoundSpan) exchange.getProperty(EXCHANGE_BOUND_SPAN);
+        return boundSpan != null && boundSpan.getExchangeId().equals(exchange.getExchangeId());
+    }
+
+    /**
+     * Context of the span bound to the exchange, or to the exchange it was copied from.
+     */
+    static TraceContext context(Exchange exchange) {
+        BoundSpan boundSpan = (BoundSpan) exchange.getProperty(EXCHANGE_BOUND_SPAN);
+        return boundSpan == null ? null : boundSpan.getSpan().context();
+    }
+
+    Span next(Exchange exchange, TraceContextOrSamplingFlags extracted) {
+        Span span = tracer.nextSpan(extracted);
+        exchange.setProperty(EXCHANGE_BOUND_SPAN, new BoundSpan(span, exchange.getExchangeId()));
+        return span;
+    }
+
+    Span remove(Exchange exchange) {
+        if (!isBound(exchange)) {
+            return null;
+        }
+        BoundSpan boundSpan = (BoundSpan) exchange.removeProperty(EXCHANGE_BOUND_SPAN);
+        return boundSpan == null ? null : boundSpan.getSpan();
+    }
+
+    @Value
+    private static class BoundSpan {
+        Span span;
+        String exchangeId;
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Playtika
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.playtika.sleuth.camel;
+
+import com.playtika.sleuth.camel.InFlightSpans.InFlightSpan;
+import lombok.Value;
+import org.apache.camel.Endpoint;
+import org.apache.camel.Exchange;
+import org.springframework.cloud.sleuth.internal.SpanNameUtil;
+import org.springframework.lang.Nullable;
+
+import static com.playtika.sleuth.camel.SleuthCamelConstants.EXCHANGE_BRANCHING;
+
+/**
+ * Copy of an exchange sent to a branch of multicast or recipient list, possibly in parallel with other branches.
+ * It is traced as a child span of the exchange it was copied from, rather than of whatever trace context its headers carry.
+ * <p>
+ * Branch properties outlive the fan-out, aggregated results and their later copies keep them, so an exchange is taken
+ * for a branch only while the exchange it was copied from is in flight and marked by {@link BranchingProcessor}.
+ */
+@Value
+class ExchangeBranch {
+
+    static final String BRANCH_INDEX_TAG = "camel-branch-index";
+    static final String EXCHANGE_EVENT_BRANCH_COMPLETED_ANNOTATION = "camel-exchange-event-branch-completed";
+
+    InFlightSpan parent;
+    int index;
+    @Nullable
+    String endpointUri;
+
+    @Nullable
+    static ExchangeBranch of(Exchange exchange, InFlightSpans inFlightSpans) {
+        Object index = exchange.getProperty(Exchange.MULTICAST_INDEX);
+        if (!(index instanceof Integer)) {
+            return null;
+        }
+        String parentExchangeId = exchange.getProperty(Exchange.CORRELATION_ID, String.class);
+        if (parentExchangeId == null || parentExchangeId.equals(exchange.getExchangeId())) {
+            return null;
+        }
+        InFlightSpan parent = inFlightSpans.get(parentExchangeId);
+        if (parent == null || !parentExchangeId.equals(parent.getExchange().getProperty(EXCHANGE_BRANCHING))) {
+            return null;
+        }
+        return new ExchangeBranch(parent, (Integer) index, exchange.getProperty(Exchange.RECIPIENT_LIST_ENDPOINT, String.class));
+    }
+
+    /**
+     * Recipients are named after their endpoint key, like other endpoint spans, rather than the uri they were sent to,
+     * which is neither normalized nor sanitized.
+     */
+    String spanName(Exchange exchange, @Nullable CamelContextTracing contextTracing) {
+        Endpoint endpoint = endpointUri != null ? exchange.getContext().hasEndpoint(endpointUri) : null;
+        if (endpoint == null) {
+            return SpanNameUtil.shorten((endpointUri != null ? "camel::recipient-" : "camel::multicast-") + index);
+        }
+        return contextTracing != null ? contextTracing.endpoint(endpoint).getSpanName() : TracedEndpoint.spanName(endpoint);
+    }
+}
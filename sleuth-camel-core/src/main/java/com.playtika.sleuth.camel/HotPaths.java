@@ -0,0 +1,254 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Playtika
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.playtika.sleuth.camel;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ToLongBiFunction;
+
+/**
+ * Most frequent and slowest keys, like route ids or endpoint keys, in fixed memory regardless of how many keys there are.
+ * <p>
+ * Frequencies are estimated by a {@link CountMinSketch}, a bounded set of keys with the highest estimates is tracked
+ * along with their latencies. Another bounded set tracks keys with the highest latency seen.
+ * Latencies are kept in power of two millisecond buckets, so quantiles are upper bounds of their buckets.
+ * <p>
+ * Routing threads never wait for admission of a key: it is skipped if another thread is admitting one,
+ * the key is admitted on one of its next records then. The tracked key to evict is found in a min-heap.
+ */
+public class HotPaths {
+
+    static final int SKETCH_WIDTH = 2048;
+    static final int TRACKED_PER_REPORTED = 4;
+
+    private final int size;
+    private final int capacity;
+    private final CountMinSketch sketch = new CountMinSketch(SKETCH_WIDTH);
+    private final TrackedKeys frequent;
+    private final TrackedKeys slowest;
+
+    /**
+     * @param size number of keys reported, a few times more are tracked so that top ones are settled
+     */
+    public HotPaths(int size) {
+        this.size = size;
+        this.capacity = size * TRACKED_PER_REPORTED;
+        this.frequent = new TrackedKeys((key, latencies) -> sketch.estimate(key));
+        this.slowest = new TrackedKeys((key, latencies) -> latencies.max());
+    }
+
+    public void record(String key, long millis) {
+        long estimate = sketch.add(key);
+        Latencies frequentLatencies = frequent.get(key, estimate);
+        if (frequentLatencies != null) {
+            frequentLatencies.record(millis);
+        }
+        Latencies slowestLatencies = slowest.get(key, millis);
+        if (slowestLatencies != null) {
+            slowestLatencies.record(millis);
+        }
+    }
+
+    /**
+     * Keys by estimated count, most frequent first.
+     */
+    public List<Map<String, Object>> frequent() {
+        List<Map.Entry<String, Latencies>> entries = new ArrayList<>(frequent.latencies.entrySet());
+        entries.sort(Comparator.comparingLong((Map.Entry<String, Latencies> entry) -> sketch.estimate(entry.getKey())).reversed());
+        return report(entries);
+    }
+
+    /**
+     * Keys by the highest latency seen, slowest first.
+     */
+    public List<Map<String, Object>> slowest() {
+        List<Map.Entry<String, Latencies>> entries = new ArrayList<>(slowest.latencies.entrySet());
+        entries.sort(Comparator.comparingLong((Map.Entry<String, Latencies> entry) -> entry.getValue().max()).reversed());
+        return report(entries);
+    }
+
+    public void clear() {
+        frequent.clear();
+        slowest.clear();
+        sketch.clear();
+    }
+
+    private List<Map<String, Object>> report(List<Map.Entry<String, Latencies>> entries) {
+        List<Map<String, Object>> report = new ArrayList<>();
+        for (Map.Entry<String, Latencies> entry : entries.subList(0, Math.min(size, entries.size()))) {
+            Latencies latencies = entry.getValue();
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("name", entry.getKey());
+            item.put("count", sketch.estimate(entry.getKey()));
+            item.put("meanMillis", latencies.mean());
+            item.put("p50Millis", latencies.quantile(0.5));
+            item.put("p99Millis", latencies.quantile(0.99));
+            item.put("maxMillis", latencies.max());
+            report.add(item);
+        }
+        return report;
+    }
+
+    /**
+     * Bounded set of keys with the highest scores, with the lowest one on top of a min-heap.
+     * Scores only grow, so heap entries may be stale, the top one is refreshed before it is evicted.
+     */
+    private final class TrackedKeys {
+
+        private final Map<String, Latencies> latencies = new ConcurrentHashMap<>();
+        private final PriorityQueue<Score> lowest = new PriorityQueue<>(Comparator.comparingLong((Score score) -> score.value));
+        private final ReentrantLock lock = new ReentrantLock();
+        private final ToLongBiFunction<String, Latencies> scores;
+        private volatile long minScore;
+
+        TrackedKeys(ToLongBiFunction<String, Latencies> scores) {
+            this.scores = scores;
+        }
+
+        Latencies get(String key, long score) {
+            Latencies tracked = latencies.get(key);
+            if (tracked != null || latencies.size() >= capacity && score <= minScore || !lock.tryLock()) {
+                return tracked;
+            }
+            try {
+                return admit(key, score);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void clear() {
+            lock.lock();
+            try {
+                latencies.clear();
+                lowest.clear();
+                minScore = 0;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private Latencies admit(String key, long score) {
+            Latencies tracked = latencies.get(key);
+            if (tracked != null) {
+                return tracked;
+            }
+            if (latencies.size() >= capacity) {
+                Score evicted = refreshedLowest();
+                // lowest score tracked, a lower bound once it is evicted, so admission is rechecked here anyway
+                minScore = evicted.value;
+                if (evicted.value >= score) {
+                    return null;
+                }
+                lowest.poll();
+                latencies.remove(evicted.key);
+            }
+            tracked = new Latencies();
+            latencies.put(key, tracked);
+            lowest.add(new Score(key, score));
+            return tracked;
+        }
+
+        private Score refreshedLowest() {
+            while (true) {
+                Score top = lowest.peek();
+                long current = scores.applyAsLong(top.key, latencies.get(top.key));
+                if (current <= top.value) {
+                    return top;
+                }
+                lowest.poll();
+                top.value = current;
+                lowest.add(top);
+            }
+        }
+    }
+
+    private static final class Score {
+
+        private final String key;
+        private long value;
+
+        Score(String key, long value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    /**
+     * Latencies of a tracked key since it got tracked.
+     */
+    static final class Latencies {
+
+        static final int BUCKETS = 40;
+
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalMillis = new LongAdder();
+        private final LongAccumulator maxMillis = new LongAccumulator(Math::max, 0);
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+        void record(long millis) {
+            long value = Math.max(0, millis);
+            count.increment();
+            totalMillis.add(value);
+            maxMillis.accumulate(value);
+            // bucket 0 is 0ms, bucket b holds [2^(b-1), 2^b) ms
+            buckets.incrementAndGet(Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(value)));
+        }
+
+        long max() {
+            return maxMillis.get();
+        }
+
+        long mean() {
+            long recorded = count.sum();
+            return recorded == 0 ? 0 : totalMillis.sum() / recorded;
+        }
+
+        long quantile(double quantile) {
+            long total = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                total += buckets.get(i);
+            }
+            long rank = (long) Math.ceil(quantile * total);
+            long seen = 0;
+            for (int bucket = 0; bucket < BUCKETS; bucket++) {
+                seen += buckets.get(bucket);
+                if (seen >= rank && seen > 0) {
+                    return Math.min(max(), bucket == 0 ? 0 : (1L << bucket) - 1);
+                }
+            }
+            return max();
+        }
+    }
+}
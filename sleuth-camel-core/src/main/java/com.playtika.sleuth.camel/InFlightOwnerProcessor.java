@@ -0,0 +1,66 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Playtika
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.playtika.sleuth.camel;
+
+import com.playtika.sleuth.camel.InFlightSpans.InFlightSpan;
+import org.apache.camel.AsyncCallback;
+import org.apache.camel.Exchange;
+import org.apache.camel.Processor;
+import org.apache.camel.support.processor.DelegateAsyncProcessor;
+
+/**
+ * Records the thread running a processor as the owner of the exchange in-flight span. Once the processor goes async,
+ * the owner is unknown until the next processor runs on whatever thread the exchange continues on.
+ * Costs an in-flight span lookup per processor, the callback is passed through as is.
+ */
+class InFlightOwnerProcessor extends DelegateAsyncProcessor {
+
+    private final InFlightSpans inFlightSpans;
+
+    InFlightOwnerProcessor(Processor processor, InFlightSpans inFlightSpans) {
+        super(processor);
+        this.inFlightSpans = inFlightSpans;
+    }
+
+    @Override
+    public boolean process(Exchange exchange, AsyncCallback callback) {
+        InFlightSpan inFlightSpan = inFlightSpans.get(exchange.getExchangeId());
+        if (inFlightSpan == null) {
+            return processor.process(exchange, callback);
+        }
+        Thread thread = Thread.currentThread();
+        inFlightSpan.own(thread);
+        boolean sync = processor.process(exchange, callback);
+        if (!sync) {
+            inFlightSpan.disown(thread);
+        }
+        return sync;
+    }
+
+    @Override
+    public String toString() {
+        return "InFlightOwner[" + processor + "]";
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Playtika
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.playtika.sleuth.camel;
+
+import brave.Span;
+import lombok.Getter;
+import org.apache.camel.CamelContext;
+import org.apache.camel.Exchange;
+import org.springframework.lang.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * Camel spans started by {@link CreatedEventNotifier} and not yet finished by {@link SentEventNotifier}, by exchange id.
+ * Entries are removed once their spans are finished. Exchanges completing on another thread than the one which
+ * created their span are marked completed till then, see {@link InFlightSpan#isCompleted()}.
+ */
+public class InFlightSpans {
+
+    private final Map<String, InFlightSpan> spans = new ConcurrentHashMap<>();
+
+    public void add(Exchange exchange, Span span) {
+        spans.put(exchange.getExchangeId(), new InFlightSpan(exchange, span, Thread.currentThread(), System.nanoTime()));
+    }
+
+    public InFlightSpan get(String exchangeId) {
+        return spans.get(exchangeId);
+    }
+
+    public InFlightSpan remove(String exchangeId) {
+        return spans.remove(exchangeId);
+    }
+
+    /**
+     * Removes and returns all in-flight spans of exchanges belonging to the given camel context.
+     */
+    public List<InFlightSpan> removeAll(CamelContext camelContext) {
+        List<InFlightSpan> removed = new ArrayList<>();
+        for (InFlightSpan inFlightSpan : spans.values()) {
+            if (inFlightSpan.getExchange().getContext() == camelContext && spans.remove(inFlightSpan.getExchangeId(), inFlightSpan)) {
+                removed.add(inFlightSpan);
+            }
+        }
+        return removed;
+    }
+
+    public Collection<InFlightSpan> spans() {
+        return spans.values();
+    }
+
+    public int size() {
+        return spans.size();
+    }
+
+    /**
+     * In-flight span along with the thread which created it and the thread currently running its exchange, if known.
+     * The owner is the creating thread unless route processors report otherwise, see {@link InFlightOwnerProcessor}.
+     */
+    @Getter
+    public static class InFlightSpan {
+
+        private static final AtomicReferenceFieldUpdater<InFlightSpan, Thread> OWNER =
+                AtomicReferenceFieldUpdater.newUpdater(InFlightSpan.class, Thread.class, "owner");
+
+        private final Exchange exchange;
+        private final Span span;
+        private final Thread thread;
+        private final long startNanos;
+        @Nullable
+        private volatile Thread owner;
+        /**
+         * Exchange completed or failed, its span is left for the creating thread to finish.
+         */
+        private volatile boolean completed;
+
+        public InFlightSpan(Exchange exchange, Span span, Thread thread, long startNanos) {
+            this.exchange = exchange;
+            this.span = span;
+            this.thread = thread;
+            this.startNanos = startNanos;
+            this.owner = thread;
+        }
+
+        public String getExchangeId() {
+            return exchange.getExchangeId();
+        }
+
+        void complete() {
+            completed = true;
+        }
+
+        void own(Thread thread) {
+            owner = thread;
+        }
+
+        /**
+         * Leaves the owner unknown, unless another thread has taken the exchange over already.
+         */
+        void disown(Thread thread) {
+            OWNER.compareAndSet(this, thread, null);
+        }
+    }
+}
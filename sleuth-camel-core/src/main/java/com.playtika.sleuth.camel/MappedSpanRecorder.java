@@ -0,0 +1,232 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Playtika
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.playtika.sleuth.camel;
+
+import brave.Span;
+import brave.handler.MutableSpan;
+import brave.handler.SpanHandler;
+import brave.propagation.TraceContext;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static com.playtika.sleuth.camel.CreatedEventNotifier.EXCHANGE_ID_TAG_ANNOTATION;
+
+/**
+ * Writes every finished camel span into a fixed-size memory-mapped file used as a ring buffer,
+ * so the latest spans survive an unreachable collector or a crashed process.
+ * <p>
+ * Each span takes one fixed-size slot, slots are claimed with a single atomic increment and written
+ * with absolute puts, so the write path takes no locks and allocates nothing.
+ * Slots are written like a seqlock: the sequence is invalidated before the record is written and published after it,
+ * each time along with a volatile write of the slot sequence, which keeps the record writes in between,
+ * so readers tell complete records from torn ones by reading the sequence twice.
+ * A writer lapped by the whole ring while writing may still leave a torn record, readers cannot tell it then.
+ * Use {@link SpanRecordReader} to decode the file.
+ */
+@Slf4j
+public class MappedSpanRecorder extends SpanHandler implements Flushable, Closeable {
+
+    static final int MAGIC = 0x53435352;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 64;
+    static final int RECORD_SIZE = 256;
+
+    static final int MAGIC_OFFSET = 0;
+    static final int VERSION_OFFSET = 4;
+    static final int RECORD_SIZE_OFFSET = 8;
+    static final int CAPACITY_OFFSET = 12;
+
+    static final int SEQUENCE_OFFSET = 0;
+    static final int TRACE_ID_HIGH_OFFSET = 8;
+    static final int TRACE_ID_OFFSET = 16;
+    static final int PARENT_ID_OFFSET = 24;
+    static final int SPAN_ID_OFFSET = 32;
+    static final int START_TIMESTAMP_OFFSET = 40;
+    static final int FINISH_TIMESTAMP_OFFSET = 48;
+    static final int FLAGS_OFFSET = 56;
+    static final int CAUSE_OFFSET = 57;
+    static final int KIND_OFFSET = 58;
+    static final int NAME_LENGTH_OFFSET = 59;
+    static final int EXCHANGE_ID_LENGTH_OFFSET = 60;
+    static final int ERROR_TYPE_LENGTH_OFFSET = 61;
+    static final int NAME_OFFSET = 64;
+    static final int NAME_MAX_LENGTH = 80;
+    static final int EXCHANGE_ID_OFFSET = NAME_OFFSET + NAME_MAX_LENGTH;
+    static final int EXCHANGE_ID_MAX_LENGTH = 56;
+    static final int ERROR_TYPE_OFFSET = EXCHANGE_ID_OFFSET + EXCHANGE_ID_MAX_LENGTH;
+    static final int ERROR_TYPE_MAX_LENGTH = 56;
+
+    static final byte SAMPLED_FLAG = 1;
+    static final byte ERROR_FLAG = 1 << 1;
+    static final byte SHARED_FLAG = 1 << 2;
+
+    private final RandomAccessFile file;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+    private final AtomicLong cursor;
+    private final AtomicLongArray slotSequences;
+
+    public MappedSpanRecorder(Path path, long size) throws IOException {
+        this.capacity = capacityOf(size);
+        long fileSize = HEADER_SIZE + (long) capacity * RECORD_SIZE;
+        this.file = new RandomAccessFile(path.toFile(), "rw");
+        boolean resumable = isCompatible(file, capacity, fileSize);
+        if (!resumable) {
+            file.setLength(0);
+        }
+        file.setLength(fileSize);
+        this.buffer = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, fileSize);
+        this.cursor = new AtomicLong(resumable ? lastSequence() + 1 : 0);
+        this.slotSequences = new AtomicLongArray(capacity);
+        if (!resumable) {
+            writeHeader();
+        }
+        log.info("Recording camel spans into [{}], keeping last {} spans.", path, capacity);
+    }
+
+    @Override
+    public boolean end(TraceContext context, MutableSpan span, Cause cause) {
+        String exchangeId = span.tag(EXCHANGE_ID_TAG_ANNOTATION);
+        if (exchangeId == null) {
+            return true;
+        }
+        long sequence = cursor.getAndIncrement();
+        int slot = (int) (sequence % capacity);
+        int offset = HEADER_SIZE + slot * RECORD_SIZE;
+
+        // the slot stays invalid until the sequence is written back as the last step
+        buffer.putLong(offset + SEQUENCE_OFFSET, 0L);
+        slotSequences.set(slot, 0L);
+        buffer.putLong(offset + TRACE_ID_HIGH_OFFSET, context.traceIdHigh());
+        buffer.putLong(offset + TRACE_ID_OFFSET, context.traceId());
+        buffer.putLong(offset + PARENT_ID_OFFSET, context.parentIdAsLong());
+        buffer.putLong(offset + SPAN_ID_OFFSET, context.spanId());
+        buffer.putLong(offset + START_TIMESTAMP_OFFSET, span.startTimestamp());
+        buffer.putLong(offset + FINISH_TIMESTAMP_OFFSET, span.finishTimestamp());
+        buffer.put(offset + FLAGS_OFFSET, flags(context, span));
+        buffer.put(offset + CAUSE_OFFSET, (byte) cause.ordinal());
+        Span.Kind kind = span.kind();
+        buffer.put(offset + KIND_OFFSET, kind == null ? 0 : (byte) (kind.ordinal() + 1));
+        Throwable error = span.error();
+        buffer.put(offset + NAME_LENGTH_OFFSET, putAscii(offset + NAME_OFFSET, NAME_MAX_LENGTH, span.name(), false));
+        buffer.put(offset + EXCHANGE_ID_LENGTH_OFFSET, putAscii(offset + EXCHANGE_ID_OFFSET, EXCHANGE_ID_MAX_LENGTH, exchangeId, true));
+        buffer.put(offset + ERROR_TYPE_LENGTH_OFFSET, putAscii(offset + ERROR_TYPE_OFFSET, ERROR_TYPE_MAX_LENGTH,
+                error == null ? null : error.getClass().getName(), true));
+        slotSequences.set(slot, sequence + 1);
+        buffer.putLong(offset + SEQUENCE_OFFSET, sequence + 1);
+        return true;
+    }
+
+    @Override
+    public void flush() {
+        buffer.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        file.close();
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    private byte flags(TraceContext context, MutableSpan span) {
+        byte flags = 0;
+        if (Boolean.TRUE.equals(context.sampled())) {
+            flags |= SAMPLED_FLAG;
+        }
+        if (span.error() != null || span.tag("error") != null) {
+            flags |= ERROR_FLAG;
+        }
+        if (context.shared()) {
+            flags |= SHARED_FLAG;
+        }
+        return flags;
+    }
+
+    /**
+     * Writes value as single-byte chars, non-ascii chars are replaced with '?'.
+     * Overlong values keep either their head or their tail, the latter is used for ids which are unique at the end.
+     */
+    private byte putAscii(int offset, int maxLength, String value, boolean keepTail) {
+        if (value == null) {
+            return 0;
+        }
+        int length = Math.min(value.length(), maxLength);
+        int from = keepTail ? value.length() - length : 0;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(from + i);
+            buffer.put(offset + i, c < 128 ? (byte) c : (byte) '?');
+        }
+        return (byte) length;
+    }
+
+    private long lastSequence() {
+        long last = -1;
+        for (int slot = 0; slot < capacity; slot++) {
+            long sequence = buffer.getLong(HEADER_SIZE + slot * RECORD_SIZE + SEQUENCE_OFFSET) - 1;
+            last = Math.max(last, sequence);
+        }
+        return last;
+    }
+
+    private void writeHeader() {
+        buffer.putInt(MAGIC_OFFSET, MAGIC);
+        buffer.putInt(VERSION_OFFSET, VERSION);
+        buffer.putInt(RECORD_SIZE_OFFSET, RECORD_SIZE);
+        buffer.putInt(CAPACITY_OFFSET, capacity);
+    }
+
+    private static boolean isCompatible(RandomAccessFile file, int capacity, long fileSize) throws IOException {
+        if (file.length() != fileSize) {
+            return false;
+        }
+        file.seek(MAGIC_OFFSET);
+        return file.readInt() == MAGIC
+                && file.readInt() == VERSION
+                && file.readInt() == RECORD_SIZE
+                && file.readInt() == capacity;
+    }
+
+    private static int capacityOf(long size) {
+        long capacity = (size - HEADER_SIZE) / RECORD_SIZE;
+        if (capacity < 1 || HEADER_SIZE + capacity * RECORD_SIZE > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Span recorder file size should be between "
+                    + (HEADER_SIZE + RECORD_SIZE) + " bytes and 2GB, but was " + size);
+        }
+        return (int) capacity;
+    }
+}
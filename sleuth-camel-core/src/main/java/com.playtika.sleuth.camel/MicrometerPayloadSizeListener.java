@@ -0,0 +1,83 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Playtika
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.playtika.sleuth.camel;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Records binary body sizes as {@code camel.exchange.body.size} distribution summaries in bytes, and lengths of
+ * {@link CharSequence} bodies and of headers as {@code camel.exchange.body.chars} and {@code camel.exchange.headers.chars}
+ * in chars, all tagged with route id and direction. Unknown body sizes are not recorded.
+ */
+@RequiredArgsConstructor
+public class MicrometerPayloadSizeListener implements PayloadSizeListener {
+
+    static final String BODY_METRIC_NAME = "camel.exchange.body.size";
+    static final String BODY_CHARS_METRIC_NAME = "camel.exchange.body.chars";
+    static final String HEADERS_CHARS_METRIC_NAME = "camel.exchange.headers.chars";
+
+    private static final String BYTES = "bytes";
+    private static final String CHARS = "chars";
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, DistributionSummary[]> summaries = new ConcurrentHashMap<>();
+
+    @Override
+    public void onPayloadSize(String routeId, boolean in, long bodySize, long bodyChars, long headersChars) {
+        DistributionSummary[] routeSummaries = summaries.computeIfAbsent(routeId, this::routeSummaries);
+        int offset = in ? 0 : 3;
+        if (bodySize != PayloadSizes.UNKNOWN) {
+            routeSummaries[offset].record(bodySize);
+        }
+        if (bodyChars != PayloadSizes.UNKNOWN) {
+            routeSummaries[offset + 1].record(bodyChars);
+        }
+        routeSummaries[offset + 2].record(headersChars);
+    }
+
+    private DistributionSummary[] routeSummaries(String routeId) {
+        return new DistributionSummary[]{
+                summary(BODY_METRIC_NAME, BYTES, routeId, "in"),
+                summary(BODY_CHARS_METRIC_NAME, CHARS, routeId, "in"),
+                summary(HEADERS_CHARS_METRIC_NAME, CHARS, routeId, "in"),
+                summary(BODY_METRIC_NAME, BYTES, routeId, "out"),
+                summary(BODY_CHARS_METRIC_NAME, CHARS, routeId, "out"),
+                summary(HEADERS_CHARS_METRIC_NAME, CHARS, routeId, "out")};
+    }
+
+    private DistributionSummary summary(String name, String unit, String routeId, String direction) {
+        return DistributionSummary.builder(name)
+                .description("Size of camel exchange messages, in " + unit)
+                .baseUnit(unit)
+                .tag("route", routeId)
+                .tag("direction", direction)
+                .register(meterRegistry);
+    }
+}
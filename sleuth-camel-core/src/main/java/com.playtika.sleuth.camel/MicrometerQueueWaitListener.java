@@ -0,0 +1,79 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Playtika
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.playtika.sleuth.camel;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.camel.Endpoint;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records queue wait as {@code camel.queue.wait} timer tagged with the queue endpoint uri, options left out.
+ * <p>
+ * Queues resolved dynamically, like {@code toD("seda:${header.tenant}")}, may have no end of names,
+ * so only the first {@code maxQueues} queues get a timer of their own, the rest share the {@code other} one.
+ */
+public class MicrometerQueueWaitListener implements QueueWaitListener {
+
+    static final String METRIC_NAME = "camel.queue.wait";
+    static final String OTHER_QUEUES_TAG = "other";
+    static final int DEFAULT_MAX_QUEUES = 100;
+
+    private final MeterRegistry meterRegistry;
+    private final int maxQueues;
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    public MicrometerQueueWaitListener(MeterRegistry meterRegistry) {
+        this(meterRegistry, DEFAULT_MAX_QUEUES);
+    }
+
+    public MicrometerQueueWaitListener(MeterRegistry meterRegistry, int maxQueues) {
+        this.meterRegistry = meterRegistry;
+        this.maxQueues = maxQueues;
+    }
+
+    @Override
+    public void onQueueWait(Endpoint endpoint, long waitNanos) {
+        String queue = endpoint.getEndpointBaseUri();
+        Timer timer = timers.get(queue);
+        if (timer == null) {
+            // the limit is checked loosely, concurrent first waits of distinct queues may exceed it by a few
+            timer = timers.size() < maxQueues
+                    ? timers.computeIfAbsent(queue, this::timer)
+                    : timers.computeIfAbsent(OTHER_QUEUES_TAG, this::timer);
+        }
+        timer.record(waitNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private Timer timer(String queue) {
+        return Timer.builder(METRIC_NAME)
+                .description("Time exchanges waited in camel queue endpoints before being consumed")
+                .tag("queue", queue)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Playtika
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.playtika.sleuth.camel;
+
+import brave.Span;
+import org.apache.camel.Exchange;
+import org.apache.camel.Message;
+import org.apache.camel.StreamCache;
+import org.apache.camel.support.DefaultMessage;
+import org.apache.camel.support.MessageSupport;
+import org.springframework.lang.Nullable;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+
+/**
+ * Measures bodies and headers of messages exchanges came in with and went out with, and tags sampled spans with them.
+ * <p>
+ * Only sizes known up front are taken: binary bodies, {@code byte[]}, {@link ByteBuffer} and {@link StreamCache},
+ * are measured in bytes, {@link CharSequence} bodies in chars, under tags of their own, as chars are not bytes
+ * until encoded. Bodies of other types are never converted, their size is unknown and not tagged.
+ * Bodies of messages creating them lazily, overriding {@code createBody}, like JMS or file messages, are not taken
+ * at all, so that measuring never reads them from the underlying transport.
+ * Headers are measured in chars, summing lengths of header names and of {@link CharSequence} values.
+ */
+public class PayloadSizes {
+
+    static final String IN_BODY_SIZE_TAG = "camel-in-body-size";
+    static final String IN_BODY_CHARS_TAG = "camel-in-body-chars";
+    static final String IN_HEADERS_CHARS_TAG = "camel-in-headers-chars";
+    static final String OUT_BODY_SIZE_TAG = "camel-out-body-size";
+    static final String OUT_BODY_CHARS_TAG = "camel-out-body-chars";
+    static final String OUT_HEADERS_CHARS_TAG = "camel-out-headers-chars";
+
+    public static final long UNKNOWN = -1;
+
+    private static final ClassValue<Boolean> CREATES_BODY_LAZILY = new ClassValue<Boolean>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+            for (Class<?> current = type; current != DefaultMessage.class && current != MessageSupport.class && current != null;
+                 current = current.getSuperclass()) {
+                try {
+                    current.getDeclaredMethod("createBody");
+                    return true;
+                } catch (NoSuchMethodException e) {
+                    // not overridden at this level
+                }
+            }
+            return false;
+        }
+    };
+
+    @Nullable
+    private final PayloadSizeListener listener;
+
+    public PayloadSizes(@Nullable PayloadSizeListener listener) {
+        this.listener = listener;
+    }
+
+    void recordIn(Exchange exchange, Span span) {
+        record(exchange, exchange.getIn(), span, true);
+    }
+
+    void recordOut(Exchange exchange, Span span) {
+        record(exchange, exchange.getMessage(), span, false);
+    }
+
+    private void record(Exchange exchange, Message message, Span span, boolean in) {
+        boolean sampled = !span.isNoop() && Boolean.TRUE.equals(span.context().sampled());
+        if (!sampled && listener == null) {
+            return;
+        }
+        boolean lazyBody = createsBodyLazily(message);
+        Object body = lazyBody ? null : message.getBody();
+        long bodySize = lazyBody ? UNKNOWN : sizeOf(body);
+        long bodyChars = charsOf(body);
+        long headersChars = headersChars(message.getHeaders());
+        if (sampled) {
+            if (bodySize != UNKNOWN) {
+                span.tag(in ? IN_BODY_SIZE_TAG : OUT_BODY_SIZE_TAG, Long.toString(bodySize));
+            }
+            if (bodyChars != UNKNOWN) {
+                span.tag(in ? IN_BODY_CHARS_TAG : OUT_BODY_CHARS_TAG, Long.toString(bodyChars));
+            }
+            span.tag(in ? IN_HEADERS_CHARS_TAG : OUT_HEADERS_CHARS_TAG, Long.toString(headersChars));
+        }
+        if (listener != null && exchange.getFromRouteId() != null) {
+            listener.onPayloadSize(exchange.getFromRouteId(), in, bodySize, bodyChars, headersChars);
+        }
+    }
+
+    static boolean createsBodyLazily(Message message) {
+        return CREATES_BODY_LAZILY.get(message.getClass());
+    }
+
+    static long sizeOf(@Nullable Object value) {
+        if (value instanceof byte[]) {
+            return ((byte[]) value).length;
+        }
+        if (value instanceof ByteBuffer) {
+            return ((ByteBuffer) value).remaining();
+        }
+        if (value instanceof StreamCache) {
+            return ((StreamCache) value).length();
+        }
+        return value == null ? 0 : UNKNOWN;
+    }
+
+    static long charsOf(@Nullable Object value) {
+        return value instanceof CharSequence ? ((CharSequence) value).length() : UNKNOWN;
+    }
+
+    static long headersChars(Map<String, Object> headers) {
+        long chars = 0;
+        for (Map.Entry<String, Object> header : headers.entrySet()) {
+            chars += header.getKey().length();
+            if (header.getValue() instanceof CharSequence) {
+                chars += ((CharSequence) header.getValue()).length();
+            }
+        }
+        return chars;
+    }
+}
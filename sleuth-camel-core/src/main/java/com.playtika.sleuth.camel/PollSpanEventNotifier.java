@@ -0,0 +1,82 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Playtika
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.playtika.sleuth.camel;
+
+import brave.Tracer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.camel.Consumer;
+import org.apache.camel.Route;
+import org.apache.camel.spi.CamelEvent;
+import org.apache.camel.support.EventNotifierSupport;
+import org.apache.camel.support.ScheduledPollConsumer;
+import org.springframework.cloud.sleuth.internal.SpanNameUtil;
+
+/**
+ * Wraps poll strategy of every started route consumed by a scheduled polling consumer, like file, ftp or sql ones,
+ * with {@link PollSpanPollStrategy}. Exchanges of the same poll then share a parent span instead of being separate traces.
+ */
+@Slf4j
+public class PollSpanEventNotifier extends EventNotifierSupport implements TracingEventNotifier {
+
+    static final String POLL_SPAN_NAME_PREFIX = "camel-poll::";
+
+    private final Tracer tracer;
+    private final CamelTracingToggles toggles;
+
+    public PollSpanEventNotifier(Tracer tracer, CamelTracingToggles toggles) {
+        this.tracer = tracer;
+        this.toggles = toggles;
+        setIgnoreCamelContextEvents(true);
+        setIgnoreServiceEvents(true);
+        setIgnoreExchangeEvents(true);
+        setIgnoreStepEvents(true);
+    }
+
+    @Override
+    public void notify(CamelEvent event) {
+        Route route = ((CamelEvent.RouteStartedEvent) event).getRoute();
+        Consumer consumer = route.getConsumer();
+        if (!(consumer instanceof ScheduledPollConsumer)) {
+            return;
+        }
+        ScheduledPollConsumer pollConsumer = (ScheduledPollConsumer) consumer;
+        if (pollConsumer.getPollStrategy() instanceof PollSpanPollStrategy) {
+            return;
+        }
+        // toggles are checked per poll, routes disabled once started may be enabled later
+        CamelContextTracing contextTracing = CamelContextTracing.of(route.getCamelContext());
+        RouteTracingToggles routeToggles = contextTracing != null ? contextTracing.getRouteToggles() : null;
+        int routeIndex = routeToggles != null ? routeToggles.routeIndex(route.getRouteId()) : -1;
+        String spanName = SpanNameUtil.shorten(POLL_SPAN_NAME_PREFIX + route.getEndpoint().getEndpointKey());
+        pollConsumer.setPollStrategy(new PollSpanPollStrategy(pollConsumer.getPollStrategy(), tracer, spanName,
+                toggles, routeToggles, routeIndex));
+        log.debug("Tracing poll cycles of route [{}].", route.getRouteId());
+    }
+
+    @Override
+    public boolean isEnabled(CamelEvent event) {
+        return event instanceof CamelEvent.RouteStartedEvent;
+    }
+}
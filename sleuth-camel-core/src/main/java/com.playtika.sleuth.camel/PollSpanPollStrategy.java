@@ -0,0 +1,133 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Playtika
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.playtika.sleuth.camel;
+
+import brave.Span;
+import brave.Tags;
+import brave.Tracer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.camel.Consumer;
+import org.apache.camel.Endpoint;
+import org.apache.camel.spi.PollingConsumerPollStrategy;
+import org.springframework.lang.Nullable;
+
+/**
+ * Starts a span per poll cycle of a scheduled polling consumer and keeps it in scope while the batch is processed,
+ * so spans of the polled exchanges become its children and are sampled along with it.
+ * <p>
+ * Polls of a consumer never overlap and {@code begin} and {@code commit} run on the same thread,
+ * hence the span of the current poll is kept in plain fields. Empty polls are abandoned, not reported.
+ * <p>
+ * Tracing toggles are checked on every poll, so polls of routes toggled after they started are traced accordingly.
+ */
+@Slf4j
+class PollSpanPollStrategy implements PollingConsumerPollStrategy {
+
+    static final String POLL_BATCH_SIZE_TAG = "camel-poll-batch-size";
+
+    private final PollingConsumerPollStrategy delegate;
+    private final Tracer tracer;
+    private final String spanName;
+    private final CamelTracingToggles toggles;
+    @Nullable
+    private final RouteTracingToggles routeToggles;
+    private final int routeIndex;
+
+    private Span span;
+    private Tracer.SpanInScope scope;
+
+    PollSpanPollStrategy(PollingConsumerPollStrategy delegate, Tracer tracer, String spanName, CamelTracingToggles toggles,
+                         @Nullable RouteTracingToggles routeToggles, int routeIndex) {
+        this.delegate = delegate;
+        this.tracer = tracer;
+        this.spanName = spanName;
+        this.toggles = toggles;
+        this.routeToggles = routeToggles;
+        this.routeIndex = routeIndex;
+    }
+
+    @Override
+    public boolean begin(Consumer consumer, Endpoint endpoint) {
+        boolean begin = delegate.begin(consumer, endpoint);
+        if (begin && isTracingEnabled()) {
+            span = tracer.nextSpan().name(spanName).start();
+            boolean camelSpanScope = CamelThreadScopeDecorator.beginCamelSpanScope();
+            try {
+                scope = tracer.withSpanInScope(span);
+            } finally {
+                CamelThreadScopeDecorator.endCamelSpanScope(camelSpanScope);
+            }
+        }
+        return begin;
+    }
+
+    @Override
+    public void commit(Consumer consumer, Endpoint endpoint, int polledMessages) {
+        try {
+            delegate.commit(consumer, endpoint, polledMessages);
+        } finally {
+            Span pollSpan = end();
+            if (pollSpan != null) {
+                if (polledMessages > 0) {
+                    pollSpan.tag(POLL_BATCH_SIZE_TAG, Integer.toString(polledMessages));
+                    pollSpan.finish();
+                } else {
+                    pollSpan.abandon();
+                }
+            }
+        }
+    }
+
+    @Override
+    public boolean rollback(Consumer consumer, Endpoint endpoint, int retryCounter, Exception cause) throws Exception {
+        Span pollSpan = end();
+        if (pollSpan != null) {
+            Tags.ERROR.tag(cause, pollSpan);
+            pollSpan.finish();
+        }
+        return delegate.rollback(consumer, endpoint, retryCounter, cause);
+    }
+
+    PollingConsumerPollStrategy getDelegate() {
+        return delegate;
+    }
+
+    private boolean isTracingEnabled() {
+        return toggles.isEnabled() && (routeToggles == null || routeToggles.isTracingEnabled(routeIndex));
+    }
+
+    private Span end() {
+        Span pollSpan = span;
+        if (scope != null) {
+            scope.close();
+        }
+        span = null;
+        scope = null;
+        if (pollSpan != null) {
+            log.debug("Poll span {} ended.", pollSpan);
+        }
+        return pollSpan;
+    }
+}
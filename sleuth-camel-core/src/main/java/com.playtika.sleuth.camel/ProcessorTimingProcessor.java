@@ -0,0 +1,97 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Playtika
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.playtika.sleuth.camel;
+
+import org.apache.camel.AsyncCallback;
+import org.apache.camel.Exchange;
+import org.apache.camel.Processor;
+import org.apache.camel.support.processor.DelegateAsyncProcessor;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.playtika.sleuth.camel.SleuthCamelConstants.EXCHANGE_IS_TRACED_BY_BRAVE;
+import static com.playtika.sleuth.camel.SleuthCamelConstants.EXCHANGE_PROCESSOR_TIMINGS;
+
+/**
+ * Records time a traced exchange spent in the processor, once the exchange is in flight for longer than the threshold.
+ * Until then nothing is allocated: synchronous processors are timed on return and only recorded if they left
+ * the exchange slow, async continuations are timed with a callback only for exchanges slow already.
+ * {@link SentEventNotifier} tags the span with the timings.
+ */
+class ProcessorTimingProcessor extends DelegateAsyncProcessor {
+
+    private final String processorId;
+    private final long thresholdNanos;
+    private final long thresholdMillis;
+
+    ProcessorTimingProcessor(Processor processor, String processorId, long thresholdNanos) {
+        super(processor);
+        this.processorId = processorId;
+        this.thresholdNanos = thresholdNanos;
+        this.thresholdMillis = TimeUnit.NANOSECONDS.toMillis(thresholdNanos);
+    }
+
+    @Override
+    public boolean process(Exchange exchange, AsyncCallback callback) {
+        if (!Boolean.TRUE.equals(exchange.getProperty(EXCHANGE_IS_TRACED_BY_BRAVE))) {
+            return processor.process(exchange, callback);
+        }
+        long start = System.nanoTime();
+        if (isSlow(exchange)) {
+            ProcessorTimings timings = timings(exchange);
+            return processor.process(exchange, doneSync -> {
+                timings.record(processorId, System.nanoTime() - start);
+                callback.done(doneSync);
+            });
+        }
+        boolean sync = processor.process(exchange, callback);
+        if (sync && isSlow(exchange)) {
+            timings(exchange).record(processorId, System.nanoTime() - start);
+        }
+        return sync;
+    }
+
+    /**
+     * Exchange creation time is kept in milliseconds, so is the precision of the check.
+     */
+    private boolean isSlow(Exchange exchange) {
+        return System.currentTimeMillis() - exchange.getCreated() >= thresholdMillis;
+    }
+
+    private ProcessorTimings timings(Exchange exchange) {
+        Object timings = exchange.getProperty(EXCHANGE_PROCESSOR_TIMINGS);
+        if (timings instanceof ProcessorTimings && ((ProcessorTimings) timings).isOf(exchange.getExchangeId())) {
+            return (ProcessorTimings) timings;
+        }
+        ProcessorTimings exchangeTimings = new ProcessorTimings(exchange.getExchangeId(), thresholdNanos);
+        exchange.setProperty(EXCHANGE_PROCESSOR_TIMINGS, exchangeTimings);
+        return exchangeTimings;
+    }
+
+    @Override
+    public String toString() {
+        return "ProcessorTiming[" + processorId + ", " + processor + "]";
+    }
+}
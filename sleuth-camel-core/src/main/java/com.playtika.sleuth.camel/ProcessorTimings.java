@@ -0,0 +1,96 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Playtika
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.playtika.sleuth.camel;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time spent in processors of a single slow exchange, kept in fixed-size arrays carried as exchange property.
+ * Created once the exchange is in flight for longer than the threshold, processors completed before are not listed.
+ * Repeated processors, like ones in a loop, add up into the same slot, processors beyond the capacity are only counted.
+ * Only leaf processors are timed, though the time of one sending to a direct endpoint includes the route behind it.
+ */
+final class ProcessorTimings {
+
+    static final String PROCESSOR_TIMINGS_TAG = "camel-processor-timings";
+    static final int CAPACITY = 16;
+
+    private final String exchangeId;
+    private final long thresholdNanos;
+    private final String[] processorIds = new String[CAPACITY];
+    private final long[] elapsedNanos = new long[CAPACITY];
+    private int size;
+    private int overflow;
+
+    ProcessorTimings(String exchangeId, long thresholdNanos) {
+        this.exchangeId = exchangeId;
+        this.thresholdNanos = thresholdNanos;
+    }
+
+    /**
+     * Exchange copies, like seda or wire tap ones, share properties with the original until given own timings.
+     */
+    boolean isOf(String exchangeId) {
+        return this.exchangeId.equals(exchangeId);
+    }
+
+    boolean isSlow(long durationNanos) {
+        return durationNanos > thresholdNanos;
+    }
+
+    void record(String processorId, long nanos) {
+        for (int i = 0; i < size; i++) {
+            // processor ids are the very strings of route definitions
+            if (processorIds[i] == processorId) {
+                elapsedNanos[i] += nanos;
+                return;
+            }
+        }
+        if (size == CAPACITY) {
+            overflow++;
+            return;
+        }
+        processorIds[size] = processorId;
+        elapsedNanos[size] = nanos;
+        size++;
+    }
+
+    /**
+     * Formats timings in microseconds, in order processors first completed in: {@code to1=1530,process2=12,log3=0}.
+     */
+    String format() {
+        StringBuilder result = new StringBuilder(size * 16);
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                result.append(',');
+            }
+            result.append(processorIds[i]).append('=').append(TimeUnit.NANOSECONDS.toMicros(elapsedNanos[i]));
+        }
+        if (overflow > 0) {
+            result.append(",+").append(overflow);
+        }
+        return result.toString();
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Playtika
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.playtika.sleuth.camel;
+
+import org.apache.camel.Endpoint;
+import org.apache.camel.Exchange;
+import org.apache.camel.spi.CamelEvent;
+import org.apache.camel.support.EventNotifierSupport;
+
+import static com.playtika.sleuth.camel.SleuthCamelConstants.EXCHANGE_ENQUEUED_NANOS;
+
+/**
+ * Stamps exchanges sent to seda, vm and disruptor endpoints with the time they were enqueued at.
+ * The stamp is copied along with the exchange into the queue, {@link CreatedEventNotifier} turns it
+ * into queue wait of the consumer span. It is removed from the sent exchange once the send completes,
+ * so that copies the route makes later, by wire taps or splits, do not report queue wait.
+ */
+public class QueueEnqueueEventNotifier extends EventNotifierSupport implements TracingEventNotifier {
+
+    public QueueEnqueueEventNotifier() {
+        setIgnoreCamelContextEvents(true);
+        setIgnoreRouteEvents(true);
+        setIgnoreServiceEvents(true);
+        setIgnoreStepEvents(true);
+        setIgnoreExchangeCreatedEvent(true);
+        setIgnoreExchangeCompletedEvent(true);
+        setIgnoreExchangeFailedEvents(true);
+        setIgnoreExchangeRedeliveryEvents(true);
+    }
+
+    @Override
+    public void notify(CamelEvent event) {
+        if (event instanceof CamelEvent.ExchangeSendingEvent) {
+            CamelEvent.ExchangeSendingEvent sendingEvent = (CamelEvent.ExchangeSendingEvent) event;
+            Exchange exchange = sendingEvent.getExchange();
+            if (isQueue(exchange, sendingEvent.getEndpoint())) {
+                exchange.setProperty(EXCHANGE_ENQUEUED_NANOS, System.nanoTime());
+            }
+        } else {
+            CamelEvent.ExchangeSentEvent sentEvent = (CamelEvent.ExchangeSentEvent) event;
+            Exchange exchange = sentEvent.getExchange();
+            if (isQueue(exchange, sentEvent.getEndpoint())) {
+                exchange.removeProperty(EXCHANGE_ENQUEUED_NANOS);
+            }
+        }
+    }
+
+    @Override
+    public boolean isEnabled(CamelEvent event) {
+        return event instanceof CamelEvent.ExchangeSendingEvent || event instanceof CamelEvent.ExchangeSentEvent;
+    }
+
+    private static boolean isQueue(Exchange exchange, Endpoint endpoint) {
+        CamelContextTracing contextTracing = CamelContextTracing.of(exchange.getContext());
+        return contextTracing != null ? contextTracing.endpoint(endpoint).isQueue() : TracedEndpoint.isQueue(endpoint);
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Playtika
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.playtika.sleuth.camel;
+
+import org.apache.camel.AsyncCallback;
+import org.apache.camel.Exchange;
+import org.apache.camel.Processor;
+import org.apache.camel.support.processor.DelegateAsyncProcessor;
+
+import static com.playtika.sleuth.camel.SleuthCamelConstants.EXCHANGE_REDELIVERY_NANOS;
+import static com.playtika.sleuth.camel.SleuthCamelConstants.EXCHANGE_REDELIVERY_START_NANOS;
+
+/**
+ * Stops the redelivery clock started by {@link RedeliveryEventNotifier} once a redelivery attempt succeeds,
+ * so time spent by processors after the redelivered one is not counted in. Time of every redelivered processor
+ * of the exchange adds up. Callbacks are wrapped only while the clock runs, which is never for most exchanges.
+ */
+class RedeliveryClockProcessor extends DelegateAsyncProcessor {
+
+    RedeliveryClockProcessor(Processor processor) {
+        super(processor);
+    }
+
+    @Override
+    public boolean process(Exchange exchange, AsyncCallback callback) {
+        if (exchange.getProperty(EXCHANGE_REDELIVERY_START_NANOS) == null) {
+            return processor.process(exchange, callback);
+        }
+        return processor.process(exchange, doneSync -> {
+            if (exchange.getException() == null) {
+                stop(exchange);
+            }
+            callback.done(doneSync);
+        });
+    }
+
+    private static void stop(Exchange exchange) {
+        Object startNanos = exchange.removeProperty(EXCHANGE_REDELIVERY_START_NANOS);
+        if (startNanos instanceof Long) {
+            long spentNanos = Math.max(0, System.nanoTime() - (Long) startNanos);
+            Long previousNanos = exchange.getProperty(EXCHANGE_REDELIVERY_NANOS, Long.class);
+            exchange.setProperty(EXCHANGE_REDELIVERY_NANOS, previousNanos != null ? previousNanos + spentNanos : spentNanos);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "RedeliveryClock[" + processor + "]";
+    }
+}
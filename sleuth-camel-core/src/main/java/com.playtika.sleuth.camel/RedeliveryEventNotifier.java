@@ -0,0 +1,112 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Playtika
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.playtika.sleuth.camel;
+
+import brave.Span;
+import com.playtika.sleuth.camel.InFlightSpans.InFlightSpan;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.camel.CamelContext;
+import org.apache.camel.Exchange;
+import org.apache.camel.ExtendedCamelContext;
+import org.apache.camel.spi.CamelEvent;
+import org.apache.camel.support.EventNotifierSupport;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.playtika.sleuth.camel.SleuthCamelConstants.EXCHANGE_REDELIVERY_START_NANOS;
+
+/**
+ * Annotates camel span with every redelivery attempt of its exchange, instead of starting a span per attempt.
+ * {@link SentEventNotifier} tags the span with number of attempts and total time spent in redeliveries,
+ * from the first failure till a redelivery attempt succeeds. Contexts instrumented with this notifier
+ * get route processors stopping the clock, see {@link RedeliveryClockProcessor}.
+ */
+@Slf4j
+public class RedeliveryEventNotifier extends EventNotifierSupport implements TracingEventNotifier {
+
+    static final String EXCHANGE_EVENT_REDELIVERY_ANNOTATION = "camel-exchange-event-redelivery";
+    static final String REDELIVERY_ATTEMPTS_TAG = "camel-redelivery-attempts";
+    static final String REDELIVERY_TIME_TAG = "camel-redelivery-time-micros";
+
+    private final InFlightSpans inFlightSpans;
+
+    public RedeliveryEventNotifier(InFlightSpans inFlightSpans) {
+        this.inFlightSpans = inFlightSpans;
+        setIgnoreCamelContextEvents(true);
+        setIgnoreRouteEvents(true);
+        setIgnoreServiceEvents(true);
+        setIgnoreStepEvents(true);
+        setIgnoreExchangeCreatedEvent(true);
+        setIgnoreExchangeSendingEvents(true);
+        setIgnoreExchangeSentEvents(true);
+        setIgnoreExchangeCompletedEvent(true);
+        setIgnoreExchangeFailedEvents(true);
+    }
+
+    @Override
+    public void notify(CamelEvent event) {
+        CamelEvent.ExchangeRedeliveryEvent redeliveryEvent = (CamelEvent.ExchangeRedeliveryEvent) event;
+        Exchange exchange = redeliveryEvent.getExchange();
+        InFlightSpan inFlightSpan = inFlightSpans.get(exchange.getExchangeId());
+        if (inFlightSpan == null) {
+            return;
+        }
+        long delayMillis = exchange.getIn().getHeader(Exchange.REDELIVERY_DELAY, 0L, Long.class);
+        if (exchange.getProperty(EXCHANGE_REDELIVERY_START_NANOS) == null) {
+            // the event is fired once the first delay is over, so the redeliveries started that much earlier
+            exchange.setProperty(EXCHANGE_REDELIVERY_START_NANOS, System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(delayMillis));
+        }
+        Span span = inFlightSpan.getSpan();
+        if (span.isNoop()) {
+            return;
+        }
+        span.annotate(EXCHANGE_EVENT_REDELIVERY_ANNOTATION
+                + " attempt=" + redeliveryEvent.getAttempt()
+                + " delay=" + delayMillis + "ms"
+                + " exception=" + exceptionType(exchange));
+        log.debug("Annotated span {} with redelivery attempt {}.", span, redeliveryEvent.getAttempt());
+    }
+
+    /**
+     * Successful redelivery attempts stop the clock the notifier starts.
+     */
+    @Override
+    public void instrument(CamelContext camelContext) {
+        camelContext.adapt(ExtendedCamelContext.class).addInterceptStrategy(new RedeliveryClockInterceptStrategy());
+    }
+
+    @Override
+    public boolean isEnabled(CamelEvent event) {
+        return event instanceof CamelEvent.ExchangeRedeliveryEvent;
+    }
+
+    private static String exceptionType(Exchange exchange) {
+        Throwable exception = exchange.getException();
+        if (exception == null) {
+            exception = exchange.getProperty(Exchange.EXCEPTION_CAUGHT, Throwable.class);
+        }
+        return exception == null ? "unknown" : exception.getClass().getName();
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Playtika
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.playtika.sleuth.camel;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per route id tracing switches of a single camel context.
+ * <p>
+ * Routes get an index into a flag array once prepared or first toggled. The array is replaced as a whole on every change,
+ * so readers only pay a volatile read, and nothing beyond it while no route has ever been toggled.
+ * Route indexes resolved ahead, see {@link CamelContextTracing#prepare}, spare readers the route id lookup as well.
+ */
+@Slf4j
+public class RouteTracingToggles {
+
+    private final String contextName;
+    private final Map<String, Integer> routeIndexes = new ConcurrentHashMap<>();
+    private volatile boolean[] disabledRoutes = new boolean[0];
+
+    public RouteTracingToggles(String contextName) {
+        this.contextName = contextName;
+    }
+
+    public boolean isTracingEnabled(String routeId) {
+        boolean[] disabled = disabledRoutes;
+        if (disabled.length == 0 || routeId == null) {
+            return true;
+        }
+        Integer index = routeIndexes.get(routeId);
+        return index == null || index >= disabled.length || !disabled[index];
+    }
+
+    public boolean isTracingEnabled(int routeIndex) {
+        boolean[] disabled = disabledRoutes;
+        return routeIndex >= disabled.length || !disabled[routeIndex];
+    }
+
+    public synchronized int routeIndex(String routeId) {
+        Integer index = routeIndexes.get(routeId);
+        if (index == null) {
+            index = routeIndexes.size();
+            routeIndexes.put(routeId, index);
+        }
+        return index;
+    }
+
+    public Set<String> getDisabledRoutes() {
+        boolean[] disabled = disabledRoutes;
+        Set<String> routes = new TreeSet<>();
+        routeIndexes.forEach((routeId, index) -> {
+            if (index < disabled.length && disabled[index]) {
+                routes.add(routeId);
+            }
+        });
+        return routes;
+    }
+
+    public synchronized void setRouteEnabled(String routeId, boolean enabled) {
+        int index = routeIndex(routeId);
+        boolean[] disabled = Arrays.copyOf(disabledRoutes, Math.max(disabledRoutes.length, index + 1));
+        disabled[index] = !enabled;
+        disabledRoutes = disabled;
+        log.info("Camel tracing of route [{}] in context [{}] is {}.", routeId, contextName, enabled ? "enabled" : "disabled");
+    }
+}
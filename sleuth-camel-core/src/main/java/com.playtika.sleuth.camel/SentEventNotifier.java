@@ -28,26 +28,62 @@ import brave.Span;
 import brave.Tags;
 import brave.Tracer;
 import brave.propagation.ThreadLocalSpan;
-import lombok.AllArgsConstructor;
+import com.playtika.sleuth.camel.InFlightSpans.InFlightSpan;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.camel.Exchange;
 import org.apache.camel.impl.event.AbstractExchangeEvent;
 import org.apache.camel.impl.event.ExchangeSentEvent;
 import org.apache.camel.spi.CamelEvent;
 import org.apache.camel.support.EventNotifierSupport;
+import org.springframework.lang.Nullable;
 
 import java.util.Objects;
+import java.util.concurrent.TimeUnit;
 
+import static com.playtika.sleuth.camel.RedeliveryEventNotifier.REDELIVERY_ATTEMPTS_TAG;
+import static com.playtika.sleuth.camel.RedeliveryEventNotifier.REDELIVERY_TIME_TAG;
 import static com.playtika.sleuth.camel.SleuthCamelConstants.EXCHANGE_IS_TRACED_BY_BRAVE;
+import static com.playtika.sleuth.camel.SleuthCamelConstants.EXCHANGE_PROCESSOR_TIMINGS;
+import static com.playtika.sleuth.camel.SleuthCamelConstants.EXCHANGE_REDELIVERY_NANOS;
+import static com.playtika.sleuth.camel.SleuthCamelConstants.EXCHANGE_REDELIVERY_START_NANOS;
 
+/**
+ * Finishes camel span once its exchange is done, within the same allocation budget as {@link CreatedEventNotifier}.
+ */
 @Slf4j
-@AllArgsConstructor
-public class SentEventNotifier extends EventNotifierSupport {
+public class SentEventNotifier extends EventNotifierSupport implements TracingEventNotifier {
 
     public static final String EXCHANGE_EVENT_SENT_ANNOTATION = "camel-exchange-event-sent";
 
     private final Tracer tracer;
     private final ThreadLocalSpan threadLocalSpan;
+    private final InFlightSpans inFlightSpans;
+    private final ExchangeBoundSpans exchangeBoundSpans;
+    private final PayloadSizes payloadSizes;
+
+    public SentEventNotifier(Tracer tracer, ThreadLocalSpan threadLocalSpan) {
+        this(tracer, threadLocalSpan, new InFlightSpans());
+    }
+
+    public SentEventNotifier(Tracer tracer, ThreadLocalSpan threadLocalSpan, InFlightSpans inFlightSpans) {
+        this(tracer, threadLocalSpan, inFlightSpans, null);
+    }
+
+    public SentEventNotifier(Tracer tracer, ThreadLocalSpan threadLocalSpan, InFlightSpans inFlightSpans,
+                             @Nullable PayloadSizes payloadSizes) {
+        this.payloadSizes = payloadSizes;
+        this.tracer = tracer;
+        this.threadLocalSpan = threadLocalSpan;
+        this.inFlightSpans = inFlightSpans;
+        this.exchangeBoundSpans = new ExchangeBoundSpans(tracer);
+        setIgnoreCamelContextEvents(true);
+        setIgnoreRouteEvents(true);
+        setIgnoreServiceEvents(true);
+        setIgnoreStepEvents(true);
+        setIgnoreExchangeCreatedEvent(true);
+        setIgnoreExchangeSendingEvents(true);
+        setIgnoreExchangeRedeliveryEvents(true);
+    }
 
     @Override
     public void notify(CamelEvent event) {
@@ -55,36 +91,125 @@ public class SentEventNotifier extends EventNotifierSupport {
             return;
         }
 
-        log.trace("Caught an event [{} - {}] - processing...", event.getClass().getSimpleName(), event);
+        if (log.isTraceEnabled()) {
+            log.trace("Caught an event [{} - {}] - processing...", event.getClass().getSimpleName(), event);
+        }
+        Exchange exchange = ((AbstractExchangeEvent) event).getExchange();
+        if (ExchangeBoundSpans.isBound(exchange)) {
+            // exchange bound span does not depend on the thread exchange completes on
+            Span spanToFinish = isFromSourceEndpoint(event) ? exchangeBoundSpans.remove(exchange) : null;
+            if (spanToFinish != null) {
+                finish(event, exchange, spanToFinish);
+            }
+            return;
+        }
+
         Span currentSpan = tracer.currentSpan();
         if (currentSpan == null) {
+            release(event, inFlightSpans.get(exchange.getExchangeId()));
             log.debug("Skipping event [{}] since it's not tracing...", event);
             return;
         }
 
-        Exchange exchange = ((AbstractExchangeEvent) event).getExchange();
         if (!isCamelSpan(exchange)) {
             log.debug("Skipping span {}, since it's not camel one.", currentSpan);
             return;
         }
 
         if (!isFromSourceEndpoint(event)) {
-            log.debug("Skipping span {}, since exchange came not from its source route. Event - [{}].", currentSpan, event);
+            if (log.isDebugEnabled()) {
+                log.debug("Skipping span {}, since exchange came not from its source route. Event - [{}].", currentSpan, event);
+            }
+            return;
+        }
+
+        InFlightSpan inFlightSpan = inFlightSpans.get(exchange.getExchangeId());
+        if (inFlightSpan != null && inFlightSpan.getThread() != Thread.currentThread()) {
+            // the span is in scope of the thread which created it, it is finished once the exchange is sent there
+            release(event, inFlightSpan);
+            log.debug("Skipping span {}, since exchange completed on another thread than it was created on.", currentSpan);
             return;
         }
 
+        finish(event, exchange, threadLocalSpan.remove());
+    }
+
+    /**
+     * Exchange completed or failed on a thread which cannot finish its span, like a {@code threads()} pool thread
+     * or an async producer callback, is marked completed. The entry stays in {@link InFlightSpans} till the creating
+     * thread finishes the span, so that shutdown can still flush it and processor timings can still be tagged.
+     */
+    private void release(CamelEvent event, @Nullable InFlightSpan inFlightSpan) {
+        if (inFlightSpan != null && !(event instanceof ExchangeSentEvent)) {
+            inFlightSpan.complete();
+        }
+    }
+
+    private void finish(CamelEvent event, Exchange exchange, Span spanToFinish) {
         exchange.removeProperty(EXCHANGE_IS_TRACED_BY_BRAVE);
+        InFlightSpan inFlightSpan = inFlightSpans.remove(exchange.getExchangeId());
 
-        Span spanToFinish = threadLocalSpan.remove();
         logExceptionIfExists(event, spanToFinish);
+        tagRedeliveries(exchange, spanToFinish);
+        tagProcessorTimings(exchange, inFlightSpan, spanToFinish);
+        if (payloadSizes != null) {
+            payloadSizes.recordOut(exchange, spanToFinish);
+        }
         spanToFinish.annotate(EXCHANGE_EVENT_SENT_ANNOTATION);
         spanToFinish.finish();
+        annotateBranchParent(exchange);
         log.debug("Span {} successfully closed.", spanToFinish);
     }
 
+    /**
+     * Records on the parent span when each multicast or recipient list branch got done and is aggregated.
+     */
+    private void annotateBranchParent(Exchange exchange) {
+        ExchangeBranch branch = ExchangeBranch.of(exchange, inFlightSpans);
+        InFlightSpan parent = branch != null ? branch.getParent() : null;
+        if (parent != null && !parent.getSpan().isNoop()) {
+            parent.getSpan().annotate(ExchangeBranch.EXCHANGE_EVENT_BRANCH_COMPLETED_ANNOTATION + " index=" + branch.getIndex());
+        }
+    }
+
+    /**
+     * Sums up redelivery attempts annotated by {@link RedeliveryEventNotifier}, timed by {@link RedeliveryClockProcessor}.
+     * A clock still running belongs to redeliveries exhausted without success, they last till the exchange is done.
+     */
+    private void tagRedeliveries(Exchange exchange, Span span) {
+        Object redeliveryStartNanos = exchange.removeProperty(EXCHANGE_REDELIVERY_START_NANOS);
+        Object spentNanos = exchange.removeProperty(EXCHANGE_REDELIVERY_NANOS);
+        if (!(redeliveryStartNanos instanceof Long) && !(spentNanos instanceof Long) || span.isNoop()) {
+            return;
+        }
+        long redeliveryNanos = spentNanos instanceof Long ? (Long) spentNanos : 0;
+        if (redeliveryStartNanos instanceof Long) {
+            redeliveryNanos += Math.max(0, System.nanoTime() - (Long) redeliveryStartNanos);
+        }
+        span.tag(REDELIVERY_TIME_TAG, Long.toString(TimeUnit.NANOSECONDS.toMicros(redeliveryNanos)));
+        Integer attempts = exchange.getIn().getHeader(Exchange.REDELIVERY_COUNTER, Integer.class);
+        if (attempts != null) {
+            span.tag(REDELIVERY_ATTEMPTS_TAG, attempts.toString());
+        }
+    }
+
+    /**
+     * Timings recorded by {@link ProcessorTimingProcessor} are dropped as they are, unless the exchange is slow.
+     */
+    private void tagProcessorTimings(Exchange exchange, InFlightSpan inFlightSpan, Span span) {
+        Object timings = exchange.removeProperty(EXCHANGE_PROCESSOR_TIMINGS);
+        if (!(timings instanceof ProcessorTimings) || inFlightSpan == null || span.isNoop()) {
+            return;
+        }
+        ProcessorTimings processorTimings = (ProcessorTimings) timings;
+        if (processorTimings.isOf(exchange.getExchangeId()) && processorTimings.isSlow(System.nanoTime() - inFlightSpan.getStartNanos())) {
+            span.tag(ProcessorTimings.PROCESSOR_TIMINGS_TAG, processorTimings.format());
+        }
+    }
+
     private boolean isCamelSpan(Exchange exchange) {
-        Boolean isTracing = exchange.getProperty(EXCHANGE_IS_TRACED_BY_BRAVE, Boolean.class);
-        return isTracing != null && isTracing;
+        // plain lookup, the type converter is not needed for the flag set by CreatedEventNotifier
+        return Boolean.TRUE.equals(exchange.getProperty(EXCHANGE_IS_TRACED_BY_BRAVE));
     }
 
     /**
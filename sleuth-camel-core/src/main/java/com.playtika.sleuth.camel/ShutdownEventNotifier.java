@@ -0,0 +1,117 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Playtika
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.playtika.sleuth.camel;
+
+import brave.Span;
+import com.playtika.sleuth.camel.InFlightSpans.InFlightSpan;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.camel.spi.CamelEvent;
+import org.apache.camel.support.EventNotifierSupport;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Finishes camel spans left open once camel context shutdown strategy gave up on in-flight exchanges,
+ * and flushes span reporters, bounded by the given timeout.
+ */
+@Slf4j
+public class ShutdownEventNotifier extends EventNotifierSupport implements TracingEventNotifier {
+
+    static final String EXCHANGE_INTERRUPTED_TAG = "camel-exchange-interrupted";
+    static final String EXCHANGE_EVENT_INTERRUPTED_ANNOTATION = "camel-exchange-event-interrupted";
+
+    private final InFlightSpans inFlightSpans;
+    private final List<Flushable> reporters;
+    private final Duration timeout;
+
+    public ShutdownEventNotifier(InFlightSpans inFlightSpans, List<Flushable> reporters, Duration timeout) {
+        this.inFlightSpans = inFlightSpans;
+        this.reporters = reporters;
+        this.timeout = timeout;
+        setIgnoreRouteEvents(true);
+        setIgnoreServiceEvents(true);
+        setIgnoreExchangeEvents(true);
+        setIgnoreStepEvents(true);
+    }
+
+    @Override
+    public void notify(CamelEvent event) {
+        CamelEvent.CamelContextStoppedEvent stoppedEvent = (CamelEvent.CamelContextStoppedEvent) event;
+        long deadline = System.nanoTime() + timeout.toNanos();
+
+        List<InFlightSpan> interrupted = inFlightSpans.removeAll(stoppedEvent.getContext());
+        int finished = 0;
+        for (InFlightSpan inFlightSpan : interrupted) {
+            if (System.nanoTime() - deadline >= 0) {
+                break;
+            }
+            Span span = inFlightSpan.getSpan();
+            span.tag(EXCHANGE_INTERRUPTED_TAG, "true");
+            span.annotate(EXCHANGE_EVENT_INTERRUPTED_ANNOTATION);
+            span.finish();
+            finished++;
+        }
+        if (finished < interrupted.size()) {
+            log.warn("Finished {} of {} interrupted camel spans within {}.", finished, interrupted.size(), timeout);
+        } else if (finished > 0) {
+            log.info("Finished {} interrupted camel spans.", finished);
+        }
+        flushReporters(deadline);
+    }
+
+    @Override
+    public boolean isEnabled(CamelEvent event) {
+        return event instanceof CamelEvent.CamelContextStoppedEvent;
+    }
+
+    private void flushReporters(long deadline) {
+        if (reporters.isEmpty()) {
+            return;
+        }
+        Thread flusher = new Thread(() -> reporters.forEach(ShutdownEventNotifier::flush), "sleuth-camel-shutdown-flush");
+        flusher.setDaemon(true);
+        flusher.start();
+        try {
+            flusher.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (flusher.isAlive()) {
+            log.warn("Span reporters were not flushed within {}.", timeout);
+        }
+    }
+
+    private static void flush(Flushable reporter) {
+        try {
+            reporter.flush();
+        } catch (IOException | RuntimeException e) {
+            log.warn("Failed to flush span reporter [{}].", reporter, e);
+        }
+    }
+}
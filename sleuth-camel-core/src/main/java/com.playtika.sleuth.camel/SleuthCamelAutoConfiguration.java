@@ -26,47 +26,350 @@ package com.playtika.sleuth.camel;
 
 import brave.Tracer;
 import brave.Tracing;
+import brave.TracingCustomizer;
+import brave.baggage.CorrelationScopeDecorator;
+import brave.handler.SpanHandler;
 import brave.propagation.ThreadLocalSpan;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
 import lombok.AllArgsConstructor;
+import lombok.RequiredArgsConstructor;
 import org.apache.camel.CamelContext;
+import org.apache.camel.spi.EventNotifier;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.actuate.autoconfigure.endpoint.condition.ConditionalOnAvailableEndpoint;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
 import org.springframework.boot.autoconfigure.AutoConfigureAfter;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.cloud.sleuth.autoconfig.brave.BraveAutoConfiguration;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.util.ClassUtils;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 @AllArgsConstructor
-@Configuration
+@Configuration(proxyBeanMethods = false)
 @ConditionalOnBean(Tracer.class)
 @ConditionalOnClass({CamelContext.class})
-@AutoConfigureAfter({BraveAutoConfiguration.class})
+@AutoConfigureAfter(value = BraveAutoConfiguration.class,
+        name = "org.springframework.boot.actuate.autoconfigure.metrics.CompositeMeterRegistryAutoConfiguration")
 @ConditionalOnProperty(value = "spring.sleuth.camel.enabled", matchIfMissing = true)
+@EnableConfigurationProperties(SleuthCamelProperties.class)
 public class SleuthCamelAutoConfiguration {
 
-    private final CamelContext camelContext;
+    private static final String ZIPKIN_REPORTER_CLASS_NAME = "zipkin2.reporter.Reporter";
+
+    private static final Class<?> ZIPKIN_REPORTER_CLASS = ClassUtils.isPresent(ZIPKIN_REPORTER_CLASS_NAME, null)
+            ? ClassUtils.resolveClassName(ZIPKIN_REPORTER_CLASS_NAME, null)
+            : null;
+
     private final Tracer tracer;
 
     @Bean
     @ConditionalOnMissingBean
-    public CreatedEventNotifier createdEventNotifier(Tracing tracing, ThreadLocalSpan threadLocalSpan) {
-        CreatedEventNotifier createdEventNotifier = new CreatedEventNotifier(tracing, threadLocalSpan, tracer);
-        camelContext.getManagementStrategy().addEventNotifier(createdEventNotifier);
-        return createdEventNotifier;
+    public CreatedEventNotifier createdEventNotifier(Tracing tracing, ThreadLocalSpan threadLocalSpan,
+                                                     CamelTracingToggles toggles, InFlightSpans inFlightSpans,
+                                                     ObjectProvider<QueueWaitListener> queueWaitListener,
+                                                     ObjectProvider<PayloadSizes> payloadSizes,
+                                                     SleuthCamelProperties properties) {
+        Map<String, List<String>> baggageAllowlist = properties.getBaggage().getAllowlist();
+        return CreatedEventNotifier.newBuilder(tracing, threadLocalSpan, tracer)
+                .toggles(toggles)
+                .inFlightSpans(inFlightSpans)
+                .queueWaitListener(queueWaitListener.getIfAvailable())
+                .baggageAllowlist(baggageAllowlist.isEmpty() ? null : new BaggageAllowlist(baggageAllowlist))
+                .payloadSizes(payloadSizes.getIfAvailable())
+                .build();
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public SentEventNotifier sentEventNotifier(ThreadLocalSpan threadLocalSpan, InFlightSpans inFlightSpans,
+                                               ObjectProvider<PayloadSizes> payloadSizes) {
+        return new SentEventNotifier(tracer, threadLocalSpan, inFlightSpans, payloadSizes.getIfAvailable());
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(value = "spring.sleuth.camel.payload-size.enabled")
+    public PayloadSizes payloadSizes(ObjectProvider<PayloadSizeListener> payloadSizeListener) {
+        return new PayloadSizes(payloadSizeListener.getIfAvailable());
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public RouteStartedEventNotifier routeStartedEventNotifier() {
+        return new RouteStartedEventNotifier();
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(value = "spring.sleuth.camel.redelivery.enabled")
+    public RedeliveryEventNotifier redeliveryEventNotifier(InFlightSpans inFlightSpans) {
+        return new RedeliveryEventNotifier(inFlightSpans);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(value = "spring.sleuth.camel.queue-wait.enabled")
+    public QueueEnqueueEventNotifier queueEnqueueEventNotifier() {
+        return new QueueEnqueueEventNotifier();
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(value = "spring.sleuth.camel.poll.enabled")
+    public PollSpanEventNotifier pollSpanEventNotifier(CamelTracingToggles toggles) {
+        return new PollSpanEventNotifier(tracer, toggles);
     }
 
     @Bean
     @ConditionalOnMissingBean
-    public SentEventNotifier sentEventNotifier(ThreadLocalSpan threadLocalSpan) {
-        SentEventNotifier sentEventNotifier = new SentEventNotifier(tracer, threadLocalSpan);
-        camelContext.getManagementStrategy().addEventNotifier(sentEventNotifier);
-        return sentEventNotifier;
+    @ConditionalOnProperty(value = "spring.sleuth.camel.hot-paths.enabled")
+    public HotPathsEventNotifier hotPathsEventNotifier(SleuthCamelProperties properties) {
+        return new HotPathsEventNotifier(properties.getHotPaths().getSize());
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(value = "spring.sleuth.camel.startup.enabled")
+    public StartupTracingEventNotifier startupTracingEventNotifier() {
+        return new StartupTracingEventNotifier(tracer);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public CamelContextInstrumenter camelContextInstrumenter(CamelTracingToggles toggles, ObjectProvider<TracingEventNotifier> eventNotifiers,
+                                                             Tracing tracing, InFlightSpans inFlightSpans, SleuthCamelProperties properties) {
+        // notifiers are created when the first context is instrumented, once singletons are, as they may depend on it
+        Supplier<List<EventNotifier>> tracingNotifiers = () -> eventNotifiers.orderedStream()
+                .map(EventNotifier.class::cast)
+                .collect(Collectors.toList());
+        SleuthCamelProperties.ProcessorTimings processorTimings = properties.getProcessorTimings();
+        Duration processorTimingsThreshold = processorTimings.isEnabled() ? processorTimings.getThreshold() : null;
+        // the watchdog samples threads running stuck exchanges, processors keep track of them
+        InFlightSpans inFlightOwners = properties.getWatchdog().isEnabled() ? inFlightSpans : null;
+        return CamelContextInstrumenter.newBuilder(toggles)
+                .lazyEventNotifiers(tracingNotifiers)
+                .currentTraceContext(tracing.currentTraceContext())
+                .asyncContinuations(properties.getAsync().isEnabled())
+                .processorTimingsThreshold(processorTimingsThreshold)
+                .inFlightOwners(inFlightOwners)
+                .build();
+    }
+
+    /**
+     * Instruments every camel context bean, including ones created after this configuration.
+     */
+    @Bean
+    public static BeanPostProcessor camelContextInstrumenterPostProcessor(ObjectProvider<CamelContextInstrumenter> instrumenter) {
+        return new CamelContextInstrumenterPostProcessor(instrumenter);
     }
 
     @Bean
     public ThreadLocalSpan threadLocalSpan() {
         return ThreadLocalSpan.create(this.tracer);
     }
+
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(value = "spring.sleuth.camel.shutdown.enabled", matchIfMissing = true)
+    public ShutdownEventNotifier shutdownEventNotifier(InFlightSpans inFlightSpans, ObjectProvider<Flushable> flushables,
+                                                       SleuthCamelProperties properties) {
+        List<Flushable> reporters = flushables.orderedStream()
+                .filter(SleuthCamelAutoConfiguration::isSpanReporter)
+                .collect(Collectors.toList());
+        return new ShutdownEventNotifier(inFlightSpans, reporters, properties.getShutdown().getTimeout());
+    }
+
+    @Bean(initMethod = "start")
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(value = "spring.sleuth.camel.watchdog.enabled")
+    public StuckExchangeWatchdog stuckExchangeWatchdog(InFlightSpans inFlightSpans, SleuthCamelProperties properties) {
+        SleuthCamelProperties.Watchdog watchdog = properties.getWatchdog();
+        return new StuckExchangeWatchdog(inFlightSpans, watchdog.getThreshold(), watchdog.getInterval(),
+                watchdog.getSamples(), watchdog.getStackDepth());
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public CamelTracingToggles camelTracingToggles() {
+        return new CamelTracingToggles();
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public InFlightSpans inFlightSpans() {
+        return new InFlightSpans();
+    }
+
+    /**
+     * Span handlers, like {@link MappedSpanRecorder}, and zipkin reporters are flushed on shutdown, other flushable beans are not ours to touch.
+     */
+    private static boolean isSpanReporter(Flushable flushable) {
+        return flushable instanceof SpanHandler
+                || (ZIPKIN_REPORTER_CLASS != null && ZIPKIN_REPORTER_CLASS.isInstance(flushable));
+    }
+
+    /**
+     * Camel contexts initialized along with other singletons are instrumented once all singletons are created,
+     * still before contexts are started on refresh, those created later are instrumented right away.
+     */
+    @RequiredArgsConstructor
+    static class CamelContextInstrumenterPostProcessor implements BeanPostProcessor, SmartInitializingSingleton {
+
+        private final ObjectProvider<CamelContextInstrumenter> instrumenter;
+        private final List<CamelContext> pending = new ArrayList<>();
+        private volatile boolean singletonsInstantiated;
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (bean instanceof CamelContext) {
+                CamelContext camelContext = (CamelContext) bean;
+                if (singletonsInstantiated) {
+                    instrumenter.getObject().instrument(camelContext);
+                } else {
+                    synchronized (pending) {
+                        pending.add(camelContext);
+                    }
+                }
+            }
+            return bean;
+        }
+
+        @Override
+        public void afterSingletonsInstantiated() {
+            singletonsInstantiated = true;
+            synchronized (pending) {
+                pending.forEach(instrumenter.getObject()::instrument);
+                pending.clear();
+            }
+        }
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnClass(Endpoint.class)
+    static class TracingEndpointConfiguration {
+
+        @Bean
+        @ConditionalOnMissingBean
+        @ConditionalOnAvailableEndpoint
+        public CamelTracingEndpoint camelTracingEndpoint(CamelTracingToggles toggles) {
+            return new CamelTracingEndpoint(toggles);
+        }
+
+        @Bean
+        @ConditionalOnMissingBean
+        @ConditionalOnAvailableEndpoint
+        @ConditionalOnProperty(value = "spring.sleuth.camel.hot-paths.enabled")
+        public CamelHotPathsEndpoint camelHotPathsEndpoint(HotPathsEventNotifier hotPathsEventNotifier) {
+            return new CamelHotPathsEndpoint(hotPathsEventNotifier);
+        }
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnClass(MeterRegistry.class)
+    @ConditionalOnBean(MeterRegistry.class)
+    @ConditionalOnProperty(value = "spring.sleuth.camel.queue-wait.metrics-enabled")
+    static class QueueWaitMetricsConfiguration {
+
+        @Bean
+        @ConditionalOnMissingBean
+        public QueueWaitListener micrometerQueueWaitListener(MeterRegistry meterRegistry, SleuthCamelProperties properties) {
+            return new MicrometerQueueWaitListener(meterRegistry, properties.getQueueWait().getMetricsMaxQueues());
+        }
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnClass(MeterRegistry.class)
+    @ConditionalOnBean(MeterRegistry.class)
+    @ConditionalOnProperty(value = "spring.sleuth.camel.payload-size.metrics-enabled")
+    static class PayloadSizeMetricsConfiguration {
+
+        @Bean
+        @ConditionalOnMissingBean
+        public PayloadSizeListener micrometerPayloadSizeListener(MeterRegistry meterRegistry) {
+            return new MicrometerPayloadSizeListener(meterRegistry);
+        }
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnClass(MeterRegistry.class)
+    @ConditionalOnProperty(value = "spring.sleuth.camel.watchdog.enabled")
+    static class WatchdogMetricsConfiguration {
+
+        @Bean
+        public MeterBinder stuckExchangesMeterBinder(StuckExchangeWatchdog watchdog) {
+            return registry -> Gauge.builder("camel.exchanges.stuck", watchdog, StuckExchangeWatchdog::getStuckExchanges)
+                    .description("Camel exchanges in flight for longer than the watchdog threshold")
+                    .register(registry);
+        }
+    }
+
+    /**
+     * Decorators wrapped before the current trace context of the tracer is built from them.
+     */
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnProperty(value = "spring.sleuth.camel.log-correlation.lazy")
+    static class LazyLogCorrelationConfiguration {
+
+        @Bean
+        public static BeanPostProcessor camelThreadScopeDecoratorPostProcessor(Environment environment) {
+            // read from the environment, since post processors are created before configuration properties are bound
+            return new CamelThreadScopeDecoratorPostProcessor(environment.getProperty(
+                    "spring.sleuth.camel.log-correlation.thread-name-prefix", CamelThreadScopeDecorator.DEFAULT_THREAD_NAME_PREFIX));
+        }
+    }
+
+    @AllArgsConstructor
+    static class CamelThreadScopeDecoratorPostProcessor implements BeanPostProcessor {
+
+        private final String threadNamePrefix;
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (bean instanceof CorrelationScopeDecorator) {
+                return new CamelThreadScopeDecorator((CorrelationScopeDecorator) bean, threadNamePrefix);
+            }
+            return bean;
+        }
+    }
+
+    /**
+     * Kept apart from the outer configuration, since span handlers are needed to build the very tracer it depends on.
+     */
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnProperty(value = "spring.sleuth.camel.recorder.enabled")
+    static class SpanRecorderConfiguration {
+
+        @Bean
+        @ConditionalOnMissingBean
+        public MappedSpanRecorder mappedSpanRecorder(SleuthCamelProperties properties) throws IOException {
+            SleuthCamelProperties.Recorder recorder = properties.getRecorder();
+            return new MappedSpanRecorder(Paths.get(recorder.getFile()), recorder.getSize().toBytes());
+        }
+
+        @Bean
+        @ConditionalOnProperty(value = "spring.sleuth.camel.recorder.include-unsampled")
+        public TracingCustomizer spanRecorderTracingCustomizer() {
+            return Tracing.Builder::alwaysSampleLocal;
+        }
+    }
 }
@@ -31,4 +31,18 @@ public class SleuthCamelConstants {
 
     public static final String EXCHANGE_IS_TRACED_BY_BRAVE = "ExchangeIsInTracingContext";
 
+    public static final String EXCHANGE_BOUND_SPAN = "SleuthCamelExchangeBoundSpan";
+
+    public static final String EXCHANGE_ENQUEUED_NANOS = "SleuthCamelExchangeEnqueuedNanos";
+
+    public static final String EXCHANGE_REDELIVERY_START_NANOS = "SleuthCamelExchangeRedeliveryStartNanos";
+
+    public static final String EXCHANGE_REDELIVERY_NANOS = "SleuthCamelExchangeRedeliveryNanos";
+
+    public static final String EXCHANGE_PROCESSOR_TIMINGS = "SleuthCamelExchangeProcessorTimings";
+
+    public static final String EXCHANGE_TRACE_STATE = "SleuthCamelTraceState";
+
+    public static final String EXCHANGE_BRANCHING = "SleuthCamelExchangeBranching";
+
 }
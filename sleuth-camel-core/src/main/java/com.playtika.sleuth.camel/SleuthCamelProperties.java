@@ -0,0 +1,268 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Playtika
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.playtika.sleuth.camel;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Data
+@ConfigurationProperties("spring.sleuth.camel")
+public class SleuthCamelProperties {
+
+    /**
+     * Enables camel routes tracing.
+     */
+    private boolean enabled = true;
+
+    private Shutdown shutdown = new Shutdown();
+
+    private Recorder recorder = new Recorder();
+
+    private Async async = new Async();
+
+    private QueueWait queueWait = new QueueWait();
+
+    private Poll poll = new Poll();
+
+    private Redelivery redelivery = new Redelivery();
+
+    private Baggage baggage = new Baggage();
+
+    private LogCorrelation logCorrelation = new LogCorrelation();
+
+    private ProcessorTimings processorTimings = new ProcessorTimings();
+
+    private Watchdog watchdog = new Watchdog();
+
+    private HotPaths hotPaths = new HotPaths();
+
+    private PayloadSize payloadSize = new PayloadSize();
+
+    private Startup startup = new Startup();
+
+    @Data
+    public static class Shutdown {
+
+        /**
+         * Finishes spans of exchanges still in flight once camel context is stopped and flushes span reporters.
+         */
+        private boolean enabled = true;
+
+        /**
+         * Upper bound for finishing in-flight spans and flushing span reporters on camel context stop.
+         */
+        private Duration timeout = Duration.ofSeconds(5);
+    }
+
+    @Data
+    public static class Async {
+
+        /**
+         * Carries camel spans across async continuations of route processors, so that exchanges completed
+         * on another thread than the one they were created on are traced correctly.
+         */
+        private boolean enabled = false;
+    }
+
+    @Data
+    public static class QueueWait {
+
+        /**
+         * Tags spans of exchanges consumed from seda, vm and disruptor endpoints with the time they waited in the queue.
+         * Exchanges are stamped on every send then, so exchange sending events are notified for every endpoint.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Records queue wait as {@code camel.queue.wait} timer per queue, requires micrometer meter registry.
+         */
+        private boolean metricsEnabled = false;
+
+        /**
+         * Maximum number of queues with a timer of their own, waits in other queues are recorded by a shared timer.
+         */
+        private int metricsMaxQueues = MicrometerQueueWaitListener.DEFAULT_MAX_QUEUES;
+    }
+
+    @Data
+    public static class Poll {
+
+        /**
+         * Starts a parent span per poll cycle of file, ftp, sql and other scheduled polling consumers,
+         * tagged with the number of polled messages. Empty polls are not reported.
+         */
+        private boolean enabled = false;
+    }
+
+    @Data
+    public static class Redelivery {
+
+        /**
+         * Annotates spans with every redelivery attempt of their exchange and tags them with the number of attempts
+         * and time spent in redeliveries. Route processors get wrapped to stop the redelivery clock then.
+         */
+        private boolean enabled = false;
+    }
+
+    @Data
+    public static class Baggage {
+
+        /**
+         * Baggage fields propagated through camel message headers, by pattern of endpoint exchange comes from.
+         * Endpoints matching no pattern propagate no baggage. All baggage is propagated if empty.
+         */
+        private Map<String, List<String>> allowlist = new LinkedHashMap<>();
+    }
+
+    @Data
+    public static class LogCorrelation {
+
+        /**
+         * Skips MDC updates on camel threads, trace ids are then written by log4j2 {@code %camelTraceId}
+         * and {@code %camelSpanId} converters only when an event is actually logged.
+         */
+        private boolean lazy = false;
+
+        /**
+         * Threads with names starting with the prefix are camel threads, it follows the camel thread name pattern.
+         */
+        private String threadNamePrefix = CamelThreadScopeDecorator.DEFAULT_THREAD_NAME_PREFIX;
+    }
+
+    @Data
+    public static class ProcessorTimings {
+
+        /**
+         * Records time exchanges spend in each route processor, spans of slow exchanges are tagged with it.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Exchanges taking longer are slow, timings of other exchanges are discarded.
+         */
+        private Duration threshold = Duration.ofSeconds(1);
+    }
+
+    @Data
+    public static class Watchdog {
+
+        /**
+         * Annotates spans of exchanges in flight for longer than the threshold with stack samples of their threads.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Exchanges in flight for longer are stuck.
+         */
+        private Duration threshold = Duration.ofSeconds(30);
+
+        /**
+         * How often in-flight exchanges are scanned, every scan takes one stack sample per stuck exchange.
+         */
+        private Duration interval = Duration.ofSeconds(5);
+
+        /**
+         * Stack samples taken per stuck exchange at most.
+         */
+        private int samples = 3;
+
+        /**
+         * Top stack frames kept per sample.
+         */
+        private int stackDepth = 16;
+    }
+
+    @Data
+    public static class HotPaths {
+
+        /**
+         * Counts exchanges and their latencies by route and endpoint, reported by {@code camelhotpaths} actuator endpoint.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Number of most frequent and slowest routes and endpoints reported.
+         */
+        private int size = 10;
+    }
+
+    @Data
+    public static class PayloadSize {
+
+        /**
+         * Tags sampled spans with sizes of bodies and headers exchanges came in and went out with,
+         * if they can be measured without converting the body.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Records payload sizes as {@code camel.exchange.body.size} (bytes), {@code camel.exchange.body.chars}
+         * and {@code camel.exchange.headers.chars} distribution summaries per route, requires micrometer meter registry.
+         */
+        private boolean metricsEnabled = false;
+    }
+
+    @Data
+    public static class Startup {
+
+        /**
+         * Reports a trace of every camel context startup, with a child span per route, endpoint and component
+         * initialization step camel records while starting.
+         */
+        private boolean enabled = false;
+    }
+
+    @Data
+    public static class Recorder {
+
+        /**
+         * Enables recording of finished camel spans into a memory-mapped ring buffer file.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Ring buffer file location.
+         */
+        private String file = Paths.get(System.getProperty("java.io.tmpdir"), "sleuth-camel-spans.rec").toString();
+
+        /**
+         * Ring buffer file size, oldest records are overwritten once it is full.
+         */
+        private DataSize size = DataSize.ofMegabytes(64);
+
+        /**
+         * Records unsampled spans as well, which makes brave record every span of the application locally,
+         * camel or not, and every span handler see them.
+         */
+        private boolean includeUnsampled = false;
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Playtika
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.playtika.sleuth.camel;
+
+import brave.Span;
+import brave.handler.SpanHandler;
+import lombok.Value;
+import lombok.experimental.UtilityClass;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static com.playtika.sleuth.camel.MappedSpanRecorder.*;
+
+/**
+ * Decodes ring buffer files written by {@link MappedSpanRecorder}, oldest span first.
+ * Files can be read while spans are still recorded into them, by this or another process, records being written
+ * are skipped then: every slot is copied with a positional read and kept only if its sequence is unchanged after.
+ * <p>
+ * Can be run from the command line: {@code java -cp <classpath> com.playtika.sleuth.camel.SpanRecordReader <file>}
+ */
+@UtilityClass
+public class SpanRecordReader {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Usage: SpanRecordReader <recorder file>");
+            System.exit(1);
+        }
+        for (SpanRecord record : read(Paths.get(args[0]))) {
+            System.out.println(record);
+        }
+    }
+
+    public static List<SpanRecord> read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = readFully(channel, 0, HEADER_SIZE, path);
+            if (header.getInt(MAGIC_OFFSET) != MAGIC || header.getInt(VERSION_OFFSET) != VERSION
+                    || header.getInt(RECORD_SIZE_OFFSET) != RECORD_SIZE) {
+                throw new IOException("Not a span recorder file: " + path);
+            }
+            int capacity = header.getInt(CAPACITY_OFFSET);
+            List<SpanRecord> records = new ArrayList<>();
+            ByteBuffer slotCopy = ByteBuffer.allocate(RECORD_SIZE);
+            ByteBuffer sequenceCopy = ByteBuffer.allocate(Long.BYTES);
+            for (int slot = 0; slot < capacity; slot++) {
+                long position = HEADER_SIZE + (long) slot * RECORD_SIZE;
+                long sequence = readFully(channel, position, slotCopy, path).getLong(SEQUENCE_OFFSET);
+                if (sequence == 0) {
+                    continue;
+                }
+                SpanRecord record = readRecord(slotCopy, 0, sequence - 1);
+                // records being written while the file is read are skipped
+                if (readFully(channel, position + SEQUENCE_OFFSET, sequenceCopy, path).getLong(0) == sequence) {
+                    records.add(record);
+                }
+            }
+            records.sort(Comparator.comparingLong(SpanRecord::getSequence));
+            return records;
+        }
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, long position, int size, Path path) throws IOException {
+        return readFully(channel, position, ByteBuffer.allocate(size), path);
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, long position, ByteBuffer target, Path path) throws IOException {
+        target.clear();
+        while (target.hasRemaining()) {
+            if (channel.read(target, position + target.position()) < 0) {
+                throw new IOException("Truncated span recorder file: " + path);
+            }
+        }
+        return target;
+    }
+
+    private static SpanRecord readRecord(ByteBuffer buffer, int offset, long sequence) {
+        byte flags = buffer.get(offset + FLAGS_OFFSET);
+        byte kind = buffer.get(offset + KIND_OFFSET);
+        return new SpanRecord(
+                sequence,
+                buffer.getLong(offset + TRACE_ID_HIGH_OFFSET),
+                buffer.getLong(offset + TRACE_ID_OFFSET),
+                buffer.getLong(offset + PARENT_ID_OFFSET),
+                buffer.getLong(offset + SPAN_ID_OFFSET),
+                buffer.getLong(offset + START_TIMESTAMP_OFFSET),
+                buffer.getLong(offset + FINISH_TIMESTAMP_OFFSET),
+                (flags & SAMPLED_FLAG) != 0,
+                (flags & ERROR_FLAG) != 0,
+                (flags & SHARED_FLAG) != 0,
+                SpanHandler.Cause.values()[buffer.get(offset + CAUSE_OFFSET)],
+                kind == 0 ? null : Span.Kind.values()[kind - 1],
+                readAscii(buffer, offset + NAME_OFFSET, buffer.get(offset + NAME_LENGTH_OFFSET)),
+                readAscii(buffer, offset + EXCHANGE_ID_OFFSET, buffer.get(offset + EXCHANGE_ID_LENGTH_OFFSET)),
+                readAscii(buffer, offset + ERROR_TYPE_OFFSET, buffer.get(offset + ERROR_TYPE_LENGTH_OFFSET)));
+    }
+
+    private static String readAscii(ByteBuffer buffer, int offset, int length) {
+        if (length == 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = buffer.get(offset + i);
+        }
+        return new String(bytes, StandardCharsets.US_ASCII);
+    }
+
+    @Value
+    public static class SpanRecord {
+        long sequence;
+        long traceIdHigh;
+        long traceId;
+        long parentId;
+        long spanId;
+        long startTimestamp;
+        long finishTimestamp;
+        boolean sampled;
+        boolean error;
+        boolean shared;
+        SpanHandler.Cause cause;
+        Span.Kind kind;
+        String name;
+        String exchangeId;
+        String errorType;
+
+        public String traceIdString() {
+            return traceIdHigh != 0
+                    ? String.format("%016x%016x", traceIdHigh, traceId)
+                    : String.format("%016x", traceId);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Playtika
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.playtika.sleuth.camel;
+
+import brave.Span;
+import brave.Tags;
+import brave.Tracer;
+import brave.propagation.TraceContextOrSamplingFlags;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.camel.impl.engine.DefaultStartupStepRecorder;
+import org.apache.camel.spi.StartupStep;
+import org.springframework.cloud.sleuth.internal.SpanNameUtil;
+import org.springframework.lang.Nullable;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Traces startup of a camel context: one sampled root span from context instrumented or starting till started,
+ * with a child span per step camel records while starting, like route, endpoint or component initialization.
+ * Route started events are annotated on the root span.
+ * <p>
+ * Steps are recorded only while the context is starting, routes added to a running context are not traced.
+ */
+@Slf4j
+class StartupSpanRecorder extends DefaultStartupStepRecorder {
+
+    static final String STARTUP_SPAN_NAME_PREFIX = "camel-startup::";
+    static final String STARTUP_STEP_TAG = "camel-startup-step";
+    static final String STARTUP_ROUTES_TAG = "camel-startup-routes";
+    static final String ROUTE_STARTED_ANNOTATION = "camel-route-started";
+
+    private final Tracer tracer;
+    private final String contextName;
+    private final Map<Integer, Span> stepSpans = new HashMap<>();
+    @Nullable
+    private Span root;
+    private int startedRoutes;
+
+    StartupSpanRecorder(Tracer tracer, String contextName) {
+        this.tracer = tracer;
+        this.contextName = contextName;
+    }
+
+    synchronized void contextStarting() {
+        if (root != null) {
+            return;
+        }
+        // startup happens once per context, so it is always reported whatever the sampler is
+        root = tracer.nextSpan(TraceContextOrSamplingFlags.SAMPLED)
+                .name(SpanNameUtil.shorten(STARTUP_SPAN_NAME_PREFIX + contextName))
+                .start();
+        startedRoutes = 0;
+        setEnabled(true);
+    }
+
+    synchronized void routeStarted(String routeId) {
+        if (root != null) {
+            root.annotate(ROUTE_STARTED_ANNOTATION + " route=" + routeId);
+            startedRoutes++;
+        }
+    }
+
+    synchronized void contextStarted(@Nullable Throwable failure) {
+        setEnabled(false);
+        if (root == null) {
+            return;
+        }
+        // steps camel did not end on failure are reported as they are
+        stepSpans.values().forEach(Span::finish);
+        stepSpans.clear();
+        root.tag(STARTUP_ROUTES_TAG, Integer.toString(startedRoutes));
+        if (failure != null) {
+            Tags.ERROR.tag(failure, root);
+        }
+        root.finish();
+        log.debug("Startup of camel context [{}] is traced by span {}.", contextName, root);
+        root = null;
+    }
+
+    @Override
+    public synchronized StartupStep beginStep(Class<?> type, String name, String description) {
+        StartupStep step = super.beginStep(type, name, description);
+        // disabled and too deep steps all share id 0
+        if (root == null || step.getId() <= 0) {
+            return step;
+        }
+        Span parent = stepSpans.getOrDefault(step.getParentId(), root);
+        Span span = tracer.newChild(parent.context())
+                .name(SpanNameUtil.shorten(STARTUP_SPAN_NAME_PREFIX + type.getSimpleName() + "::" + (name != null ? name : description)));
+        if (description != null) {
+            span.tag(STARTUP_STEP_TAG, description);
+        }
+        stepSpans.put(step.getId(), span.start());
+        return step;
+    }
+
+    @Override
+    public synchronized void endStep(StartupStep step) {
+        super.endStep(step);
+        Span span = stepSpans.remove(step.getId());
+        if (span != null) {
+            span.finish();
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Playtika
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.playtika.sleuth.camel;
+
+import brave.Tracer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.camel.CamelContext;
+import org.apache.camel.ExtendedCamelContext;
+import org.apache.camel.spi.CamelEvent;
+import org.apache.camel.spi.StartupStepRecorder;
+import org.apache.camel.support.EventNotifierSupport;
+
+/**
+ * Traces startup of every instrumented camel context with {@link StartupSpanRecorder}, installed as startup step recorder
+ * of the context once it is instrumented, so steps of its initialization are traced too. Contexts the notifier is
+ * registered on by other means get the recorder once they are starting. Contexts already recording startup steps
+ * by other means, like logging or flight recorder, get the root span and route annotations only.
+ */
+@Slf4j
+public class StartupTracingEventNotifier extends EventNotifierSupport implements TracingEventNotifier {
+
+    private final Tracer tracer;
+
+    public StartupTracingEventNotifier(Tracer tracer) {
+        this.tracer = tracer;
+        setIgnoreServiceEvents(true);
+        setIgnoreExchangeEvents(true);
+        setIgnoreStepEvents(true);
+    }
+
+    @Override
+    public void notify(CamelEvent event) {
+        if (event instanceof CamelEvent.CamelContextStartingEvent) {
+            startupSpans(((CamelEvent.CamelContextStartingEvent) event).getContext()).contextStarting();
+            return;
+        }
+        if (event instanceof CamelEvent.RouteStartedEvent) {
+            CamelEvent.RouteStartedEvent routeStartedEvent = (CamelEvent.RouteStartedEvent) event;
+            StartupSpanRecorder startupSpans = routeStartedEvent.getRoute().getCamelContext().getExtension(StartupSpanRecorder.class);
+            if (startupSpans != null) {
+                startupSpans.routeStarted(routeStartedEvent.getRoute().getRouteId());
+            }
+            return;
+        }
+        CamelContext camelContext = ((CamelEvent.CamelContextEvent) event).getContext();
+        StartupSpanRecorder startupSpans = camelContext.getExtension(StartupSpanRecorder.class);
+        if (startupSpans != null) {
+            startupSpans.contextStarted(event instanceof CamelEvent.CamelContextStartupFailureEvent
+                    ? ((CamelEvent.CamelContextStartupFailureEvent) event).getCause()
+                    : null);
+        }
+    }
+
+    /**
+     * The root span starts right away, contexts instrumented but never started do not report it.
+     */
+    @Override
+    public void instrument(CamelContext camelContext) {
+        if (camelContext.isStarted() || camelContext.isStarting()) {
+            return;
+        }
+        startupSpans(camelContext).contextStarting();
+    }
+
+    private StartupSpanRecorder startupSpans(CamelContext camelContext) {
+        StartupSpanRecorder startupSpans = camelContext.getExtension(StartupSpanRecorder.class);
+        if (startupSpans != null) {
+            return startupSpans;
+        }
+        startupSpans = new StartupSpanRecorder(tracer, camelContext.getName());
+        camelContext.setExtension(StartupSpanRecorder.class, startupSpans);
+        ExtendedCamelContext extendedContext = camelContext.adapt(ExtendedCamelContext.class);
+        StartupStepRecorder recorder = extendedContext.getStartupStepRecorder();
+        if (recorder == null || !recorder.isEnabled()) {
+            extendedContext.setStartupStepRecorder(startupSpans);
+        } else {
+            log.info("Camel context [{}] already records startup steps with {}, only its startup and started routes are traced.",
+                    camelContext.getName(), recorder.getClass().getSimpleName());
+        }
+        return startupSpans;
+    }
+
+    @Override
+    public boolean isEnabled(CamelEvent event) {
+        return event instanceof CamelEvent.CamelContextStartingEvent
+                || event instanceof CamelEvent.CamelContextStartedEvent
+                || event instanceof CamelEvent.CamelContextStartupFailureEvent
+                || event instanceof CamelEvent.RouteStartedEvent;
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Playtika
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.playtika.sleuth.camel;
+
+import brave.Span;
+import com.playtika.sleuth.camel.InFlightSpans.InFlightSpan;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scans in-flight camel spans on a fixed interval from a thread of its own and annotates spans of exchanges
+ * running longer than the threshold with stack samples of the thread running them, one sample per scan.
+ * <p>
+ * A scan walks the in-flight spans once and takes no locks routing threads could wait on, though sampling a stack
+ * briefly pauses the sampled thread. Threads running exchanges are tracked by route processors of contexts
+ * instrumented with in-flight spans, see {@link CamelContextInstrumenter}, otherwise the thread which created
+ * the exchange is sampled. Exchanges waiting for an async processor to complete have no such thread, they are
+ * annotated without a stack sample.
+ */
+@Slf4j
+public class StuckExchangeWatchdog implements Closeable {
+
+    static final String EXCHANGE_STUCK_TAG = "camel-exchange-stuck";
+    static final String EXCHANGE_EVENT_STUCK_ANNOTATION = "camel-exchange-event-stuck";
+
+    private final InFlightSpans inFlightSpans;
+    private final long thresholdNanos;
+    private final Duration interval;
+    private final int samples;
+    private final int stackDepth;
+    private final Map<String, Integer> sampled = new ConcurrentHashMap<>();
+    private volatile int stuckExchanges;
+    private ScheduledExecutorService scheduler;
+
+    public StuckExchangeWatchdog(InFlightSpans inFlightSpans, Duration threshold, Duration interval, int samples, int stackDepth) {
+        this.inFlightSpans = inFlightSpans;
+        this.thresholdNanos = threshold.toNanos();
+        this.interval = interval;
+        this.samples = samples;
+        this.stackDepth = stackDepth;
+    }
+
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "sleuth-camel-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::scanSafely, interval.toNanos(), interval.toNanos(), TimeUnit.NANOSECONDS);
+        log.info("Watching for camel exchanges in flight for longer than {}.", Duration.ofNanos(thresholdNanos));
+    }
+
+    @Override
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * Number of exchanges found in flight for longer than the threshold by the last scan.
+     */
+    public int getStuckExchanges() {
+        return stuckExchanges;
+    }
+
+    void scan() {
+        long now = System.nanoTime();
+        int stuck = 0;
+        for (InFlightSpan inFlightSpan : inFlightSpans.spans()) {
+            long elapsedNanos = now - inFlightSpan.getStartNanos();
+            if (elapsedNanos < thresholdNanos || inFlightSpan.isCompleted()) {
+                continue;
+            }
+            stuck++;
+            String exchangeId = inFlightSpan.getExchangeId();
+            int taken = sampled.getOrDefault(exchangeId, 0);
+            if (taken < samples) {
+                sampled.put(exchangeId, taken + 1);
+                sample(inFlightSpan, elapsedNanos, taken == 0);
+            }
+        }
+        stuckExchanges = stuck;
+        if (!sampled.isEmpty()) {
+            sampled.keySet().removeIf(exchangeId -> inFlightSpans.get(exchangeId) == null);
+        }
+    }
+
+    private void scanSafely() {
+        try {
+            scan();
+        } catch (RuntimeException e) {
+            log.warn("Failed to scan in-flight camel exchanges.", e);
+        }
+    }
+
+    private void sample(InFlightSpan inFlightSpan, long elapsedNanos, boolean first) {
+        Span span = inFlightSpan.getSpan();
+        Thread owner = inFlightSpan.getOwner();
+        if (first) {
+            log.warn("Camel exchange [{}] is in flight for {}ms, started on thread [{}], running on thread [{}].",
+                    inFlightSpan.getExchangeId(), TimeUnit.NANOSECONDS.toMillis(elapsedNanos),
+                    inFlightSpan.getThread().getName(), owner != null ? owner.getName() : "none");
+        }
+        if (span.isNoop()) {
+            return;
+        }
+        if (first) {
+            span.tag(EXCHANGE_STUCK_TAG, "true");
+        }
+        String elapsed = EXCHANGE_EVENT_STUCK_ANNOTATION + " elapsed=" + TimeUnit.NANOSECONDS.toMillis(elapsedNanos) + "ms";
+        if (owner == null) {
+            span.annotate(elapsed + " thread=none");
+            return;
+        }
+        span.annotate(elapsed
+                + " thread=" + owner.getName()
+                + " state=" + owner.getState()
+                + " stack=" + stack(owner));
+    }
+
+    private String stack(Thread thread) {
+        StackTraceElement[] frames = thread.getStackTrace();
+        StringBuilder stack = new StringBuilder();
+        for (int i = 0; i < Math.min(stackDepth, frames.length); i++) {
+            if (i > 0) {
+                stack.append(" < ");
+            }
+            stack.append(frames[i]);
+        }
+        return stack.toString();
+    }
+}
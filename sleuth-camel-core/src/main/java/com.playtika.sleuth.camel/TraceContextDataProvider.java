@@ -0,0 +1,78 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Playtika
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.playtika.sleuth.camel;
+
+import brave.Tracing;
+import brave.baggage.BaggageField;
+import brave.propagation.TraceContext;
+import org.apache.logging.log4j.core.util.ContextDataProvider;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Adds trace context of the logging thread to context data of log4j2 events, when the event is created.
+ * Registered as a service, so the default log4j2 context data injector picks it up, and read by
+ * {@link TraceContextPatternConverter}. Keys are available to {@code %X} as well, like {@code %X{camelTraceId}}.
+ * <p>
+ * Supplies nothing, and allocates nothing, until a {@link CamelThreadScopeDecorator} is created,
+ * that is unless lazy log correlation is on.
+ */
+public class TraceContextDataProvider implements ContextDataProvider {
+
+    static final String TRACE_ID_KEY = "camelTraceId";
+    static final String SPAN_ID_KEY = "camelSpanId";
+    static final String BAGGAGE_KEY_PREFIX = "camelBaggage.";
+
+    private final BooleanSupplier enabled;
+
+    public TraceContextDataProvider() {
+        this(CamelThreadScopeDecorator::isInstalled);
+    }
+
+    TraceContextDataProvider(BooleanSupplier enabled) {
+        this.enabled = enabled;
+    }
+
+    @Override
+    public Map<String, String> supplyContextData() {
+        if (!enabled.getAsBoolean()) {
+            return Collections.emptyMap();
+        }
+        Tracing tracing = Tracing.current();
+        TraceContext context = tracing != null ? tracing.currentTraceContext().get() : null;
+        if (context == null) {
+            return Collections.emptyMap();
+        }
+        Map<String, String> baggage = BaggageField.getAllValues(context);
+        Map<String, String> data = new HashMap<>(4 + baggage.size() * 2);
+        data.put(TRACE_ID_KEY, context.traceIdString());
+        data.put(SPAN_ID_KEY, context.spanIdString());
+        baggage.forEach((field, value) -> data.put(BAGGAGE_KEY_PREFIX + field, value));
+        return data;
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Playtika
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.playtika.sleuth.camel;
+
+import org.apache.logging.log4j.core.LogEvent;
+import org.apache.logging.log4j.core.config.plugins.Plugin;
+import org.apache.logging.log4j.core.pattern.ConverterKeys;
+import org.apache.logging.log4j.core.pattern.LogEventPatternConverter;
+import org.apache.logging.log4j.core.pattern.PatternConverter;
+
+/**
+ * Log4j2 pattern converters writing trace context of the logging thread: {@code %camelTraceId}, {@code %camelSpanId}
+ * and {@code %camelBaggage{field}}. Unlike {@code %X{traceId}} they do not depend on the MDC, so they work on camel threads
+ * skipped by {@link CamelThreadScopeDecorator}.
+ * <p>
+ * The trace context is captured by {@link TraceContextDataProvider} when a log event is created, on the logging thread,
+ * so asynchronous loggers and appenders format the context the event was logged in.
+ */
+public abstract class TraceContextPatternConverter extends LogEventPatternConverter {
+
+    private final String key;
+
+    protected TraceContextPatternConverter(String name, String key) {
+        super(name, name);
+        this.key = key;
+    }
+
+    @Override
+    public void format(LogEvent event, StringBuilder toAppendTo) {
+        Object value = event.getContextData().getValue(key);
+        if (value != null) {
+            toAppendTo.append(value);
+        }
+    }
+
+    @Plugin(name = "CamelTraceIdPatternConverter", category = PatternConverter.CATEGORY)
+    @ConverterKeys("camelTraceId")
+    public static final class TraceId extends TraceContextPatternConverter {
+
+        private static final TraceId INSTANCE = new TraceId();
+
+        private TraceId() {
+            super("camelTraceId", TraceContextDataProvider.TRACE_ID_KEY);
+        }
+
+        public static TraceId newInstance(String[] options) {
+            return INSTANCE;
+        }
+    }
+
+    @Plugin(name = "CamelSpanIdPatternConverter", category = PatternConverter.CATEGORY)
+    @ConverterKeys("camelSpanId")
+    public static final class SpanId extends TraceContextPatternConverter {
+
+        private static final SpanId INSTANCE = new SpanId();
+
+        private SpanId() {
+            super("camelSpanId", TraceContextDataProvider.SPAN_ID_KEY);
+        }
+
+        public static SpanId newInstance(String[] options) {
+            return INSTANCE;
+        }
+    }
+
+    @Plugin(name = "CamelBaggagePatternConverter", category = PatternConverter.CATEGORY)
+    @ConverterKeys("camelBaggage")
+    public static final class Baggage extends TraceContextPatternConverter {
+
+        private Baggage(String field) {
+            super("camelBaggage", TraceContextDataProvider.BAGGAGE_KEY_PREFIX + field);
+        }
+
+        public static Baggage newInstance(String[] options) {
+            if (options == null || options.length == 0) {
+                throw new IllegalArgumentException("Baggage field name is required, like %camelBaggage{tenant-id}");
+            }
+            return new Baggage(options[0]);
+        }
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Playtika
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.playtika.sleuth.camel;
+
+import brave.propagation.TraceContext;
+import lombok.experimental.UtilityClass;
+import org.springframework.lang.Nullable;
+
+import java.util.Base64;
+
+/**
+ * Fixed-size binary form of a trace context, for exchanges persisted outside of the JVM, laid out like
+ * the w3c binary trace context: version, 16 bytes of trace id, 8 bytes of span id and flags, {@value #ENCODED_LENGTH} bytes in total.
+ * Header form is the same bytes in unpadded url-safe base64, as persistent repositories keep string headers only.
+ * <p>
+ * Baggage and parent ids are not kept, restored context is meant to be the parent of the span continuing the trace.
+ */
+@UtilityClass
+public class TraceStateCodec {
+
+    public static final int ENCODED_LENGTH = 26;
+
+    private static final byte VERSION = 0;
+    private static final byte SAMPLED = 1;
+    private static final byte SAMPLED_DECIDED = 2;
+    private static final byte DEBUG = 4;
+
+    public static byte[] encode(TraceContext context) {
+        byte[] encoded = new byte[ENCODED_LENGTH];
+        encode(context, encoded, 0);
+        return encoded;
+    }
+
+    public static void encode(TraceContext context, byte[] target, int offset) {
+        target[offset] = VERSION;
+        writeLong(context.traceIdHigh(), target, offset + 1);
+        writeLong(context.traceId(), target, offset + 9);
+        writeLong(context.spanId(), target, offset + 17);
+        Boolean sampled = context.sampled();
+        byte flags = 0;
+        if (sampled != null) {
+            flags |= SAMPLED_DECIDED;
+            if (sampled) {
+                flags |= SAMPLED;
+            }
+        }
+        if (context.debug()) {
+            flags |= DEBUG;
+        }
+        target[offset + 25] = flags;
+    }
+
+    /**
+     * Returns null for anything not encoded by this codec version, so a broken state never fails the exchange.
+     */
+    @Nullable
+    public static TraceContext decode(byte[] source, int offset) {
+        if (source.length - offset < ENCODED_LENGTH || source[offset] != VERSION) {
+            return null;
+        }
+        long traceId = readLong(source, offset + 9);
+        long spanId = readLong(source, offset + 17);
+        if (traceId == 0 || spanId == 0) {
+            return null;
+        }
+        byte flags = source[offset + 25];
+        TraceContext.Builder builder = TraceContext.newBuilder()
+                .traceIdHigh(readLong(source, offset + 1))
+                .traceId(traceId)
+                .spanId(spanId);
+        if ((flags & DEBUG) != 0) {
+            builder.debug(true);
+        } else if ((flags & SAMPLED_DECIDED) != 0) {
+            builder.sampled((flags & SAMPLED) != 0);
+        }
+        return builder.build();
+    }
+
+    public static String toHeaderValue(TraceContext context) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(encode(context));
+    }
+
+    @Nullable
+    public static TraceContext fromHeaderValue(@Nullable String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return decode(Base64.getUrlDecoder().decode(value), 0);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static void writeLong(long value, byte[] target, int offset) {
+        for (int i = 7; i >= 0; i--) {
+            target[offset + i] = (byte) value;
+            value >>>= 8;
+        }
+    }
+
+    private static long readLong(byte[] source, int offset) {
+        long value = 0;
+        for (int i = 0; i < 8; i++) {
+            value = (value << 8) | (source[offset + i] & 0xff);
+        }
+        return value;
+    }
+}
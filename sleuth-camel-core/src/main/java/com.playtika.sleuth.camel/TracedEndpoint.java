@@ -0,0 +1,81 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Playtika
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.playtika.sleuth.camel;
+
+import lombok.Getter;
+import org.apache.camel.Endpoint;
+import org.springframework.cloud.sleuth.internal.SpanNameUtil;
+import org.springframework.lang.Nullable;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Tracing metadata of an endpoint, computed once per endpoint rather than once per exchange.
+ */
+@Getter
+public class TracedEndpoint {
+
+    private static final String MESSAGE_COMPONENT = "camel";
+    private static final Set<String> QUEUE_SCHEMES = new HashSet<>(Arrays.asList("seda", "vm", "disruptor", "disruptor-vm"));
+
+    private final String spanName;
+    /**
+     * Whether exchanges sent to the endpoint wait in an in-memory queue before being consumed.
+     */
+    private final boolean queue;
+    /**
+     * Route consuming from the endpoint, if it is known, with its index in {@link RouteTracingToggles}.
+     */
+    @Nullable
+    private final String routeId;
+    private final int routeIndex;
+
+    public TracedEndpoint(Endpoint endpoint) {
+        this(endpoint, null, -1);
+    }
+
+    TracedEndpoint(Endpoint endpoint, @Nullable String routeId, int routeIndex) {
+        this.spanName = spanName(endpoint);
+        this.queue = isQueue(endpoint);
+        this.routeId = routeId;
+        this.routeIndex = routeIndex;
+    }
+
+    public boolean isConsumedBy(@Nullable String routeId) {
+        return this.routeId != null && this.routeId.equals(routeId);
+    }
+
+    static String spanName(Endpoint endpoint) {
+        return SpanNameUtil.shorten(MESSAGE_COMPONENT + "::" + endpoint.getEndpointKey());
+    }
+
+    static boolean isQueue(Endpoint endpoint) {
+        String endpointKey = endpoint.getEndpointKey();
+        int schemeEnd = endpointKey.indexOf(':');
+        return schemeEnd > 0 && QUEUE_SCHEMES.contains(endpointKey.substring(0, schemeEnd));
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Playtika
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.playtika.sleuth.camel;
+
+import brave.Tracing;
+import brave.propagation.TraceContext;
+import com.playtika.sleuth.camel.InFlightSpans.InFlightSpan;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.camel.Exchange;
+import org.apache.camel.Message;
+import org.apache.camel.spi.AggregationRepository;
+import org.springframework.util.ClassUtils;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import static com.playtika.sleuth.camel.SleuthCamelConstants.EXCHANGE_TRACE_STATE;
+
+/**
+ * Keeps trace context of exchanges parked in jdbc, leveldb or other persistent aggregation repositories.
+ * <p>
+ * Exchange properties and thread-local spans do not survive persistence, so the context of the exchange that started
+ * an aggregate is stored in {@link SleuthCamelConstants#EXCHANGE_TRACE_STATE} header in {@link TraceStateCodec} form.
+ * Once the aggregate is read back, on completion or recovery after restart, the context is injected into
+ * trace headers of its message again, and {@link CreatedEventNotifier} continues the trace it was parked in.
+ * The header is moved to the exchange property of the same name then, so it does not leak to routes down the line,
+ * while the aggregate stored again keeps its context.
+ * <p>
+ * The wrapper is a proxy implementing every interface of the wrapped repository, so camel still sees
+ * recoverable or optimistic locking repositories as such, and all their other calls are delegated as they are.
+ */
+@Slf4j
+public final class TracingAggregationRepository implements InvocationHandler {
+
+    private final AggregationRepository delegate;
+    private final Tracing tracing;
+    private final InFlightSpans inFlightSpans;
+    private final TraceContext.Injector<Message> injector;
+
+    private TracingAggregationRepository(AggregationRepository delegate, Tracing tracing, InFlightSpans inFlightSpans) {
+        this.delegate = delegate;
+        this.tracing = tracing;
+        this.inFlightSpans = inFlightSpans;
+        this.injector = tracing.propagation().injector(Message::setHeader);
+    }
+
+    public static AggregationRepository wrap(AggregationRepository delegate, Tracing tracing, InFlightSpans inFlightSpans) {
+        ClassLoader classLoader = delegate.getClass().getClassLoader();
+        return (AggregationRepository) Proxy.newProxyInstance(classLoader,
+                ClassUtils.getAllInterfacesForClass(delegate.getClass(), classLoader),
+                new TracingAggregationRepository(delegate, tracing, inFlightSpans));
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        switch (method.getName()) {
+            case "add":
+                // optimistic locking repositories get the old and the new aggregate, the new one is stored
+                saveTraceState((Exchange) args[args.length - 1]);
+                return restoreTraceState((Exchange) delegate(method, args));
+            case "get":
+            case "recover":
+                return restoreTraceState((Exchange) delegate(method, args));
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "toString":
+                return "TracingAggregationRepository[" + delegate + "]";
+            default:
+                return delegate(method, args);
+        }
+    }
+
+    private Object delegate(Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(delegate, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+    /**
+     * Aggregate keeps the context of the exchange it was started by, exchanges merged into it later do not replace it.
+     */
+    private void saveTraceState(Exchange exchange) {
+        Message message = exchange.getIn();
+        if (message.getHeader(EXCHANGE_TRACE_STATE) != null) {
+            return;
+        }
+        String restored = exchange.getProperty(EXCHANGE_TRACE_STATE, String.class);
+        if (restored != null) {
+            message.setHeader(EXCHANGE_TRACE_STATE, restored);
+            return;
+        }
+        TraceContext context = traceContext(exchange);
+        if (context != null) {
+            message.setHeader(EXCHANGE_TRACE_STATE, TraceStateCodec.toHeaderValue(context));
+        }
+    }
+
+    private TraceContext traceContext(Exchange exchange) {
+        InFlightSpan inFlightSpan = inFlightSpans.get(exchange.getExchangeId());
+        if (inFlightSpan != null) {
+            return inFlightSpan.getSpan().context();
+        }
+        // aggregates are copies of the exchange whose span is in scope
+        return tracing.currentTraceContext().get();
+    }
+
+    private Exchange restoreTraceState(Exchange exchange) {
+        if (exchange == null) {
+            return null;
+        }
+        Message message = exchange.getIn();
+        String state = message.getHeader(EXCHANGE_TRACE_STATE, String.class);
+        if (state == null) {
+            return exchange;
+        }
+        message.removeHeader(EXCHANGE_TRACE_STATE);
+        TraceContext context = TraceStateCodec.fromHeaderValue(state);
+        if (context != null) {
+            injector.inject(context, message);
+            exchange.setProperty(EXCHANGE_TRACE_STATE, state);
+        } else {
+            log.debug("Skipping unreadable trace state of exchange [{}].", exchange.getExchangeId());
+        }
+        return exchange;
+    }
+}
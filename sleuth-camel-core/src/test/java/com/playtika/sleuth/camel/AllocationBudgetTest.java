@@ -0,0 +1,189 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Playtika
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.playtika.sleuth.camel;
+
+import brave.handler.SpanHandler;
+import brave.sampler.Sampler;
+import com.sun.management.ThreadMXBean;
+import org.apache.camel.Endpoint;
+import org.apache.camel.Exchange;
+import org.apache.camel.ExtendedExchange;
+import org.apache.camel.ProducerTemplate;
+import org.apache.camel.builder.RouteBuilder;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.apache.camel.impl.event.ExchangeCompletedEvent;
+import org.apache.camel.impl.event.ExchangeCreatedEvent;
+import org.apache.camel.spi.CamelEvent;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Bytes allocated by the calling thread per traced exchange, from its creation till its completion.
+ * Exchanges and camel events are allocated upfront, so only the tracing path is measured.
+ */
+public class AllocationBudgetTest {
+
+    static final long UNSAMPLED_BUDGET_BYTES = 1024;
+    static final long SAMPLED_BUDGET_BYTES = 2048;
+    static final long INSTRUMENTED_ROUTE_BUDGET_BYTES = 2048;
+
+    private static final int WARMUP_EXCHANGES = 10_000;
+    private static final int MEASURED_EXCHANGES = 10_000;
+
+    @Test
+    public void shouldStayWithinBudgetWhenUnsampled() throws Exception {
+        assertThat(allocatedBytesPerExchange(Sampler.NEVER_SAMPLE)).isLessThanOrEqualTo(UNSAMPLED_BUDGET_BYTES);
+    }
+
+    @Test
+    public void shouldStayWithinBudgetWhenSampled() throws Exception {
+        assertThat(allocatedBytesPerExchange(Sampler.ALWAYS_SAMPLE)).isLessThanOrEqualTo(SAMPLED_BUDGET_BYTES);
+    }
+
+    /**
+     * Exchanges sent through a route carry camel allocations as well, so the budget applies to the difference
+     * from the same route left uninstrumented. Spans are bound to exchanges, so processors are wrapped
+     * with async continuations.
+     */
+    @Test
+    public void shouldStayWithinBudgetThroughInstrumentedRoute() throws Exception {
+        long uninstrumented = allocatedBytesPerRouteExchange(false);
+        long instrumented = allocatedBytesPerRouteExchange(true);
+
+        assertThat(instrumented - uninstrumented).isLessThanOrEqualTo(INSTRUMENTED_ROUTE_BUDGET_BYTES);
+    }
+
+    private static long allocatedBytesPerRouteExchange(boolean instrumented) throws Exception {
+        ThreadMXBean threadMXBean = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threadMXBean.isThreadAllocatedMemorySupported());
+        threadMXBean.setThreadAllocatedMemoryEnabled(true);
+
+        DefaultCamelContext camelContext = new DefaultCamelContext();
+        camelContext.addRoutes(new RouteBuilder() {
+            @Override
+            public void configure() {
+                from("direct:route").routeId("route")
+                        .setHeader("step", constant("first"))
+                        .process(exchange -> exchange.getIn().setHeader("step", "second"));
+            }
+        });
+        TracingFixture fixture = TracingFixture.create(Sampler.NEVER_SAMPLE, SpanHandler.NOOP);
+        try {
+            if (instrumented) {
+                CamelContextInstrumenter.newBuilder(fixture.getToggles())
+                        .eventNotifiers(fixture.notifiers(new RouteStartedEventNotifier()))
+                        .currentTraceContext(fixture.getCurrentTraceContext())
+                        .asyncContinuations(true)
+                        .build()
+                        .instrument(camelContext);
+            }
+            camelContext.start();
+            ProducerTemplate producerTemplate = camelContext.createProducerTemplate();
+
+            send(producerTemplate, WARMUP_EXCHANGES);
+            long threadId = Thread.currentThread().getId();
+            long allocatedBefore = threadMXBean.getThreadAllocatedBytes(threadId);
+            send(producerTemplate, MEASURED_EXCHANGES);
+            long allocated = threadMXBean.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+            return allocated / MEASURED_EXCHANGES;
+        } finally {
+            camelContext.stop();
+            fixture.close();
+        }
+    }
+
+    private static void send(ProducerTemplate producerTemplate, int count) {
+        for (int i = 0; i < count; i++) {
+            producerTemplate.sendBody("direct:route", "body");
+        }
+    }
+
+    private static long allocatedBytesPerExchange(Sampler sampler) throws Exception {
+        ThreadMXBean threadMXBean = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threadMXBean.isThreadAllocatedMemorySupported());
+        threadMXBean.setThreadAllocatedMemoryEnabled(true);
+
+        DefaultCamelContext camelContext = new DefaultCamelContext();
+        camelContext.addRoutes(new RouteBuilder() {
+            @Override
+            public void configure() {
+                from("direct:route").routeId("route").log("${body}");
+            }
+        });
+        TracingFixture fixture = TracingFixture.create(sampler, new SpanHandler() {
+        });
+        try {
+            CreatedEventNotifier createdEventNotifier = fixture.createdEventNotifier();
+            SentEventNotifier sentEventNotifier = fixture.sentEventNotifier();
+            new CamelContextInstrumenter(fixture.getToggles(), Collections.singletonList(new RouteStartedEventNotifier())).instrument(camelContext);
+            camelContext.start();
+            Endpoint endpoint = camelContext.getRoute("route").getEndpoint();
+
+            trace(createdEventNotifier, sentEventNotifier, events(endpoint, WARMUP_EXCHANGES));
+            List<CamelEvent[]> events = events(endpoint, MEASURED_EXCHANGES);
+
+            long threadId = Thread.currentThread().getId();
+            long allocatedBefore = threadMXBean.getThreadAllocatedBytes(threadId);
+            trace(createdEventNotifier, sentEventNotifier, events);
+            long allocated = threadMXBean.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+            assertThat(fixture.getInFlightSpans().size()).isZero();
+            return allocated / MEASURED_EXCHANGES;
+        } finally {
+            camelContext.stop();
+            fixture.close();
+        }
+    }
+
+    private static void trace(CreatedEventNotifier createdEventNotifier, SentEventNotifier sentEventNotifier,
+                              List<CamelEvent[]> events) {
+        for (int i = 0; i < events.size(); i++) {
+            CamelEvent[] exchangeEvents = events.get(i);
+            createdEventNotifier.notify(exchangeEvents[0]);
+            sentEventNotifier.notify(exchangeEvents[1]);
+        }
+    }
+
+    private static List<CamelEvent[]> events(Endpoint endpoint, int count) {
+        List<CamelEvent[]> events = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Exchange exchange = endpoint.createExchange();
+            exchange.adapt(ExtendedExchange.class).setFromRouteId("route");
+            // headers and properties maps are allocated lazily by camel itself
+            exchange.getIn().getHeaders();
+            exchange.getProperties();
+            events.add(new CamelEvent[]{new ExchangeCreatedEvent(exchange), new ExchangeCompletedEvent(exchange)});
+        }
+        return events;
+    }
+}
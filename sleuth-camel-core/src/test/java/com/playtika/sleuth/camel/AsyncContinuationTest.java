@@ -0,0 +1,119 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Playtika
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.playtika.sleuth.camel;
+
+import brave.Span;
+import brave.Tracer;
+import brave.handler.MutableSpan;
+import brave.test.TestSpanHandler;
+import org.apache.camel.AsyncCallback;
+import org.apache.camel.Exchange;
+import org.apache.camel.ProducerTemplate;
+import org.apache.camel.builder.RouteBuilder;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.apache.camel.support.AsyncProcessorSupport;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.playtika.sleuth.camel.CreatedEventNotifier.EXCHANGE_ID_TAG_ANNOTATION;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AsyncContinuationTest {
+
+    private final TestSpanHandler spans = new TestSpanHandler();
+    private final TracingFixture fixture = TracingFixture.create(spans);
+    private final Tracer tracer = fixture.getTracer();
+    private final ExecutorService asyncThread = Executors.newSingleThreadExecutor();
+    private final AtomicReference<Span> spanAfterContinuation = new AtomicReference<>();
+    private final AtomicReference<Thread> threadAfterContinuation = new AtomicReference<>();
+
+    private DefaultCamelContext camelContext;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        CamelContextInstrumenter instrumenter = CamelContextInstrumenter.newBuilder(fixture.getToggles())
+                .eventNotifiers(fixture.notifiers())
+                .currentTraceContext(fixture.getCurrentTraceContext())
+                .asyncContinuations(true)
+                .build();
+
+        camelContext = new DefaultCamelContext();
+        camelContext.addRoutes(new RouteBuilder() {
+            @Override
+            public void configure() {
+                from("direct:async").routeId("async")
+                        .process(new AsyncProcessorSupport() {
+                            @Override
+                            public boolean process(Exchange exchange, AsyncCallback callback) {
+                                asyncThread.execute(() -> callback.done(false));
+                                return false;
+                            }
+                        })
+                        .process(exchange -> {
+                            spanAfterContinuation.set(tracer.currentSpan());
+                            threadAfterContinuation.set(Thread.currentThread());
+                        });
+            }
+        });
+        instrumenter.instrument(camelContext);
+        camelContext.start();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        camelContext.stop();
+        asyncThread.shutdownNow();
+        fixture.close();
+    }
+
+    @Test
+    public void shouldCarrySpanAcrossAsyncContinuation() throws Exception {
+        ProducerTemplate producer = camelContext.createProducerTemplate();
+
+        Exchange exchange = producer.send("direct:async", e -> e.getIn().setBody("body"));
+
+        assertThat(spans.spans()).hasSize(1);
+        MutableSpan span = spans.get(0);
+        assertThat(span.tag(EXCHANGE_ID_TAG_ANNOTATION)).isEqualTo(exchange.getExchangeId());
+        assertThat(threadAfterContinuation.get()).isNotSameAs(Thread.currentThread());
+        assertThat(spanAfterContinuation.get()).isNotNull();
+        assertThat(spanAfterContinuation.get().context().spanIdString()).isEqualTo(span.id());
+    }
+
+    @Test
+    public void shouldNotLeakSpanIntoThreads() throws Exception {
+        ProducerTemplate producer = camelContext.createProducerTemplate();
+
+        producer.sendBody("direct:async", "body");
+
+        assertThat(tracer.currentSpan()).isNull();
+        assertThat(asyncThread.submit(tracer::currentSpan).get()).isNull();
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Playtika
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.playtika.sleuth.camel;
+
+import brave.Span;
+import brave.Tracer;
+import brave.Tracing;
+import brave.baggage.BaggageField;
+import brave.baggage.BaggagePropagation;
+import brave.baggage.BaggagePropagationConfig.SingleBaggageField;
+import brave.propagation.B3Propagation;
+import brave.test.TestSpanHandler;
+import org.apache.camel.Message;
+import org.apache.camel.builder.RouteBuilder;
+import org.apache.camel.component.mock.MockEndpoint;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BaggageAllowlistTest {
+
+    private static final BaggageField TENANT_ID = BaggageField.create("tenant-id");
+    private static final BaggageField USER_ID = BaggageField.create("user-id");
+
+    private final TracingFixture fixture = TracingFixture.create(Tracing.newBuilder()
+            .propagationFactory(BaggagePropagation.newFactoryBuilder(B3Propagation.FACTORY)
+                    .add(SingleBaggageField.remote(TENANT_ID))
+                    .add(SingleBaggageField.remote(USER_ID))
+                    .build())
+            .addSpanHandler(new TestSpanHandler()));
+
+    private DefaultCamelContext camelContext;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        Map<String, List<String>> allowlist = new LinkedHashMap<>();
+        allowlist.put("direct:tenant*", Collections.singletonList("Tenant-Id"));
+        CamelContextInstrumenter instrumenter = new CamelContextInstrumenter(fixture.getToggles(), Arrays.asList(
+                fixture.createdEventNotifierBuilder().baggageAllowlist(new BaggageAllowlist(allowlist)).build(),
+                fixture.sentEventNotifier()));
+
+        camelContext = new DefaultCamelContext();
+        camelContext.addRoutes(new RouteBuilder() {
+            @Override
+            public void configure() {
+                from("direct:tenantRoute").routeId("tenantRoute").to("mock:tenant");
+                from("direct:other").routeId("other").to("mock:other");
+            }
+        });
+        instrumenter.instrument(camelContext);
+        camelContext.start();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        camelContext.stop();
+        fixture.close();
+    }
+
+    @Test
+    public void shouldPropagateAllowedBaggageOnly() throws Exception {
+        MockEndpoint mock = camelContext.getEndpoint("mock:tenant", MockEndpoint.class);
+        mock.expectedMessageCount(1);
+
+        sendWithBaggage("direct:tenantRoute");
+
+        mock.assertIsSatisfied();
+        Message message = mock.getReceivedExchanges().get(0).getIn();
+        assertThat(message.getHeader("tenant-id")).isEqualTo("tenant");
+        assertThat(message.getHeaders()).doesNotContainKey("user-id");
+        assertThat(message.getHeaders()).containsKeys("X-B3-TraceId", "X-B3-SpanId");
+    }
+
+    @Test
+    public void shouldNotPropagateBaggageOfNotMatchingEndpoint() throws Exception {
+        MockEndpoint mock = camelContext.getEndpoint("mock:other", MockEndpoint.class);
+        mock.expectedMessageCount(1);
+
+        sendWithBaggage("direct:other");
+
+        mock.assertIsSatisfied();
+        Message message = mock.getReceivedExchanges().get(0).getIn();
+        assertThat(message.getHeaders()).doesNotContainKeys("tenant-id", "user-id");
+        assertThat(message.getHeaders()).containsKeys("X-B3-TraceId", "X-B3-SpanId");
+    }
+
+    @Test
+    public void shouldDropNotAllowedBaggageOfExtractedContext() throws Exception {
+        MockEndpoint mock = camelContext.getEndpoint("mock:tenant", MockEndpoint.class);
+        mock.expectedMessageCount(1);
+        AtomicReference<String> userIdInRoute = new AtomicReference<>("not captured");
+        mock.whenAnyExchangeReceived(exchange -> userIdInRoute.set(USER_ID.getValue()));
+        Map<String, Object> headers = new HashMap<>();
+        headers.put("X-B3-TraceId", "463ac35c9f6413ad");
+        headers.put("X-B3-SpanId", "463ac35c9f6413ad");
+        headers.put("tenant-id", "tenant");
+        headers.put("user-id", "user");
+
+        camelContext.createProducerTemplate().sendBodyAndHeaders("direct:tenantRoute", "body", headers);
+
+        mock.assertIsSatisfied();
+        Message message = mock.getReceivedExchanges().get(0).getIn();
+        assertThat(message.getHeader("tenant-id")).isEqualTo("tenant");
+        assertThat(message.getHeaders()).doesNotContainKey("user-id");
+        assertThat(message.getHeader("X-B3-TraceId")).isEqualTo("463ac35c9f6413ad");
+        assertThat(userIdInRoute.get()).isNull();
+    }
+
+    private void sendWithBaggage(String uri) {
+        Span span = fixture.getTracer().nextSpan().start();
+        TENANT_ID.updateValue(span.context(), "tenant");
+        USER_ID.updateValue(span.context(), "user");
+        try (Tracer.SpanInScope ignored = fixture.getTracer().withSpanInScope(span)) {
+            camelContext.createProducerTemplate().sendBody(uri, "body");
+        } finally {
+            span.finish();
+        }
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Playtika
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.playtika.sleuth.camel;
+
+import org.apache.camel.ProducerTemplate;
+import org.apache.camel.builder.RouteBuilder;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.apache.camel.spi.CamelEvent;
+import org.apache.camel.support.EventNotifierSupport;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CamelContextInstrumenterTest {
+
+    private final CamelTracingToggles toggles = new CamelTracingToggles();
+    private final CreatedEventsCollector collector = new CreatedEventsCollector();
+    private final CamelContextInstrumenter instrumenter = new CamelContextInstrumenter(toggles, Collections.singletonList(collector));
+
+    private final DefaultCamelContext firstContext = camelContext("first");
+    private final DefaultCamelContext secondContext = camelContext("second");
+
+    @AfterEach
+    public void tearDown() {
+        firstContext.stop();
+        secondContext.stop();
+    }
+
+    @Test
+    public void shouldInstrumentContextOnce() {
+        int notifiersBefore = firstContext.getManagementStrategy().getEventNotifiers().size();
+
+        instrumenter.instrument(firstContext);
+        instrumenter.instrument(firstContext);
+
+        assertThat(firstContext.getManagementStrategy().getEventNotifiers()).hasSize(notifiersBefore + 1);
+        assertThat(CamelContextTracing.of(firstContext)).isNotNull();
+    }
+
+    @Test
+    public void shouldNotWrapAlreadyRegisteredNotifier() {
+        firstContext.getManagementStrategy().addEventNotifier(collector);
+        int notifiersBefore = firstContext.getManagementStrategy().getEventNotifiers().size();
+
+        instrumenter.instrument(firstContext);
+
+        assertThat(firstContext.getManagementStrategy().getEventNotifiers()).hasSize(notifiersBefore);
+    }
+
+    @Test
+    public void shouldKeepRouteTogglesOfContextsApart() {
+        instrumenter.instrument(firstContext);
+        instrumenter.instrument(secondContext);
+
+        toggles.setRouteEnabled("first", "route", false);
+
+        assertThat(CamelContextTracing.of(firstContext).getRouteToggles().isTracingEnabled("route")).isFalse();
+        assertThat(CamelContextTracing.of(secondContext).getRouteToggles().isTracingEnabled("route")).isTrue();
+    }
+
+    @Test
+    public void shouldDeliverEventsOfEveryContextAfterOneIsStopped() throws Exception {
+        instrumenter.instrument(firstContext);
+        instrumenter.instrument(secondContext);
+        firstContext.start();
+        secondContext.start();
+
+        firstContext.stop();
+        ProducerTemplate producer = secondContext.createProducerTemplate();
+        producer.sendBody("direct:route", "body");
+
+        assertThat(collector.contexts).containsExactly("second");
+    }
+
+    @Test
+    public void shouldResolveNotifiersWhenContextIsInstrumented() {
+        AtomicInteger resolved = new AtomicInteger();
+        CamelContextInstrumenter lazyInstrumenter = CamelContextInstrumenter.newBuilder(toggles)
+                .lazyEventNotifiers(() -> {
+                    resolved.incrementAndGet();
+                    return Collections.singletonList(collector);
+                })
+                .build();
+        assertThat(resolved).hasValue(0);
+
+        lazyInstrumenter.instrument(firstContext);
+
+        assertThat(resolved).hasValue(1);
+    }
+
+    @Test
+    public void shouldInstrumentContextsInitializedWithSingletonsOnceSingletonsAreCreated() {
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        beanFactory.addBean("camelContextInstrumenter", instrumenter);
+        SleuthCamelAutoConfiguration.CamelContextInstrumenterPostProcessor postProcessor =
+                new SleuthCamelAutoConfiguration.CamelContextInstrumenterPostProcessor(beanFactory.getBeanProvider(CamelContextInstrumenter.class));
+
+        postProcessor.postProcessAfterInitialization(firstContext, "first");
+        assertThat(CamelContextTracing.of(firstContext)).isNull();
+
+        postProcessor.afterSingletonsInstantiated();
+        assertThat(CamelContextTracing.of(firstContext)).isNotNull();
+
+        postProcessor.postProcessAfterInitialization(secondContext, "second");
+        assertThat(CamelContextTracing.of(secondContext)).isNotNull();
+    }
+
+    private static DefaultCamelContext camelContext(String name) {
+        DefaultCamelContext camelContext = new DefaultCamelContext();
+        camelContext.setName(name);
+        try {
+            camelContext.addRoutes(new RouteBuilder() {
+                @Override
+                public void configure() {
+                    from("direct:route").routeId("route").log("${body}");
+                }
+            });
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+        return camelContext;
+    }
+
+    private static class CreatedEventsCollector extends EventNotifierSupport {
+
+        private final List<String> contexts = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public void notify(CamelEvent event) {
+            contexts.add(((CamelEvent.ExchangeCreatedEvent) event).getExchange().getContext().getName());
+        }
+
+        @Override
+        public boolean isEnabled(CamelEvent event) {
+            return event instanceof CamelEvent.ExchangeCreatedEvent;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Playtika
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.playtika.sleuth.camel;
+
+import brave.propagation.CurrentTraceContext.Scope;
+import brave.propagation.CurrentTraceContext.ScopeDecorator;
+import brave.propagation.TraceContext;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class CamelThreadScopeDecoratorTest {
+
+    private final TraceContext context = TraceContext.newBuilder().traceId(1).spanId(2).build();
+
+    @Mock
+    private ScopeDecorator delegate;
+    @Mock
+    private Scope scope;
+    @Mock
+    private Scope decoratedScope;
+
+    @Test
+    public void shouldDecorateScopeOnOtherThreads() {
+        when(delegate.decorateScope(context, scope)).thenReturn(decoratedScope);
+
+        Scope result = new CamelThreadScopeDecorator(delegate).decorateScope(context, scope);
+
+        assertThat(result).isSameAs(decoratedScope);
+    }
+
+    @Test
+    public void shouldSkipDecoratorForCamelSpansOnCamelThreads() throws Exception {
+        CamelThreadScopeDecorator decorator = new CamelThreadScopeDecorator(delegate);
+
+        Scope result = decorateOnThread(decorator, true, "Camel (camel-1) thread #1 - seda://queue");
+
+        assertThat(result).isSameAs(scope);
+        verifyNoInteractions(delegate);
+    }
+
+    @Test
+    public void shouldDecorateUserSpansOnCamelThreads() throws Exception {
+        when(delegate.decorateScope(context, scope)).thenReturn(decoratedScope);
+        CamelThreadScopeDecorator decorator = new CamelThreadScopeDecorator(delegate);
+
+        Scope result = decorateOnThread(decorator, false, "Camel (camel-1) thread #1 - seda://queue");
+
+        assertThat(result).isSameAs(decoratedScope);
+    }
+
+    @Test
+    public void shouldRecognizeCamelThreadsByConfiguredPrefix() throws Exception {
+        CamelThreadScopeDecorator decorator = new CamelThreadScopeDecorator(delegate, "orders-");
+
+        Scope result = decorateOnThread(decorator, true, "orders-1");
+
+        assertThat(result).isSameAs(scope);
+        verifyNoInteractions(delegate);
+    }
+
+    private Scope decorateOnThread(CamelThreadScopeDecorator decorator, boolean camelSpan, String threadName) throws InterruptedException {
+        AtomicReference<Scope> result = new AtomicReference<>();
+        Thread thread = new Thread(() -> {
+            boolean camelSpanScope = camelSpan && CamelThreadScopeDecorator.beginCamelSpanScope();
+            try {
+                result.set(decorator.decorateScope(context, scope));
+            } finally {
+                CamelThreadScopeDecorator.endCamelSpanScope(camelSpanScope);
+            }
+        }, threadName);
+        thread.start();
+        thread.join();
+        return result.get();
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Playtika
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.playtika.sleuth.camel;
+
+import org.apache.camel.CamelContext;
+import org.apache.camel.Endpoint;
+import org.apache.camel.Exchange;
+import org.apache.camel.Route;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class CamelTracingTogglesTest {
+
+    private final CamelTracingToggles toggles = new CamelTracingToggles();
+
+    @Test
+    public void shouldBeEnabledByDefault() {
+        assertThat(toggles.isEnabled()).isTrue();
+        assertThat(toggles.isTracingEnabled(exchange("someContext", "someRoute"))).isTrue();
+        assertThat(toggles.isTracingEnabled(exchange(null, "someRoute"))).isTrue();
+        assertThat(toggles.getDisabledRoutes()).isEmpty();
+    }
+
+    @Test
+    public void shouldDisableAllRoutes() {
+        toggles.setEnabled(false);
+
+        assertThat(toggles.isTracingEnabled(exchange("someContext", "someRoute"))).isFalse();
+        assertThat(toggles.isTracingEnabled(exchange(null, "someRoute"))).isFalse();
+    }
+
+    @Test
+    public void shouldDisableRouteInAllContexts() {
+        toggles.register("someContext");
+        toggles.register("otherContext");
+
+        toggles.disableRoute("someRoute");
+
+        assertThat(toggles.isTracingEnabled(exchange("someContext", "someRoute"))).isFalse();
+        assertThat(toggles.isTracingEnabled(exchange("otherContext", "someRoute"))).isFalse();
+        assertThat(toggles.isTracingEnabled(exchange("someContext", "otherRoute"))).isTrue();
+    }
+
+    @Test
+    public void shouldDisableRouteInSingleContext() {
+        toggles.register("otherContext");
+
+        toggles.setRouteEnabled("someContext", "someRoute", false);
+
+        assertThat(toggles.isTracingEnabled(exchange("someContext", "someRoute"))).isFalse();
+        assertThat(toggles.isTracingEnabled(exchange("otherContext", "someRoute"))).isTrue();
+        assertThat(toggles.getDisabledRoutes()).containsOnly(
+                entry("someContext", Collections.singleton("someRoute")));
+    }
+
+    @Test
+    public void shouldReEnableRoute() {
+        RouteTracingToggles routeToggles = toggles.register("someContext");
+        routeToggles.setRouteEnabled("someRoute", false);
+        routeToggles.setRouteEnabled("otherRoute", false);
+
+        routeToggles.setRouteEnabled("someRoute", true);
+
+        assertThat(routeToggles.isTracingEnabled("someRoute")).isTrue();
+        assertThat(routeToggles.isTracingEnabled("otherRoute")).isFalse();
+        assertThat(routeToggles.isTracingEnabled(null)).isTrue();
+        assertThat(routeToggles.getDisabledRoutes()).containsExactly("otherRoute");
+    }
+
+    @Test
+    public void shouldKeepRouteToggleWhenDisabledGlobally() {
+        toggles.setRouteEnabled("someContext", "someRoute", false);
+        toggles.setEnabled(false);
+        toggles.setEnabled(true);
+
+        assertThat(toggles.isTracingEnabled(exchange("someContext", "someRoute"))).isFalse();
+        assertThat(toggles.isTracingEnabled(exchange("someContext", "otherRoute"))).isTrue();
+    }
+
+    @Test
+    public void shouldReadToggleOfPreparedRouteByIndex() {
+        CamelContextTracing contextTracing = new CamelContextTracing(toggles.register("someContext"));
+        Endpoint endpoint = mock(Endpoint.class);
+        when(endpoint.getEndpointKey()).thenReturn("seda://someQueue");
+        Route route = mock(Route.class);
+        when(route.getRouteId()).thenReturn("someRoute");
+        when(route.getEndpoint()).thenReturn(endpoint);
+        contextTracing.prepare(route);
+        TracedEndpoint fromEndpoint = contextTracing.endpoint(endpoint);
+
+        toggles.setRouteEnabled("someContext", "someRoute", false);
+
+        assertThat(fromEndpoint.isConsumedBy("someRoute")).isTrue();
+        assertThat(toggles.isTracingEnabled(contextTracing, fromEndpoint, "someRoute")).isFalse();
+        assertThat(toggles.isTracingEnabled(contextTracing, fromEndpoint, "otherRoute")).isTrue();
+        assertThat(toggles.isTracingEnabled(contextTracing, null, "someRoute")).isFalse();
+        toggles.setRouteEnabled("someContext", "someRoute", true);
+        assertThat(toggles.isTracingEnabled(contextTracing, fromEndpoint, "someRoute")).isTrue();
+    }
+
+    private Exchange exchange(String contextName, String routeId) {
+        Exchange exchange = mock(Exchange.class);
+        when(exchange.getFromRouteId()).thenReturn(routeId);
+        if (contextName != null) {
+            CamelContext camelContext = mock(CamelContext.class);
+            when(camelContext.getExtension(CamelContextTracing.class)).thenReturn(new CamelContextTracing(toggles.register(contextName)));
+            when(exchange.getContext()).thenReturn(camelContext);
+        }
+        return exchange;
+    }
+}
@@ -184,7 +184,6 @@ public class CreatedEventNotifierTest {
         notifier.notify(event);
 
         verify(tracing, times(2)).propagation();
-        verify(tracer).currentSpan();
         verify(threadLocalSpan).next(Mockito.any());
         verify(span).name("camel::" + endpointKet);
         verify(span).start();
@@ -195,6 +194,21 @@ public class CreatedEventNotifierTest {
         verifyNoMoreInteractions(tracing, threadLocalSpan, span);
     }
 
+    @Test
+    public void shouldSkipWhenTracingIsDisabled() {
+        CamelTracingToggles toggles = new CamelTracingToggles();
+        toggles.setEnabled(false);
+        CreatedEventNotifier notifier = CreatedEventNotifier.newBuilder(tracing, threadLocalSpan, tracer).toggles(toggles).build();
+        CamelEvent.ExchangeCreatedEvent event = mock(CamelEvent.ExchangeCreatedEvent.class);
+        Exchange exchange = mock(Exchange.class);
+
+        when(event.getExchange()).thenReturn(exchange);
+
+        notifier.notify(event);
+
+        verifyNoInteractions(threadLocalSpan, tracer, extractor, injector);
+    }
+
     @Test
     public void shouldBeEnabledInCaseOfCreatedEvent() {
         CamelEvent event = new ExchangeCreatedEvent(mock(Exchange.class));
@@ -0,0 +1,153 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Playtika
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.playtika.sleuth.camel;
+
+import brave.handler.MutableSpan;
+import brave.test.TestSpanHandler;
+import com.playtika.sleuth.camel.EventRecordReader.EventRecord;
+import org.apache.camel.builder.RouteBuilder;
+import org.apache.camel.component.mock.MockEndpoint;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.apache.camel.spi.EventNotifier;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static com.playtika.sleuth.camel.CreatedEventNotifier.EXCHANGE_ID_TAG_ANNOTATION;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class EventReplayerTest {
+
+    private final List<TracingFixture> fixtures = new ArrayList<>();
+
+    @AfterEach
+    public void tearDown() {
+        fixtures.forEach(TracingFixture::close);
+    }
+
+    @Test
+    public void shouldReplayRecordedRunIntoSameSpans() throws Exception {
+        TestSpanHandler recordedSpans = new TestSpanHandler();
+        EventRecorder recorder = new EventRecorder(1024 * 1024);
+        DefaultCamelContext camelContext = new DefaultCamelContext();
+        camelContext.addRoutes(new RouteBuilder() {
+            @Override
+            public void configure() {
+                from("direct:start").routeId("start").to("seda:queue");
+                from("seda:queue").routeId("queue").to("mock:end");
+                from("direct:fail").routeId("fail").throwException(new IllegalArgumentException("boom"));
+            }
+        });
+        List<EventNotifier> notifiers = new ArrayList<>();
+        // ahead of tracing notifiers, so created events are recorded with headers messages came with
+        notifiers.add(recorder);
+        notifiers.addAll(notifiers(recordedSpans));
+        new CamelContextInstrumenter(new CamelTracingToggles(), notifiers).instrument(camelContext);
+        camelContext.start();
+        MockEndpoint mock = camelContext.getEndpoint("mock:end", MockEndpoint.class);
+        mock.expectedMessageCount(5);
+        for (int i = 0; i < 5; i++) {
+            camelContext.createProducerTemplate().sendBody("direct:start", i);
+            camelContext.createProducerTemplate().send("direct:fail", exchange -> exchange.getIn().setBody("fail"));
+        }
+        mock.assertIsSatisfied();
+        camelContext.stop();
+
+        Path file = Files.createTempFile("camel-events", ".rec");
+        recorder.save(file);
+        List<EventRecord> records = EventRecordReader.read(file);
+        Files.delete(file);
+
+        TestSpanHandler replayedSpans = new TestSpanHandler();
+        try (EventReplayer replayer = new EventReplayer(new DefaultCamelContext(), notifiers(replayedSpans))) {
+            replayer.replay(records);
+        }
+
+        assertThat(records).hasSize((int) recorder.getEvents());
+        assertThat(recorder.getDroppedEvents()).isZero();
+        assertThat(replayedSpans.spans()).isNotEmpty();
+        assertThat(childrenOf(replayedSpans)).isEqualTo(childrenOf(recordedSpans)).isEqualTo(5);
+        assertThat(shapeOf(replayedSpans)).isEqualTo(shapeOf(recordedSpans));
+    }
+
+    @Test
+    public void shouldStopRecordingAtSizeLimit() throws Exception {
+        EventRecorder recorder = new EventRecorder(64);
+        DefaultCamelContext camelContext = new DefaultCamelContext();
+        camelContext.addRoutes(new RouteBuilder() {
+            @Override
+            public void configure() {
+                from("direct:start").routeId("start").to("mock:end");
+            }
+        });
+        camelContext.getManagementStrategy().addEventNotifier(recorder);
+        camelContext.start();
+        for (int i = 0; i < 10; i++) {
+            camelContext.createProducerTemplate().sendBody("direct:start", i);
+        }
+        camelContext.stop();
+
+        List<EventRecord> records = EventRecordReader.read(recorder.toByteArray());
+
+        assertThat(recorder.getDroppedEvents()).isPositive();
+        assertThat(records).hasSize((int) recorder.getEvents());
+        assertThat(records.get(0).isCreated()).isTrue();
+        assertThat(records.get(0).getRouteId()).isEqualTo("start");
+    }
+
+    private List<EventNotifier> notifiers(TestSpanHandler spans) {
+        TracingFixture fixture = TracingFixture.create(spans);
+        fixtures.add(fixture);
+        return fixture.notifiers();
+    }
+
+    private static long childrenOf(TestSpanHandler spans) {
+        return spans.spans().stream().filter(span -> span.parentId() != null).count();
+    }
+
+    /**
+     * Span ids differ between runs, spans are compared by name, error and exchange id of their parent.
+     */
+    private static List<String> shapeOf(TestSpanHandler spans) {
+        Map<String, MutableSpan> byId = spans.spans().stream()
+                .collect(Collectors.toMap(MutableSpan::id, Function.identity()));
+        return spans.spans().stream()
+                .map(span -> {
+                    MutableSpan parent = span.parentId() != null ? byId.get(span.parentId()) : null;
+                    return span.tag(EXCHANGE_ID_TAG_ANNOTATION) + " " + span.name()
+                            + " error=" + (span.error() != null)
+                            + " parent=" + (parent != null ? parent.tag(EXCHANGE_ID_TAG_ANNOTATION) : null);
+                })
+                .sorted()
+                .collect(Collectors.toList());
+    }
+}
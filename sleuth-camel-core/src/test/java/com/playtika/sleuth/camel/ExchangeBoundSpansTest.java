@@ -0,0 +1,82 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Playtika
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.playtika.sleuth.camel;
+
+import brave.Span;
+import brave.Tracer;
+import brave.Tracing;
+import brave.propagation.TraceContextOrSamplingFlags;
+import org.apache.camel.Exchange;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.apache.camel.support.DefaultExchange;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ExchangeBoundSpansTest {
+
+    private final TracingFixture fixture = TracingFixture.create(Tracing.newBuilder());
+    private final Tracer tracer = fixture.getTracer();
+    private final ExchangeBoundSpans exchangeBoundSpans = new ExchangeBoundSpans(tracer);
+    private final Exchange exchange = new DefaultExchange(new DefaultCamelContext());
+
+    @AfterEach
+    public void tearDown() {
+        fixture.close();
+    }
+
+    @Test
+    public void shouldBindSpanToExchangeWithoutPuttingItInScope() {
+        Span span = exchangeBoundSpans.next(exchange, TraceContextOrSamplingFlags.EMPTY);
+
+        assertThat(ExchangeBoundSpans.isBound(exchange)).isTrue();
+        assertThat(ExchangeBoundSpans.context(exchange)).isEqualTo(span.context());
+        assertThat(tracer.currentSpan()).isNull();
+
+        assertThat(exchangeBoundSpans.remove(exchange)).isSameAs(span);
+        assertThat(ExchangeBoundSpans.isBound(exchange)).isFalse();
+    }
+
+    @Test
+    public void shouldNotLeaveScopeOnCreatingThreadWhenCompletedOnAnother() throws Exception {
+        Span span = exchangeBoundSpans.next(exchange, TraceContextOrSamplingFlags.EMPTY);
+        AtomicReference<Span> removed = new AtomicReference<>();
+
+        Thread thread = new Thread(() -> removed.set(exchangeBoundSpans.remove(exchange)));
+        thread.start();
+        thread.join();
+
+        assertThat(removed.get()).isSameAs(span);
+        assertThat(tracer.currentSpan()).isNull();
+    }
+
+    @Test
+    public void shouldReturnNullIfNothingBound() {
+        assertThat(exchangeBoundSpans.remove(exchange)).isNull();
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Playtika
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.playtika.sleuth.camel;
+
+import brave.handler.MutableSpan;
+import brave.test.TestSpanHandler;
+import org.apache.camel.Exchange;
+import org.apache.camel.builder.RouteBuilder;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ExchangeBranchTest {
+
+    private final TestSpanHandler spans = new TestSpanHandler();
+    private final TracingFixture fixture = TracingFixture.create(spans);
+
+    private DefaultCamelContext camelContext;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        CamelContextInstrumenter instrumenter = fixture.instrumenter();
+
+        camelContext = new DefaultCamelContext();
+        camelContext.addRoutes(new RouteBuilder() {
+            @Override
+            public void configure() {
+                from("direct:multicast").routeId("multicast")
+                        .multicast().parallelProcessing().to("direct:fast", "direct:slow").end();
+                from("direct:recipientList").routeId("recipientList")
+                        .recipientList(constant("direct:fast,direct:slow")).parallelProcessing();
+                from("direct:multicastThenQueue").routeId("multicastThenQueue")
+                        .multicast().to("direct:fast", "direct:slow").end()
+                        .to("seda:afterMulticast?waitForTaskToComplete=Always");
+                from("seda:afterMulticast").routeId("afterMulticast").log("${body}");
+                from("direct:fast").routeId("fast").log("${body}");
+                from("direct:slow").routeId("slow").delay(20);
+            }
+        });
+        instrumenter.instrument(camelContext);
+        camelContext.start();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        camelContext.stop();
+        fixture.close();
+    }
+
+    @Test
+    public void shouldTraceMulticastBranchesAsChildren() {
+        Exchange exchange = camelContext.createProducerTemplate().send("direct:multicast", e -> e.getIn().setBody("body"));
+
+        assertBranches(exchange, "camel::multicast-0", "camel::multicast-1");
+    }
+
+    @Test
+    public void shouldTraceRecipientListBranchesAsChildren() {
+        Exchange exchange = camelContext.createProducerTemplate().send("direct:recipientList", e -> e.getIn().setBody("body"));
+
+        assertBranches(exchange, "camel::direct://fast", "camel::direct://slow");
+    }
+
+    @Test
+    public void shouldNotTakeExchangesAfterFanOutForBranches() {
+        Exchange exchange = camelContext.createProducerTemplate().send("direct:multicastThenQueue", e -> e.getIn().setBody("body"));
+
+        // the queued copy carries branch properties of the aggregated result, but the fan-out is over by then
+        assertBranches(exchange, "camel::multicast-0", "camel::multicast-1");
+        assertThat(spans.spans()).filteredOn(span -> "camel::seda://afterMulticast".equals(span.name()))
+                .singleElement()
+                .satisfies(span -> assertThat(span.tag(ExchangeBranch.BRANCH_INDEX_TAG)).isNull());
+    }
+
+    private void assertBranches(Exchange exchange, String... branchNames) {
+        MutableSpan parent = spans.spans().stream()
+                .filter(span -> exchange.getExchangeId().equals(span.tag(CreatedEventNotifier.EXCHANGE_ID_TAG_ANNOTATION)))
+                .findFirst()
+                .orElseThrow(IllegalStateException::new);
+        List<MutableSpan> branches = spans.spans().stream()
+                .filter(span -> span.tag(ExchangeBranch.BRANCH_INDEX_TAG) != null)
+                .collect(Collectors.toList());
+
+        assertThat(branches).extracting(MutableSpan::name).containsExactlyInAnyOrder(branchNames);
+        assertThat(branches).allSatisfy(branch -> {
+            assertThat(branch.traceId()).isEqualTo(parent.traceId());
+            assertThat(branch.parentId()).isEqualTo(parent.id());
+        });
+        assertThat(parent.annotations()).extracting(Map.Entry::getValue)
+                .contains(ExchangeBranch.EXCHANGE_EVENT_BRANCH_COMPLETED_ANNOTATION + " index=0",
+                        ExchangeBranch.EXCHANGE_EVENT_BRANCH_COMPLETED_ANNOTATION + " index=1");
+    }
+}
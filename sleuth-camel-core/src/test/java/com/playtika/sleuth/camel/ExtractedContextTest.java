@@ -0,0 +1,116 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Playtika
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.playtika.sleuth.camel;
+
+import brave.Span;
+import brave.Tracer;
+import brave.handler.MutableSpan;
+import brave.propagation.TraceContext;
+import brave.test.TestSpanHandler;
+import org.apache.camel.builder.RouteBuilder;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.playtika.sleuth.camel.CreatedEventNotifier.EXCHANGE_ID_TAG_ANNOTATION;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ExtractedContextTest {
+
+    private final TestSpanHandler spans = new TestSpanHandler();
+    private final TracingFixture fixture = TracingFixture.create(spans);
+    private final Tracer tracer = fixture.getTracer();
+    private final AtomicReference<String> propagatedSpanId = new AtomicReference<>();
+
+    private DefaultCamelContext camelContext;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        camelContext = new DefaultCamelContext();
+        camelContext.addRoutes(new RouteBuilder() {
+            @Override
+            public void configure() {
+                from("direct:start").routeId("start")
+                        .process(exchange -> propagatedSpanId.set(exchange.getIn().getHeader("X-B3-SpanId", String.class)));
+            }
+        });
+        fixture.instrumenter().instrument(camelContext);
+        camelContext.start();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        camelContext.stop();
+        fixture.close();
+    }
+
+    @Test
+    public void shouldParentSpanWithContextOfMessageRatherThanCurrentSpan() {
+        Span remote = tracer.nextSpan().name("remote").start();
+        Map<String, Object> headers = new HashMap<>();
+        fixture.getTracing().propagation().<Map<String, Object>>injector(Map::put).inject(remote.context(), headers);
+        Span current = tracer.nextSpan().name("current").start();
+
+        try (Tracer.SpanInScope ignored = tracer.withSpanInScope(current)) {
+            camelContext.createProducerTemplate().sendBodyAndHeaders("direct:start", "body", headers);
+        }
+        current.finish();
+        remote.finish();
+
+        MutableSpan exchangeSpan = exchangeSpan();
+        assertThat(exchangeSpan.traceId()).isEqualTo(remote.context().traceIdString());
+        assertThat(exchangeSpan.parentId()).isEqualTo(remote.context().spanIdString());
+        assertThat(exchangeSpan.traceId()).isNotEqualTo(current.context().traceIdString());
+        assertThat(propagatedSpanId.get()).isEqualTo(remote.context().spanIdString());
+    }
+
+    @Test
+    public void shouldParentSpanWithCurrentSpanWithoutContextInMessage() {
+        Span current = tracer.nextSpan().name("current").start();
+
+        try (Tracer.SpanInScope ignored = tracer.withSpanInScope(current)) {
+            camelContext.createProducerTemplate().sendBody("direct:start", "body");
+        }
+        current.finish();
+
+        MutableSpan exchangeSpan = exchangeSpan();
+        TraceContext currentContext = current.context();
+        assertThat(exchangeSpan.traceId()).isEqualTo(currentContext.traceIdString());
+        assertThat(exchangeSpan.parentId()).isEqualTo(currentContext.spanIdString());
+        assertThat(propagatedSpanId.get()).isEqualTo(currentContext.spanIdString());
+    }
+
+    private MutableSpan exchangeSpan() {
+        return spans.spans().stream()
+                .filter(span -> span.tag(EXCHANGE_ID_TAG_ANNOTATION) != null)
+                .findFirst()
+                .orElseThrow(AssertionError::new);
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Playtika
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.playtika.sleuth.camel;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class HotPathsTest {
+
+    private final HotPaths hotPaths = new HotPaths(2);
+
+    @Test
+    public void shouldReportMostFrequentKeys() {
+        for (int i = 0; i < 1000; i++) {
+            hotPaths.record("direct://hot", 1);
+            if (i % 10 == 0) {
+                hotPaths.record("direct://warm", 3);
+            }
+            hotPaths.record("http://dynamic/" + i, 0);
+        }
+
+        List<Map<String, Object>> frequent = hotPaths.frequent();
+
+        assertThat(frequent).extracting(item -> item.get("name")).containsExactly("direct://hot", "direct://warm");
+        assertThat((Long) frequent.get(0).get("count")).isGreaterThanOrEqualTo(1000);
+        assertThat((Long) frequent.get(1).get("count")).isGreaterThanOrEqualTo(100);
+        assertThat(frequent.get(0)).containsEntry("p50Millis", 1L).containsEntry("p99Millis", 1L).containsEntry("maxMillis", 1L);
+        assertThat(frequent.get(1)).containsEntry("p99Millis", 3L).containsEntry("meanMillis", 3L);
+    }
+
+    @Test
+    public void shouldReportSlowestKeys() {
+        for (int i = 0; i < 100; i++) {
+            hotPaths.record("http://dynamic/" + i, i % 7);
+        }
+        hotPaths.record("direct://slow", 5000);
+        hotPaths.record("direct://slower", 100);
+        hotPaths.record("direct://slower", 7000);
+
+        List<Map<String, Object>> slowest = hotPaths.slowest();
+
+        assertThat(slowest).extracting(item -> item.get("name")).containsExactly("direct://slower", "direct://slow");
+        assertThat(slowest.get(0)).containsEntry("maxMillis", 7000L).containsEntry("p50Millis", 127L);
+        assertThat(slowest.get(1)).containsEntry("maxMillis", 5000L).containsEntry("p99Millis", 5000L);
+    }
+
+    @Test
+    public void shouldCountKeysWithEqualHashCodesApart() {
+        CountMinSketch sketch = new CountMinSketch(HotPaths.SKETCH_WIDTH);
+        for (int i = 0; i < 100; i++) {
+            sketch.add("Aa");
+        }
+
+        assertThat("BB".hashCode()).isEqualTo("Aa".hashCode());
+        assertThat(sketch.add("BB")).isEqualTo(1);
+        assertThat(sketch.estimate("Aa")).isEqualTo(100);
+    }
+
+    @Test
+    public void shouldEvictLeastFrequentKeyOnceFull() {
+        HotPaths single = new HotPaths(1);
+        for (int i = 0; i < HotPaths.TRACKED_PER_REPORTED; i++) {
+            single.record("direct://cold-" + i, 0);
+        }
+        for (int i = 0; i < 10; i++) {
+            single.record("direct://cold-0", 0);
+            single.record("direct://hot", 0);
+        }
+
+        assertThat(single.frequent()).extracting(item -> item.get("name")).containsExactly("direct://cold-0");
+        single.record("direct://hot", 0);
+        single.record("direct://hot", 0);
+        assertThat(single.frequent()).extracting(item -> item.get("name")).containsExactly("direct://hot");
+    }
+
+    @Test
+    public void shouldStartAnewOnceCleared() {
+        hotPaths.record("direct://hot", 1);
+
+        hotPaths.clear();
+
+        assertThat(hotPaths.frequent()).isEmpty();
+        assertThat(hotPaths.slowest()).isEmpty();
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Playtika
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.playtika.sleuth.camel;
+
+import brave.test.TestSpanHandler;
+import org.apache.camel.AsyncCallback;
+import org.apache.camel.Exchange;
+import org.apache.camel.builder.RouteBuilder;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.apache.camel.support.AsyncProcessorSupport;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class InFlightSpansTest {
+
+    private final TestSpanHandler spans = new TestSpanHandler();
+    private final TracingFixture fixture = TracingFixture.create(spans);
+    private final ExecutorService asyncThread = Executors.newSingleThreadExecutor();
+    private final InFlightSpans inFlightSpans = fixture.getInFlightSpans();
+
+    private DefaultCamelContext camelContext;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        CamelContextInstrumenter instrumenter = fixture.instrumenter();
+
+        camelContext = new DefaultCamelContext();
+        camelContext.addRoutes(new RouteBuilder() {
+            @Override
+            public void configure() {
+                from("direct:threads").routeId("threads")
+                        .threads()
+                        .setHeader("completed", constant(true));
+                from("direct:async").routeId("async")
+                        .process(new AsyncProcessorSupport() {
+                            @Override
+                            public boolean process(Exchange exchange, AsyncCallback callback) {
+                                asyncThread.execute(() -> callback.done(false));
+                                return false;
+                            }
+                        });
+            }
+        });
+        instrumenter.instrument(camelContext);
+        camelContext.start();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        camelContext.stop();
+        asyncThread.shutdownNow();
+        fixture.close();
+    }
+
+    @Test
+    public void shouldReleaseExchangesCompletedOnThreadsPool() {
+        for (int i = 0; i < 10; i++) {
+            camelContext.createProducerTemplate().sendBody("direct:threads", i);
+        }
+
+        assertThat(inFlightSpans.size()).isZero();
+        assertThat(spans.spans()).hasSize(10);
+    }
+
+    @Test
+    public void shouldReleaseExchangesCompletedByAsyncProcessor() {
+        for (int i = 0; i < 10; i++) {
+            camelContext.createProducerTemplate().sendBody("direct:async", i);
+        }
+
+        assertThat(inFlightSpans.size()).isZero();
+        assertThat(spans.spans()).hasSize(10);
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Playtika
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.playtika.sleuth.camel;
+
+import brave.Span;
+import brave.handler.MutableSpan;
+import brave.handler.SpanHandler;
+import brave.propagation.TraceContext;
+import com.playtika.sleuth.camel.SpanRecordReader.SpanRecord;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static com.playtika.sleuth.camel.CreatedEventNotifier.EXCHANGE_ID_TAG_ANNOTATION;
+import static com.playtika.sleuth.camel.MappedSpanRecorder.HEADER_SIZE;
+import static com.playtika.sleuth.camel.MappedSpanRecorder.RECORD_SIZE;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class MappedSpanRecorderTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void shouldRecordCamelSpan() throws Exception {
+        Path file = tempDir.resolve("spans.rec");
+        TraceContext context = TraceContext.newBuilder().traceIdHigh(1).traceId(2).parentId(3).spanId(4).sampled(false).build();
+        MutableSpan span = camelSpan(context, "ID-host-1");
+        span.kind(Span.Kind.CONSUMER);
+        span.error(new IllegalStateException("boom"));
+
+        try (MappedSpanRecorder recorder = new MappedSpanRecorder(file, HEADER_SIZE + 10 * RECORD_SIZE)) {
+            recorder.end(context, span, SpanHandler.Cause.FINISHED);
+        }
+
+        List<SpanRecord> records = SpanRecordReader.read(file);
+        assertThat(records).hasSize(1);
+        SpanRecord record = records.get(0);
+        assertThat(record.getSequence()).isEqualTo(0);
+        assertThat(record.traceIdString()).isEqualTo("00000000000000010000000000000002");
+        assertThat(record.getParentId()).isEqualTo(3);
+        assertThat(record.getSpanId()).isEqualTo(4);
+        assertThat(record.getStartTimestamp()).isEqualTo(100);
+        assertThat(record.getFinishTimestamp()).isEqualTo(200);
+        assertThat(record.isSampled()).isFalse();
+        assertThat(record.isError()).isTrue();
+        assertThat(record.getCause()).isEqualTo(SpanHandler.Cause.FINISHED);
+        assertThat(record.getKind()).isEqualTo(Span.Kind.CONSUMER);
+        assertThat(record.getName()).isEqualTo("camel::direct://route");
+        assertThat(record.getExchangeId()).isEqualTo("ID-host-1");
+        assertThat(record.getErrorType()).isEqualTo(IllegalStateException.class.getName());
+    }
+
+    @Test
+    public void shouldSkipNonCamelSpan() throws Exception {
+        Path file = tempDir.resolve("spans.rec");
+        TraceContext context = TraceContext.newBuilder().traceId(1).spanId(1).build();
+
+        try (MappedSpanRecorder recorder = new MappedSpanRecorder(file, HEADER_SIZE + 10 * RECORD_SIZE)) {
+            recorder.end(context, new MutableSpan(context, null), SpanHandler.Cause.FINISHED);
+        }
+
+        assertThat(SpanRecordReader.read(file)).isEmpty();
+    }
+
+    @Test
+    public void shouldKeepLatestSpansWhenWrappedAround() throws Exception {
+        Path file = tempDir.resolve("spans.rec");
+
+        try (MappedSpanRecorder recorder = new MappedSpanRecorder(file, HEADER_SIZE + 3 * RECORD_SIZE)) {
+            for (int i = 1; i <= 5; i++) {
+                TraceContext context = TraceContext.newBuilder().traceId(i).spanId(i).build();
+                recorder.end(context, camelSpan(context, "ID-" + i), SpanHandler.Cause.FINISHED);
+            }
+        }
+
+        List<SpanRecord> records = SpanRecordReader.read(file);
+        assertThat(records).extracting(SpanRecord::getExchangeId).containsExactly("ID-3", "ID-4", "ID-5");
+    }
+
+    @Test
+    public void shouldContinueAfterReopen() throws Exception {
+        Path file = tempDir.resolve("spans.rec");
+        TraceContext context = TraceContext.newBuilder().traceId(1).spanId(1).build();
+
+        try (MappedSpanRecorder recorder = new MappedSpanRecorder(file, HEADER_SIZE + 3 * RECORD_SIZE)) {
+            recorder.end(context, camelSpan(context, "ID-1"), SpanHandler.Cause.FINISHED);
+        }
+        try (MappedSpanRecorder recorder = new MappedSpanRecorder(file, HEADER_SIZE + 3 * RECORD_SIZE)) {
+            recorder.end(context, camelSpan(context, "ID-2"), SpanHandler.Cause.ORPHANED);
+        }
+
+        List<SpanRecord> records = SpanRecordReader.read(file);
+        assertThat(records).extracting(SpanRecord::getSequence).containsExactly(0L, 1L);
+        assertThat(records).extracting(SpanRecord::getCause).containsExactly(SpanHandler.Cause.FINISHED, SpanHandler.Cause.ORPHANED);
+    }
+
+    @Test
+    public void shouldKeepTailOfLongExchangeId() throws Exception {
+        Path file = tempDir.resolve("spans.rec");
+        TraceContext context = TraceContext.newBuilder().traceId(1).spanId(1).build();
+        StringBuilder exchangeId = new StringBuilder("ID-");
+        for (int i = 0; i < 10; i++) {
+            exchangeId.append("0123456789");
+        }
+
+        try (MappedSpanRecorder recorder = new MappedSpanRecorder(file, HEADER_SIZE + RECORD_SIZE)) {
+            recorder.end(context, camelSpan(context, exchangeId.toString()), SpanHandler.Cause.FINISHED);
+        }
+
+        String recorded = SpanRecordReader.read(file).get(0).getExchangeId();
+        assertThat(exchangeId.toString()).endsWith(recorded);
+    }
+
+    @Test
+    public void shouldRejectTooSmallFile() {
+        assertThatThrownBy(() -> new MappedSpanRecorder(tempDir.resolve("spans.rec"), RECORD_SIZE))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static MutableSpan camelSpan(TraceContext context, String exchangeId) {
+        MutableSpan span = new MutableSpan(context, null);
+        span.name("camel::direct://route");
+        span.startTimestamp(100);
+        span.finishTimestamp(200);
+        span.tag(EXCHANGE_ID_TAG_ANNOTATION, exchangeId);
+        return span;
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Playtika
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.playtika.sleuth.camel;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Reflection config for native images is maintained by hand, so it is checked against the auto-configuration:
+ * classes it lists must exist, configurations, their nested classes, bound properties and bean classes must be listed.
+ */
+public class NativeImageConfigTest {
+
+    private static final String REFLECT_CONFIG = "/META-INF/native-image/com.playtika.sleuth/sleuth-camel-core/reflect-config.json";
+    private static final Pattern NAME = Pattern.compile("\"name\"\\s*:\\s*\"([^\"]+)\"");
+
+    @Test
+    public void shouldListExistingClassesOnly() throws IOException {
+        List<String> missing = new ArrayList<>();
+        for (String name : listedClasses()) {
+            try {
+                Class.forName(name, false, getClass().getClassLoader());
+            } catch (ClassNotFoundException e) {
+                missing.add(name);
+            }
+        }
+
+        assertThat(missing).isEmpty();
+    }
+
+    @Test
+    public void shouldListAutoConfiguredClasses() throws IOException {
+        Set<String> listed = listedClasses();
+        Set<Class<?>> required = new LinkedHashSet<>();
+        required.add(SleuthCamelAutoConfiguration.class);
+        for (Class<?> nested : SleuthCamelAutoConfiguration.class.getDeclaredClasses()) {
+            required.add(nested);
+        }
+        for (Class<?> properties : SleuthCamelAutoConfiguration.class.getAnnotation(EnableConfigurationProperties.class).value()) {
+            required.add(properties);
+            for (Class<?> nested : properties.getDeclaredClasses()) {
+                required.add(nested);
+            }
+        }
+        List<Class<?>> beanInterfaces = new ArrayList<>();
+        for (Class<?> configuration : required.toArray(new Class<?>[0])) {
+            if (configuration.isAnnotationPresent(Configuration.class)) {
+                for (Method method : configuration.getDeclaredMethods()) {
+                    Class<?> beanClass = method.getReturnType();
+                    if (method.isAnnotationPresent(Bean.class) && isOwn(beanClass)) {
+                        if (beanClass.isInterface() || Modifier.isAbstract(beanClass.getModifiers())) {
+                            beanInterfaces.add(beanClass);
+                        } else {
+                            required.add(beanClass);
+                        }
+                    }
+                }
+            }
+        }
+
+        assertThat(listed).containsAll(required.stream().map(Class::getName).collect(Collectors.toList()));
+        // beans declared by their interface are listed by the class implementing it
+        for (Class<?> beanInterface : beanInterfaces) {
+            assertThat(listed).as("implementation of %s", beanInterface.getName())
+                    .anyMatch(name -> isImplementation(name, beanInterface));
+        }
+    }
+
+    private static boolean isOwn(Class<?> type) {
+        return type.getPackage() != null && SleuthCamelAutoConfiguration.class.getPackage().equals(type.getPackage());
+    }
+
+    private static boolean isImplementation(String name, Class<?> beanInterface) {
+        try {
+            Class<?> type = Class.forName(name, false, NativeImageConfigTest.class.getClassLoader());
+            return type != beanInterface && beanInterface.isAssignableFrom(type);
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    private static Set<String> listedClasses() throws IOException {
+        String config;
+        try (InputStream in = NativeImageConfigTest.class.getResourceAsStream(REFLECT_CONFIG)) {
+            assertThat(in).as(REFLECT_CONFIG).isNotNull();
+            config = StreamUtils.copyToString(in, StandardCharsets.UTF_8);
+        }
+        Set<String> names = new LinkedHashSet<>();
+        Matcher matcher = NAME.matcher(config);
+        while (matcher.find()) {
+            names.add(matcher.group(1));
+        }
+        assertThat(names).isNotEmpty();
+        return names;
+    }
+}
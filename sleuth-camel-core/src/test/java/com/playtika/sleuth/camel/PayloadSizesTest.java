@@ -0,0 +1,194 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Playtika
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.playtika.sleuth.camel;
+
+import brave.handler.MutableSpan;
+import brave.test.TestSpanHandler;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.camel.CamelContext;
+import org.apache.camel.Exchange;
+import org.apache.camel.builder.RouteBuilder;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.apache.camel.support.DefaultExchange;
+import org.apache.camel.support.DefaultMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.playtika.sleuth.camel.PayloadSizes.IN_BODY_CHARS_TAG;
+import static com.playtika.sleuth.camel.PayloadSizes.IN_BODY_SIZE_TAG;
+import static com.playtika.sleuth.camel.PayloadSizes.IN_HEADERS_CHARS_TAG;
+import static com.playtika.sleuth.camel.PayloadSizes.OUT_BODY_CHARS_TAG;
+import static com.playtika.sleuth.camel.PayloadSizes.OUT_BODY_SIZE_TAG;
+import static com.playtika.sleuth.camel.PayloadSizes.OUT_HEADERS_CHARS_TAG;
+import static com.playtika.sleuth.camel.PayloadSizes.UNKNOWN;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PayloadSizesTest {
+
+    private final TestSpanHandler spans = new TestSpanHandler();
+    private final TracingFixture fixture = TracingFixture.create(spans);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private DefaultCamelContext camelContext;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        PayloadSizes payloadSizes = new PayloadSizes(new MicrometerPayloadSizeListener(meterRegistry));
+        CamelContextInstrumenter instrumenter = new CamelContextInstrumenter(fixture.getToggles(), Arrays.asList(
+                fixture.createdEventNotifierBuilder().payloadSizes(payloadSizes).build(),
+                new SentEventNotifier(fixture.getTracer(), fixture.getThreadLocalSpan(), fixture.getInFlightSpans(), payloadSizes)));
+
+        camelContext = new DefaultCamelContext();
+        camelContext.addRoutes(new RouteBuilder() {
+            @Override
+            public void configure() {
+                from("direct:sized").routeId("sized")
+                        .setBody(constant(new byte[1000]));
+                from("direct:opaque").routeId("opaque")
+                        .setBody(constant(new Object()));
+                from("direct:headers").routeId("headers")
+                        .setHeader("routed", constant(true));
+            }
+        });
+        instrumenter.instrument(camelContext);
+        camelContext.start();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        camelContext.stop();
+        fixture.close();
+    }
+
+    @Test
+    public void shouldTagSpanWithPayloadSizes() {
+        camelContext.createProducerTemplate().sendBodyAndHeader("direct:sized", "hello", "key", "value");
+
+        assertThat(spans.spans()).hasSize(1);
+        MutableSpan span = spans.get(0);
+        assertThat(span.tag(IN_BODY_SIZE_TAG)).isNull();
+        assertThat(span.tag(IN_BODY_CHARS_TAG)).isEqualTo("5");
+        assertThat(Long.parseLong(span.tag(IN_HEADERS_CHARS_TAG))).isGreaterThanOrEqualTo("keyvalue".length());
+        assertThat(span.tag(OUT_BODY_SIZE_TAG)).isEqualTo("1000");
+        assertThat(span.tag(OUT_BODY_CHARS_TAG)).isNull();
+        assertThat(span.tag(OUT_HEADERS_CHARS_TAG)).isNotNull();
+
+        DistributionSummary inBody = meterRegistry.get(MicrometerPayloadSizeListener.BODY_METRIC_NAME)
+                .tag("route", "sized").tag("direction", "in").summary();
+        DistributionSummary inBodyChars = meterRegistry.get(MicrometerPayloadSizeListener.BODY_CHARS_METRIC_NAME)
+                .tag("route", "sized").tag("direction", "in").summary();
+        DistributionSummary outBody = meterRegistry.get(MicrometerPayloadSizeListener.BODY_METRIC_NAME)
+                .tag("route", "sized").tag("direction", "out").summary();
+        assertThat(inBody.count()).isZero();
+        assertThat(inBodyChars.count()).isEqualTo(1);
+        assertThat(inBodyChars.totalAmount()).isEqualTo(5);
+        assertThat(inBodyChars.getId().getBaseUnit()).isEqualTo("chars");
+        assertThat(outBody.totalAmount()).isEqualTo(1000);
+        assertThat(outBody.getId().getBaseUnit()).isEqualTo("bytes");
+    }
+
+    @Test
+    public void shouldNotTagUnknownBodySize() {
+        camelContext.createProducerTemplate().sendBody("direct:opaque", "hello");
+
+        MutableSpan span = spans.get(0);
+        assertThat(span.tag(IN_BODY_CHARS_TAG)).isEqualTo("5");
+        assertThat(span.tag(OUT_BODY_SIZE_TAG)).isNull();
+        assertThat(span.tag(OUT_BODY_CHARS_TAG)).isNull();
+        assertThat(span.tag(OUT_HEADERS_CHARS_TAG)).isNotNull();
+        assertThat(meterRegistry.get(MicrometerPayloadSizeListener.BODY_METRIC_NAME)
+                .tag("route", "opaque").tag("direction", "out").summary().count()).isZero();
+        assertThat(meterRegistry.get(MicrometerPayloadSizeListener.BODY_CHARS_METRIC_NAME)
+                .tag("route", "opaque").tag("direction", "out").summary().count()).isZero();
+    }
+
+    @Test
+    public void shouldNotCreateLazyBodies() {
+        LazyBodyMessage message = new LazyBodyMessage(camelContext);
+        message.setHeader("key", "value");
+        Exchange exchange = new DefaultExchange(camelContext);
+        exchange.setIn(message);
+
+        camelContext.createProducerTemplate().send("direct:headers", exchange);
+
+        assertThat(message.createdBodies).hasValue(0);
+        MutableSpan span = spans.get(0);
+        assertThat(span.tag(IN_BODY_SIZE_TAG)).isNull();
+        assertThat(span.tag(IN_BODY_CHARS_TAG)).isNull();
+        assertThat(span.tag(OUT_BODY_CHARS_TAG)).isNull();
+        assertThat(Long.parseLong(span.tag(IN_HEADERS_CHARS_TAG))).isGreaterThanOrEqualTo("keyvalue".length());
+        assertThat(PayloadSizes.createsBodyLazily(message)).isTrue();
+        assertThat(PayloadSizes.createsBodyLazily(new DefaultMessage(camelContext))).isFalse();
+    }
+
+    @Test
+    public void shouldMeasureOnlyKnownSizes() {
+        assertThat(PayloadSizes.sizeOf(null)).isZero();
+        assertThat(PayloadSizes.sizeOf(new byte[42])).isEqualTo(42);
+        assertThat(PayloadSizes.sizeOf("text")).isEqualTo(UNKNOWN);
+        assertThat(PayloadSizes.charsOf("text")).isEqualTo(4);
+        assertThat(PayloadSizes.charsOf(new byte[42])).isEqualTo(UNKNOWN);
+        ByteBuffer buffer = ByteBuffer.allocate(16);
+        buffer.position(6);
+        assertThat(PayloadSizes.sizeOf(buffer)).isEqualTo(10);
+        assertThat(PayloadSizes.sizeOf(Collections.singletonList("text"))).isEqualTo(UNKNOWN);
+    }
+
+    @Test
+    public void shouldSumHeaderNamesAndTextValuesInChars() {
+        Map<String, Object> headers = new LinkedHashMap<>();
+        headers.put("name", "value");
+        headers.put("bytes", new byte[10]);
+        headers.put("count", 7);
+        headers.put("empty", null);
+
+        assertThat(PayloadSizes.headersChars(headers)).isEqualTo(4 + 5 + 5 + 5 + 5);
+    }
+
+    private static class LazyBodyMessage extends DefaultMessage {
+
+        private final AtomicInteger createdBodies = new AtomicInteger();
+
+        LazyBodyMessage(CamelContext camelContext) {
+            super(camelContext);
+        }
+
+        @Override
+        protected Object createBody() {
+            createdBodies.incrementAndGet();
+            return "read from transport";
+        }
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Playtika
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.playtika.sleuth.camel;
+
+import brave.Span;
+import brave.Tracer;
+import brave.handler.MutableSpan;
+import brave.test.TestSpanHandler;
+import org.apache.camel.Consumer;
+import org.apache.camel.Endpoint;
+import org.apache.camel.spi.PollingConsumerPollStrategy;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+
+import static com.playtika.sleuth.camel.PollSpanPollStrategy.POLL_BATCH_SIZE_TAG;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class PollSpanPollStrategyTest {
+
+    private final TestSpanHandler spans = new TestSpanHandler();
+    private final TracingFixture fixture = TracingFixture.create(spans);
+    private final Tracer tracer = fixture.getTracer();
+    private final CamelTracingToggles toggles = fixture.getToggles();
+    private final RouteTracingToggles routeToggles = toggles.register("context");
+
+    @Mock
+    private PollingConsumerPollStrategy delegate;
+    @Mock
+    private Consumer consumer;
+    @Mock
+    private Endpoint endpoint;
+
+    private PollSpanPollStrategy pollStrategy;
+
+    @BeforeEach
+    public void setUp() {
+        pollStrategy = new PollSpanPollStrategy(delegate, tracer, "camel-poll::file://inbox",
+                toggles, routeToggles, routeToggles.routeIndex("inbox"));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        fixture.close();
+    }
+
+    @Test
+    public void shouldParentPolledExchangesWithPollSpan() {
+        when(delegate.begin(consumer, endpoint)).thenReturn(true);
+
+        assertThat(pollStrategy.begin(consumer, endpoint)).isTrue();
+        tracer.nextSpan().name("first").start().finish();
+        tracer.nextSpan().name("second").start().finish();
+        pollStrategy.commit(consumer, endpoint, 2);
+
+        assertThat(spans).hasSize(3);
+        MutableSpan pollSpan = spans.get(2);
+        assertThat(pollSpan.name()).isEqualTo("camel-poll::file://inbox");
+        assertThat(pollSpan.tag(POLL_BATCH_SIZE_TAG)).isEqualTo("2");
+        assertThat(spans.get(0).parentId()).isEqualTo(pollSpan.id());
+        assertThat(spans.get(1).parentId()).isEqualTo(pollSpan.id());
+        assertThat(tracer.currentSpan()).isNull();
+        verify(delegate).commit(consumer, endpoint, 2);
+    }
+
+    @Test
+    public void shouldNotReportEmptyPoll() {
+        when(delegate.begin(consumer, endpoint)).thenReturn(true);
+
+        pollStrategy.begin(consumer, endpoint);
+        pollStrategy.commit(consumer, endpoint, 0);
+
+        assertThat(spans).isEmpty();
+        assertThat(tracer.currentSpan()).isNull();
+    }
+
+    @Test
+    public void shouldNotStartSpanIfPollIsSkipped() {
+        when(delegate.begin(consumer, endpoint)).thenReturn(false);
+
+        assertThat(pollStrategy.begin(consumer, endpoint)).isFalse();
+
+        assertThat(tracer.currentSpan()).isNull();
+    }
+
+    @Test
+    public void shouldCheckTogglesOnEveryPoll() {
+        when(delegate.begin(consumer, endpoint)).thenReturn(true);
+        routeToggles.setRouteEnabled("inbox", false);
+
+        assertThat(pollStrategy.begin(consumer, endpoint)).isTrue();
+        assertThat(tracer.currentSpan()).isNull();
+        pollStrategy.commit(consumer, endpoint, 1);
+
+        routeToggles.setRouteEnabled("inbox", true);
+        pollStrategy.begin(consumer, endpoint);
+        pollStrategy.commit(consumer, endpoint, 1);
+
+        toggles.setEnabled(false);
+        pollStrategy.begin(consumer, endpoint);
+        pollStrategy.commit(consumer, endpoint, 1);
+
+        assertThat(spans).hasSize(1);
+        verify(delegate, times(3)).commit(consumer, endpoint, 1);
+    }
+
+    @Test
+    public void shouldTagFailedPoll() throws Exception {
+        IOException cause = new IOException("connection refused");
+        when(delegate.begin(consumer, endpoint)).thenReturn(true);
+        when(delegate.rollback(consumer, endpoint, 1, cause)).thenReturn(true);
+
+        pollStrategy.begin(consumer, endpoint);
+        Span currentSpan = tracer.currentSpan();
+        boolean retry = pollStrategy.rollback(consumer, endpoint, 1, cause);
+
+        assertThat(retry).isTrue();
+        assertThat(spans).hasSize(1);
+        assertThat(spans.get(0).id()).isEqualTo(currentSpan.context().spanIdString());
+        assertThat(spans.get(0).error()).isSameAs(cause);
+        assertThat(tracer.currentSpan()).isNull();
+    }
+}
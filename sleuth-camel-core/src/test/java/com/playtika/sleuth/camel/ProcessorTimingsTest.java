@@ -0,0 +1,119 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Playtika
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.playtika.sleuth.camel;
+
+import brave.handler.MutableSpan;
+import brave.test.TestSpanHandler;
+import org.apache.camel.builder.RouteBuilder;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static com.playtika.sleuth.camel.ProcessorTimings.PROCESSOR_TIMINGS_TAG;
+import static com.playtika.sleuth.camel.SleuthCamelConstants.EXCHANGE_PROCESSOR_TIMINGS;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ProcessorTimingsTest {
+
+    private final TestSpanHandler spans = new TestSpanHandler();
+    private final TracingFixture fixture = TracingFixture.create(spans);
+
+    private DefaultCamelContext camelContext;
+
+    @AfterEach
+    public void tearDown() {
+        camelContext.stop();
+        fixture.close();
+    }
+
+    @Test
+    public void shouldTagSlowExchangeWithTimingsOfLeafProcessors() throws Exception {
+        // every exchange is slow with zero threshold
+        start(Duration.ZERO);
+
+        camelContext.createProducerTemplate().sendBody("direct:slow", "body");
+
+        assertThat(spans).hasSize(1);
+        assertThat(spans.get(0).tag(PROCESSOR_TIMINGS_TAG)).matches("header=\\d+,body=\\d+,log=\\d+,nested=\\d+");
+    }
+
+    @Test
+    public void shouldNotTimeExchangeWithinThreshold() throws Exception {
+        start(Duration.ofMinutes(1));
+
+        Object timings = camelContext.createProducerTemplate()
+                .send("direct:slow", exchange -> exchange.getIn().setBody("body"))
+                .getProperty(EXCHANGE_PROCESSOR_TIMINGS);
+
+        assertThat(spans).hasSize(1);
+        MutableSpan span = spans.get(0);
+        assertThat(span.tag(PROCESSOR_TIMINGS_TAG)).isNull();
+        assertThat(timings).isNull();
+    }
+
+    private void start(Duration threshold) throws Exception {
+        CamelContextInstrumenter instrumenter = CamelContextInstrumenter.newBuilder(fixture.getToggles())
+                .eventNotifiers(fixture.notifiers())
+                .processorTimingsThreshold(threshold)
+                .build();
+
+        camelContext = new DefaultCamelContext();
+        camelContext.addRoutes(new RouteBuilder() {
+            @Override
+            public void configure() {
+                from("direct:slow").routeId("slow")
+                        .setHeader("slow", constant(true)).id("header")
+                        .filter(constant(true)).id("filter")
+                            .setBody(constant("filtered")).id("body")
+                        .end()
+                        .to("direct:nested").id("nested");
+                from("direct:nested").routeId("nested")
+                        .log("${body}").id("log");
+            }
+        });
+        instrumenter.instrument(camelContext);
+        camelContext.start();
+    }
+
+    @Test
+    public void shouldAddUpRepeatedProcessorsAndCountOverflow() {
+        ProcessorTimings timings = new ProcessorTimings("exchange", 0);
+        String loop = "loop";
+        timings.record(loop, 1_000);
+        timings.record(loop, 2_000);
+        for (int i = 1; i <= ProcessorTimings.CAPACITY + 1; i++) {
+            timings.record("to" + i, 1_000);
+        }
+
+        assertThat(timings.format())
+                .startsWith("loop=3,to1=1,")
+                .endsWith(",to15=1,+2");
+        assertThat(timings.isSlow(1)).isTrue();
+        assertThat(timings.isOf("exchange")).isTrue();
+        assertThat(timings.isOf("copy")).isFalse();
+    }
+}
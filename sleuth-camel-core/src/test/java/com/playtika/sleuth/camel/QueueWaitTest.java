@@ -0,0 +1,154 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Playtika
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.playtika.sleuth.camel;
+
+import brave.handler.MutableSpan;
+import brave.test.TestSpanHandler;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.camel.Exchange;
+import org.apache.camel.builder.RouteBuilder;
+import org.apache.camel.component.mock.MockEndpoint;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static com.playtika.sleuth.camel.CreatedEventNotifier.QUEUE_WAIT_TAG;
+import static com.playtika.sleuth.camel.SleuthCamelConstants.EXCHANGE_ENQUEUED_NANOS;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class QueueWaitTest {
+
+    private final TestSpanHandler spans = new TestSpanHandler();
+    private final TracingFixture fixture = TracingFixture.create(spans);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CountDownLatch consumerStarted = new CountDownLatch(1);
+    private final CountDownLatch consumerBlocked = new CountDownLatch(1);
+
+    private DefaultCamelContext camelContext;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        CamelContextInstrumenter instrumenter = new CamelContextInstrumenter(fixture.getToggles(), Arrays.asList(
+                fixture.createdEventNotifierBuilder().queueWaitListener(new MicrometerQueueWaitListener(meterRegistry)).build(),
+                fixture.sentEventNotifier(),
+                new QueueEnqueueEventNotifier()));
+
+        camelContext = new DefaultCamelContext();
+        camelContext.addRoutes(new RouteBuilder() {
+            @Override
+            public void configure() {
+                from("seda:queue").routeId("queue")
+                        .process(exchange -> {
+                            consumerStarted.countDown();
+                            consumerBlocked.await(5, TimeUnit.SECONDS);
+                        })
+                        .to("mock:consumed");
+                from("direct:start").routeId("start")
+                        .to("seda:queue")
+                        .wireTap("direct:tapped")
+                        .to("mock:continued");
+                from("direct:tapped").routeId("tapped")
+                        .to("mock:tapped");
+            }
+        });
+        instrumenter.instrument(camelContext);
+        camelContext.start();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        camelContext.stop();
+        fixture.close();
+    }
+
+    @Test
+    public void shouldTagSpanWithQueueWait() throws Exception {
+        MockEndpoint consumed = camelContext.getEndpoint("mock:consumed", MockEndpoint.class);
+        consumed.expectedMessageCount(2);
+
+        camelContext.createProducerTemplate().sendBody("seda:queue", "first");
+        camelContext.createProducerTemplate().sendBody("seda:queue", "second");
+        // the second exchange is enqueued before the send returns and consumed only after the consumer is released
+        long enqueuedBefore = System.nanoTime();
+        assertThat(consumerStarted.await(5, TimeUnit.SECONDS)).isTrue();
+        long minWaitNanos = System.nanoTime() - enqueuedBefore;
+        consumerBlocked.countDown();
+
+        consumed.assertIsSatisfied();
+        assertThat(spans.spans()).hasSize(2);
+        MutableSpan secondSpan = spans.get(1);
+        assertThat(Long.parseLong(secondSpan.tag(QUEUE_WAIT_TAG))).isGreaterThanOrEqualTo(TimeUnit.NANOSECONDS.toMicros(minWaitNanos));
+
+        Timer timer = meterRegistry.get(MicrometerQueueWaitListener.METRIC_NAME).tag("queue", "seda://queue").timer();
+        assertThat(timer.count()).isEqualTo(2);
+        assertThat(timer.max(TimeUnit.NANOSECONDS)).isGreaterThanOrEqualTo(minWaitNanos);
+    }
+
+    @Test
+    public void shouldNotReportQueueWaitForCopiesMadeAfterEnqueue() throws Exception {
+        consumerBlocked.countDown();
+        MockEndpoint consumed = camelContext.getEndpoint("mock:consumed", MockEndpoint.class);
+        MockEndpoint continued = camelContext.getEndpoint("mock:continued", MockEndpoint.class);
+        MockEndpoint tapped = camelContext.getEndpoint("mock:tapped", MockEndpoint.class);
+        consumed.expectedMessageCount(1);
+        continued.expectedMessageCount(1);
+        tapped.expectedMessageCount(1);
+
+        Exchange exchange = camelContext.createProducerTemplate().send("direct:start", e -> e.getIn().setBody("body"));
+
+        MockEndpoint.assertIsSatisfied(consumed, continued, tapped);
+        assertThat(exchange.getProperty(EXCHANGE_ENQUEUED_NANOS)).isNull();
+        assertThat(tapped.getExchanges().get(0).getProperty(EXCHANGE_ENQUEUED_NANOS)).isNull();
+        assertThat(meterRegistry.find(MicrometerQueueWaitListener.METRIC_NAME).timers())
+                .extracting(timer -> timer.getId().getTag("queue"))
+                .containsExactly("seda://queue");
+        assertThat(meterRegistry.get(MicrometerQueueWaitListener.METRIC_NAME).timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldShareTimerOfQueuesBeyondLimit() {
+        MicrometerQueueWaitListener listener = new MicrometerQueueWaitListener(meterRegistry, 1);
+
+        listener.onQueueWait(camelContext.getEndpoint("seda:first"), 1);
+        listener.onQueueWait(camelContext.getEndpoint("seda:second"), 1);
+        listener.onQueueWait(camelContext.getEndpoint("seda:third"), 1);
+
+        assertThat(meterRegistry.get(MicrometerQueueWaitListener.METRIC_NAME).tag("queue", "seda://first").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get(MicrometerQueueWaitListener.METRIC_NAME).tag("queue", MicrometerQueueWaitListener.OTHER_QUEUES_TAG).timer().count()).isEqualTo(2);
+        assertThat(meterRegistry.find(MicrometerQueueWaitListener.METRIC_NAME).tag("queue", "seda://second").timer()).isNull();
+    }
+
+    @Test
+    public void shouldDetectQueueEndpoints() {
+        assertThat(TracedEndpoint.isQueue(camelContext.getEndpoint("direct:route"))).isFalse();
+        assertThat(TracedEndpoint.isQueue(camelContext.getEndpoint("seda:queue"))).isTrue();
+    }
+}
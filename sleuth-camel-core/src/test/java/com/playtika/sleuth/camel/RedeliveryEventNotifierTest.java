@@ -0,0 +1,126 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Playtika
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.playtika.sleuth.camel;
+
+import brave.handler.MutableSpan;
+import brave.test.TestSpanHandler;
+import org.apache.camel.builder.RouteBuilder;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.playtika.sleuth.camel.RedeliveryEventNotifier.REDELIVERY_ATTEMPTS_TAG;
+import static com.playtika.sleuth.camel.RedeliveryEventNotifier.REDELIVERY_TIME_TAG;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RedeliveryEventNotifierTest {
+
+    private final TestSpanHandler spans = new TestSpanHandler();
+    private final TracingFixture fixture = TracingFixture.create(spans);
+    private final AtomicInteger attempts = new AtomicInteger();
+    private final AtomicLong workNanos = new AtomicLong();
+
+    private DefaultCamelContext camelContext;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        CamelContextInstrumenter instrumenter = fixture.instrumenter(new RedeliveryEventNotifier(fixture.getInFlightSpans()));
+
+        camelContext = new DefaultCamelContext();
+        camelContext.addRoutes(new RouteBuilder() {
+            @Override
+            public void configure() {
+                errorHandler(defaultErrorHandler().maximumRedeliveries(3).redeliveryDelay(10));
+                from("direct:flaky").routeId("flaky")
+                        .process(exchange -> {
+                            if (attempts.incrementAndGet() <= 2) {
+                                throw new IllegalStateException("attempt " + attempts.get());
+                            }
+                        });
+                from("direct:flakyThenWork").routeId("flakyThenWork")
+                        .process(exchange -> {
+                            if (attempts.incrementAndGet() <= 2) {
+                                throw new IllegalStateException("attempt " + attempts.get());
+                            }
+                        })
+                        .process(exchange -> {
+                            long startNanos = System.nanoTime();
+                            Thread.sleep(50);
+                            workNanos.set(System.nanoTime() - startNanos);
+                        });
+            }
+        });
+        instrumenter.instrument(camelContext);
+        camelContext.start();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        camelContext.stop();
+        fixture.close();
+    }
+
+    @Test
+    public void shouldAnnotateSpanWithRedeliveries() {
+        camelContext.createProducerTemplate().sendBody("direct:flaky", "body");
+
+        assertThat(spans.spans()).hasSize(1);
+        MutableSpan span = spans.get(0);
+        assertThat(span.annotations()).extracting(Map.Entry::getValue)
+                .filteredOn(annotation -> annotation.startsWith(RedeliveryEventNotifier.EXCHANGE_EVENT_REDELIVERY_ANNOTATION))
+                .containsExactly(
+                        "camel-exchange-event-redelivery attempt=1 delay=10ms exception=java.lang.IllegalStateException",
+                        "camel-exchange-event-redelivery attempt=2 delay=10ms exception=java.lang.IllegalStateException");
+        assertThat(span.tag(REDELIVERY_ATTEMPTS_TAG)).isEqualTo("2");
+        assertThat(Long.parseLong(span.tag(REDELIVERY_TIME_TAG))).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toMicros(20));
+    }
+
+    @Test
+    public void shouldStopRedeliveryClockOnceRedeliverySucceeds() {
+        camelContext.createProducerTemplate().sendBody("direct:flakyThenWork", "body");
+
+        MutableSpan span = spans.get(0);
+        long spanMicros = span.finishTimestamp() - span.startTimestamp();
+        long redeliveryMicros = Long.parseLong(span.tag(REDELIVERY_TIME_TAG));
+        // the work after the redelivered processor is part of the span only
+        assertThat(redeliveryMicros).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toMicros(20));
+        assertThat(redeliveryMicros).isLessThanOrEqualTo(spanMicros - TimeUnit.NANOSECONDS.toMicros(workNanos.get()));
+    }
+
+    @Test
+    public void shouldNotTagSpanWithoutRedeliveries() {
+        attempts.set(2);
+
+        camelContext.createProducerTemplate().sendBody("direct:flaky", "body");
+
+        assertThat(spans.get(0).tags()).doesNotContainKeys(REDELIVERY_ATTEMPTS_TAG, REDELIVERY_TIME_TAG);
+    }
+}
@@ -27,6 +27,7 @@ package com.playtika.sleuth.camel;
 import brave.Span;
 import brave.Tracer;
 import brave.propagation.ThreadLocalSpan;
+import com.playtika.sleuth.camel.InFlightSpans.InFlightSpan;
 import org.apache.camel.Endpoint;
 import org.apache.camel.Exchange;
 import org.apache.camel.impl.event.ExchangeCompletedEvent;
@@ -44,6 +45,7 @@ import org.mockito.junit.jupiter.MockitoSettings;
 
 import static com.playtika.sleuth.camel.SentEventNotifier.EXCHANGE_EVENT_SENT_ANNOTATION;
 import static com.playtika.sleuth.camel.SleuthCamelConstants.EXCHANGE_IS_TRACED_BY_BRAVE;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.TestInstance.Lifecycle.PER_METHOD;
 import static org.mockito.Mockito.*;
 import static org.mockito.quality.Strictness.STRICT_STUBS;
@@ -57,6 +59,8 @@ public class SentEventNotifierTest {
     private Tracer tracer;
     @Mock
     private ThreadLocalSpan threadLocalSpan;
+    @Mock
+    private InFlightSpans inFlightSpans;
     @InjectMocks
     private SentEventNotifier sentEventNotifier;
 
@@ -75,12 +79,13 @@ public class SentEventNotifierTest {
         when(tracer.currentSpan()).thenReturn(currentSpan);
         when(threadLocalSpan.remove()).thenReturn(spanToSend);
         when(exchange.getException()).thenReturn(null);
-        when(exchange.getProperty(EXCHANGE_IS_TRACED_BY_BRAVE, Boolean.class)).thenReturn(Boolean.TRUE);
+        when(exchange.getProperty(EXCHANGE_IS_TRACED_BY_BRAVE)).thenReturn(Boolean.TRUE);
 
         sentEventNotifier.notify(event);
 
         verify(tracer).currentSpan();
         verify(exchange).removeProperty(EXCHANGE_IS_TRACED_BY_BRAVE);
+        verify(inFlightSpans).remove(exchange.getExchangeId());
         verify(spanToSend).annotate(EXCHANGE_EVENT_SENT_ANNOTATION);
         verify(spanToSend).finish();
         verifyNoMoreInteractions(currentSpan, spanToSend);
@@ -97,7 +102,7 @@ public class SentEventNotifierTest {
         when(tracer.currentSpan()).thenReturn(currentSpan);
         when(threadLocalSpan.remove()).thenReturn(spanToSend);
         when(exchange.getException()).thenReturn(exception);
-        when(exchange.getProperty(EXCHANGE_IS_TRACED_BY_BRAVE, Boolean.class)).thenReturn(Boolean.TRUE);
+        when(exchange.getProperty(EXCHANGE_IS_TRACED_BY_BRAVE)).thenReturn(Boolean.TRUE);
 
         sentEventNotifier.notify(event);
 
@@ -122,7 +127,7 @@ public class SentEventNotifierTest {
         CamelEvent event = new ExchangeSentEvent(exchange, eventEndpoint, 0);
 
         when(tracer.currentSpan()).thenReturn(currentSpan);
-        when(exchange.getProperty(EXCHANGE_IS_TRACED_BY_BRAVE, Boolean.class)).thenReturn(Boolean.TRUE);
+        when(exchange.getProperty(EXCHANGE_IS_TRACED_BY_BRAVE)).thenReturn(Boolean.TRUE);
         when(exchange.getFromEndpoint()).thenReturn(exchangeEndpoint);
         when(eventEndpoint.getEndpointKey()).thenReturn("direct:/test1");
         when(exchangeEndpoint.getEndpointKey()).thenReturn("direct:/test2");
@@ -140,7 +145,7 @@ public class SentEventNotifierTest {
         Span currentSpan = mock(Span.class);
 
         when(tracer.currentSpan()).thenReturn(currentSpan);
-        when(exchange.getProperty(EXCHANGE_IS_TRACED_BY_BRAVE, Boolean.class)).thenReturn(Boolean.FALSE);
+        when(exchange.getProperty(EXCHANGE_IS_TRACED_BY_BRAVE)).thenReturn(Boolean.FALSE);
 
         sentEventNotifier.notify(event);
 
@@ -159,4 +164,40 @@ public class SentEventNotifierTest {
         verify(tracer).currentSpan();
     }
 
+    @Test
+    public void shouldMarkInFlightSpanOfExchangeCompletedOnAnotherThread() {
+        Exchange exchange = mock(Exchange.class);
+        Span currentSpan = mock(Span.class);
+        Thread creatingThread = new Thread(() -> { });
+        InFlightSpan inFlightSpan = new InFlightSpan(exchange, currentSpan, creatingThread, System.nanoTime());
+
+        when(tracer.currentSpan()).thenReturn(currentSpan);
+        when(exchange.getExchangeId()).thenReturn("exchange");
+        when(exchange.getProperty(EXCHANGE_IS_TRACED_BY_BRAVE)).thenReturn(Boolean.TRUE);
+        when(inFlightSpans.get("exchange")).thenReturn(inFlightSpan);
+
+        sentEventNotifier.notify(new ExchangeCompletedEvent(exchange));
+
+        verify(tracer).currentSpan();
+        // the entry is left for the creating thread, which finishes the span
+        verify(inFlightSpans, never()).remove("exchange");
+        assertThat(inFlightSpan.isCompleted()).isTrue();
+        verifyNoInteractions(threadLocalSpan);
+        verifyNoMoreInteractions(currentSpan);
+    }
+
+    @Test
+    public void shouldMarkInFlightSpanOfExchangeCompletedWithoutSpanInScope() {
+        Exchange exchange = mock(Exchange.class);
+        InFlightSpan inFlightSpan = new InFlightSpan(exchange, mock(Span.class), new Thread(() -> { }), System.nanoTime());
+        when(tracer.currentSpan()).thenReturn(null);
+        when(exchange.getExchangeId()).thenReturn("exchange");
+        when(inFlightSpans.get("exchange")).thenReturn(inFlightSpan);
+
+        sentEventNotifier.notify(new ExchangeCompletedEvent(exchange));
+
+        verify(tracer).currentSpan();
+        verify(inFlightSpans, never()).remove("exchange");
+        assertThat(inFlightSpan.isCompleted()).isTrue();
+    }
 }
@@ -0,0 +1,103 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Playtika
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.playtika.sleuth.camel;
+
+import brave.Span;
+import org.apache.camel.CamelContext;
+import org.apache.camel.Exchange;
+import org.apache.camel.impl.event.CamelContextStoppedEvent;
+import org.apache.camel.impl.event.CamelContextStoppingEvent;
+import org.junit.jupiter.api.Test;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+
+import static com.playtika.sleuth.camel.ShutdownEventNotifier.EXCHANGE_EVENT_INTERRUPTED_ANNOTATION;
+import static com.playtika.sleuth.camel.ShutdownEventNotifier.EXCHANGE_INTERRUPTED_TAG;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+public class ShutdownEventNotifierTest {
+
+    private final InFlightSpans inFlightSpans = new InFlightSpans();
+
+    @Test
+    public void shouldFinishInFlightSpansOfStoppedContextAndFlushReporters() throws IOException {
+        CamelContext stoppedContext = mock(CamelContext.class);
+        CamelContext runningContext = mock(CamelContext.class);
+        Span interruptedSpan = mock(Span.class);
+        Span runningSpan = mock(Span.class);
+        Flushable reporter = mock(Flushable.class);
+        inFlightSpans.add(exchange("interrupted", stoppedContext), interruptedSpan);
+        inFlightSpans.add(exchange("running", runningContext), runningSpan);
+        ShutdownEventNotifier notifier = new ShutdownEventNotifier(inFlightSpans, Collections.singletonList(reporter), Duration.ofSeconds(5));
+
+        notifier.notify(new CamelContextStoppedEvent(stoppedContext));
+
+        verify(interruptedSpan).tag(EXCHANGE_INTERRUPTED_TAG, "true");
+        verify(interruptedSpan).annotate(EXCHANGE_EVENT_INTERRUPTED_ANNOTATION);
+        verify(interruptedSpan).finish();
+        verify(reporter).flush();
+        verifyNoInteractions(runningSpan);
+        assertThat(inFlightSpans.spans()).extracting(InFlightSpans.InFlightSpan::getExchangeId).containsExactly("running");
+    }
+
+    @Test
+    public void shouldNotWaitForReporterLongerThanTimeout() throws IOException {
+        CountDownLatch release = new CountDownLatch(1);
+        Flushable hangingReporter = () -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        ShutdownEventNotifier notifier = new ShutdownEventNotifier(inFlightSpans, Collections.singletonList(hangingReporter), Duration.ofMillis(100));
+
+        long start = System.nanoTime();
+        notifier.notify(new CamelContextStoppedEvent(mock(CamelContext.class)));
+
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(2));
+        release.countDown();
+    }
+
+    @Test
+    public void shouldBeEnabledOnlyForStoppedContext() {
+        ShutdownEventNotifier notifier = new ShutdownEventNotifier(inFlightSpans, Collections.emptyList(), Duration.ofSeconds(1));
+
+        assertThat(notifier.isEnabled(new CamelContextStoppedEvent(mock(CamelContext.class)))).isTrue();
+        assertThat(notifier.isEnabled(new CamelContextStoppingEvent(mock(CamelContext.class)))).isFalse();
+    }
+
+    private static Exchange exchange(String exchangeId, CamelContext context) {
+        Exchange exchange = mock(Exchange.class);
+        when(exchange.getExchangeId()).thenReturn(exchangeId);
+        when(exchange.getContext()).thenReturn(context);
+        return exchange;
+    }
+}
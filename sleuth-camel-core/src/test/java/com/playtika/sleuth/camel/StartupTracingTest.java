@@ -0,0 +1,137 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Playtika
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.playtika.sleuth.camel;
+
+import brave.handler.MutableSpan;
+import brave.sampler.Sampler;
+import brave.test.TestSpanHandler;
+import org.apache.camel.Endpoint;
+import org.apache.camel.ExtendedCamelContext;
+import org.apache.camel.Route;
+import org.apache.camel.builder.RouteBuilder;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.apache.camel.spi.StartupStep;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.Map;
+
+import static com.playtika.sleuth.camel.StartupSpanRecorder.ROUTE_STARTED_ANNOTATION;
+import static com.playtika.sleuth.camel.StartupSpanRecorder.STARTUP_ROUTES_TAG;
+import static com.playtika.sleuth.camel.StartupSpanRecorder.STARTUP_SPAN_NAME_PREFIX;
+import static com.playtika.sleuth.camel.StartupSpanRecorder.STARTUP_STEP_TAG;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class StartupTracingTest {
+
+    private final TestSpanHandler spans = new TestSpanHandler();
+    private final TracingFixture fixture = TracingFixture.create(Sampler.NEVER_SAMPLE, spans);
+
+    private DefaultCamelContext camelContext;
+
+    @AfterEach
+    public void tearDown() {
+        if (camelContext != null) {
+            camelContext.stop();
+        }
+        fixture.close();
+    }
+
+    @Test
+    public void shouldTraceCamelContextStartup() throws Exception {
+        camelContext = new DefaultCamelContext();
+        camelContext.setName("startup");
+        camelContext.addRoutes(new RouteBuilder() {
+            @Override
+            public void configure() {
+                from("direct:first").routeId("first").to("log:first");
+                from("direct:second").routeId("second").to("log:second");
+            }
+        });
+        new CamelContextInstrumenter(new CamelTracingToggles(),
+                Collections.singletonList(new StartupTracingEventNotifier(fixture.getTracer()))).instrument(camelContext);
+
+        camelContext.start();
+
+        MutableSpan root = spans.spans().stream()
+                .filter(span -> span.parentId() == null)
+                .findFirst()
+                .orElseThrow(AssertionError::new);
+        assertThat(root.name()).isEqualTo("camel-startup::startup");
+        assertThat(root.tag(STARTUP_ROUTES_TAG)).isEqualTo("2");
+        assertThat(root.annotations()).extracting(Map.Entry::getValue)
+                .containsExactly(ROUTE_STARTED_ANNOTATION + " route=first", ROUTE_STARTED_ANNOTATION + " route=second");
+        assertThat(spans.spans()).allSatisfy(span -> assertThat(span.traceId()).isEqualTo(root.traceId()));
+        // the recorder is installed on instrumentation, so initialization steps of the start are traced as well
+        assertThat(spans.spans()).filteredOn(span -> root.id().equals(span.parentId()))
+                .isNotEmpty()
+                .allSatisfy(step -> {
+                    assertThat(step.name()).startsWith(STARTUP_SPAN_NAME_PREFIX);
+                    assertThat(step.tag(STARTUP_STEP_TAG)).isNotEmpty();
+                });
+        assertThat(camelContext.adapt(ExtendedCamelContext.class).getStartupStepRecorder().isEnabled()).isFalse();
+    }
+
+    @Test
+    public void shouldReportStartupStepsAsChildSpans() {
+        StartupSpanRecorder recorder = new StartupSpanRecorder(fixture.getTracer(), "steps");
+        recorder.contextStarting();
+
+        StartupStep route = recorder.beginStep(Route.class, "orders", "Start Route");
+        StartupStep endpoint = recorder.beginStep(Endpoint.class, "seda://orders", "Create Endpoint");
+        recorder.endStep(endpoint);
+        recorder.endStep(route);
+        recorder.routeStarted("orders");
+        recorder.contextStarted(null);
+        recorder.endStep(recorder.beginStep(Route.class, "late", "Start Route"));
+
+        assertThat(spans.spans()).hasSize(3);
+        MutableSpan endpointSpan = spans.get(0);
+        MutableSpan routeSpan = spans.get(1);
+        MutableSpan root = spans.get(2);
+        assertThat(endpointSpan.name()).isEqualTo("camel-startup::Endpoint::seda://orders");
+        assertThat(endpointSpan.tag(STARTUP_STEP_TAG)).isEqualTo("Create Endpoint");
+        assertThat(endpointSpan.parentId()).isEqualTo(routeSpan.id());
+        assertThat(routeSpan.name()).isEqualTo("camel-startup::Route::orders");
+        assertThat(routeSpan.parentId()).isEqualTo(root.id());
+        assertThat(root.name()).isEqualTo("camel-startup::steps");
+        assertThat(root.tag(STARTUP_ROUTES_TAG)).isEqualTo("1");
+    }
+
+    @Test
+    public void shouldTagFailedStartup() {
+        StartupSpanRecorder recorder = new StartupSpanRecorder(fixture.getTracer(), "failing");
+        recorder.contextStarting();
+        recorder.beginStep(Route.class, "broken", "Start Route");
+
+        recorder.contextStarted(new IllegalStateException("boom"));
+
+        assertThat(spans.spans()).hasSize(2);
+        assertThat(spans.get(0).name()).isEqualTo("camel-startup::Route::broken");
+        assertThat(spans.get(1).error()).hasMessage("boom");
+    }
+}
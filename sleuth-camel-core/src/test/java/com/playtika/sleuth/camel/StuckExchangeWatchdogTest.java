@@ -0,0 +1,186 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Playtika
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.playtika.sleuth.camel;
+
+import brave.Span;
+import brave.handler.MutableSpan;
+import brave.test.TestSpanHandler;
+import org.apache.camel.Exchange;
+import org.apache.camel.builder.RouteBuilder;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+import static com.playtika.sleuth.camel.StuckExchangeWatchdog.EXCHANGE_EVENT_STUCK_ANNOTATION;
+import static com.playtika.sleuth.camel.StuckExchangeWatchdog.EXCHANGE_STUCK_TAG;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class StuckExchangeWatchdogTest {
+
+    private final TestSpanHandler spans = new TestSpanHandler();
+    private final TracingFixture fixture = TracingFixture.create(spans);
+    private final InFlightSpans inFlightSpans = fixture.getInFlightSpans();
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @Mock
+    private Exchange exchange;
+
+    @AfterEach
+    public void tearDown() {
+        release.countDown();
+        fixture.close();
+    }
+
+    @Test
+    public void shouldSampleStackOfStuckExchangeThread() throws Exception {
+        when(exchange.getExchangeId()).thenReturn("stuck");
+        Span span = fixture.getTracer().nextSpan().start();
+        Thread owner = new Thread(() -> {
+            inFlightSpans.add(exchange, span);
+            started.countDown();
+            awaitRelease();
+        }, "Camel (camel-1) thread #1 - seda://stuck");
+        owner.start();
+        started.await(5, TimeUnit.SECONDS);
+        StuckExchangeWatchdog watchdog = new StuckExchangeWatchdog(inFlightSpans, Duration.ZERO, Duration.ofMinutes(1), 2, 16);
+
+        watchdog.scan();
+        watchdog.scan();
+        watchdog.scan();
+
+        assertThat(watchdog.getStuckExchanges()).isEqualTo(1);
+        inFlightSpans.remove("stuck");
+        watchdog.scan();
+        assertThat(watchdog.getStuckExchanges()).isZero();
+        release.countDown();
+        owner.join();
+        span.finish();
+
+        MutableSpan reported = spans.get(0);
+        assertThat(reported.tag(EXCHANGE_STUCK_TAG)).isEqualTo("true");
+        List<String> annotations = reported.annotations().stream().map(Map.Entry::getValue).collect(Collectors.toList());
+        assertThat(annotations).hasSize(2);
+        assertThat(annotations).allSatisfy(annotation -> assertThat(annotation)
+                .startsWith(EXCHANGE_EVENT_STUCK_ANNOTATION)
+                .contains("thread=Camel (camel-1) thread #1 - seda://stuck")
+                .contains("awaitRelease"));
+    }
+
+    @Test
+    public void shouldSampleStackOfThreadExchangeContinuedOn() throws Exception {
+        CamelContextInstrumenter instrumenter = CamelContextInstrumenter.newBuilder(fixture.getToggles())
+                .eventNotifiers(fixture.notifiers())
+                .inFlightOwners(inFlightSpans)
+                .build();
+        AtomicReference<String> poolThread = new AtomicReference<>();
+        DefaultCamelContext camelContext = new DefaultCamelContext();
+        camelContext.addRoutes(new RouteBuilder() {
+            @Override
+            public void configure() {
+                from("direct:stuck").routeId("stuck")
+                        .threads()
+                        .process(exchange -> {
+                            poolThread.set(Thread.currentThread().getName());
+                            started.countDown();
+                            awaitRelease();
+                        });
+            }
+        });
+        instrumenter.instrument(camelContext);
+        camelContext.start();
+        StuckExchangeWatchdog watchdog = new StuckExchangeWatchdog(inFlightSpans, Duration.ZERO, Duration.ofMinutes(1), 1, 16);
+
+        Future<Object> sent = camelContext.createProducerTemplate().asyncSendBody("direct:stuck", "body");
+        started.await(5, TimeUnit.SECONDS);
+        watchdog.scan();
+        release.countDown();
+        sent.get(5, TimeUnit.SECONDS);
+        camelContext.stop();
+
+        assertThat(spans.spans()).hasSize(1);
+        List<String> annotations = spans.get(0).annotations().stream().map(Map.Entry::getValue).collect(Collectors.toList());
+        assertThat(annotations).hasSize(1);
+        assertThat(annotations.get(0))
+                .contains("thread=" + poolThread.get())
+                .contains("awaitRelease");
+    }
+
+    @Test
+    public void shouldNotSampleStackWhenThreadRunningExchangeIsUnknown() {
+        when(exchange.getExchangeId()).thenReturn("async");
+        Span span = fixture.getTracer().nextSpan().start();
+        inFlightSpans.add(exchange, span);
+        inFlightSpans.get("async").disown(Thread.currentThread());
+        StuckExchangeWatchdog watchdog = new StuckExchangeWatchdog(inFlightSpans, Duration.ZERO, Duration.ofMinutes(1), 1, 16);
+
+        watchdog.scan();
+        span.finish();
+
+        assertThat(watchdog.getStuckExchanges()).isEqualTo(1);
+        List<String> annotations = spans.get(0).annotations().stream().map(Map.Entry::getValue).collect(Collectors.toList());
+        assertThat(annotations).hasSize(1);
+        assertThat(annotations.get(0))
+                .contains("thread=none")
+                .doesNotContain("stack=");
+    }
+
+    @Test
+    public void shouldSkipExchangesWithinThreshold() {
+        when(exchange.getExchangeId()).thenReturn("fresh");
+        Span span = fixture.getTracer().nextSpan().start();
+        inFlightSpans.add(exchange, span);
+        StuckExchangeWatchdog watchdog = new StuckExchangeWatchdog(inFlightSpans, Duration.ofMinutes(1), Duration.ofMinutes(1), 2, 4);
+
+        watchdog.scan();
+        span.finish();
+
+        assertThat(watchdog.getStuckExchanges()).isZero();
+        assertThat(spans.get(0).annotations()).isEmpty();
+        assertThat(spans.get(0).tag(EXCHANGE_STUCK_TAG)).isNull();
+    }
+
+    private void awaitRelease() {
+        try {
+            release.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
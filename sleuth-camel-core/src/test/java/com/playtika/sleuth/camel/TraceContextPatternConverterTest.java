@@ -0,0 +1,111 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Playtika
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.playtika.sleuth.camel;
+
+import brave.Span;
+import brave.Tracer;
+import brave.Tracing;
+import brave.baggage.BaggageField;
+import brave.baggage.BaggagePropagation;
+import brave.baggage.BaggagePropagationConfig.SingleBaggageField;
+import brave.propagation.B3Propagation;
+import org.apache.logging.log4j.core.LogEvent;
+import org.apache.logging.log4j.core.impl.Log4jLogEvent;
+import org.apache.logging.log4j.util.SortedArrayStringMap;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class TraceContextPatternConverterTest {
+
+    private static final BaggageField TENANT_ID = BaggageField.create("tenant-id");
+
+    private final TracingFixture fixture = TracingFixture.create(Tracing.newBuilder()
+            .propagationFactory(BaggagePropagation.newFactoryBuilder(B3Propagation.FACTORY)
+                    .add(SingleBaggageField.local(TENANT_ID))
+                    .build()));
+    private final TraceContextDataProvider contextDataProvider = new TraceContextDataProvider(() -> true);
+
+    @AfterEach
+    public void tearDown() {
+        fixture.close();
+    }
+
+    @Test
+    public void shouldFormatTraceContextCapturedWhenEventWasCreated() {
+        Span span = fixture.getTracer().nextSpan().start();
+        TENANT_ID.updateValue(span.context(), "tenant");
+
+        LogEvent event;
+        try (Tracer.SpanInScope ignored = fixture.getTracer().withSpanInScope(span)) {
+            event = logEvent();
+        }
+
+        // formatted once the span is out of scope, like asynchronous loggers do
+        assertThat(format(TraceContextPatternConverter.TraceId.newInstance(null), event)).isEqualTo(span.context().traceIdString());
+        assertThat(format(TraceContextPatternConverter.SpanId.newInstance(null), event)).isEqualTo(span.context().spanIdString());
+        assertThat(format(TraceContextPatternConverter.Baggage.newInstance(new String[]{"tenant-id"}), event)).isEqualTo("tenant");
+        assertThat(format(TraceContextPatternConverter.Baggage.newInstance(new String[]{"user-id"}), event)).isEmpty();
+    }
+
+    @Test
+    public void shouldFormatNothingWithoutCurrentSpan() {
+        LogEvent event = logEvent();
+
+        assertThat(format(TraceContextPatternConverter.TraceId.newInstance(null), event)).isEmpty();
+        assertThat(format(TraceContextPatternConverter.SpanId.newInstance(null), event)).isEmpty();
+    }
+
+    @Test
+    public void shouldSupplyNoContextDataUntilLazyLogCorrelationIsOn() {
+        TraceContextDataProvider disabledProvider = new TraceContextDataProvider(() -> false);
+        Span span = fixture.getTracer().nextSpan().start();
+
+        try (Tracer.SpanInScope ignored = fixture.getTracer().withSpanInScope(span)) {
+            assertThat(disabledProvider.supplyContextData()).isEmpty();
+            assertThat(contextDataProvider.supplyContextData()).containsKeys("camelTraceId", "camelSpanId");
+        }
+    }
+
+    @Test
+    public void shouldRequireBaggageFieldName() {
+        assertThatThrownBy(() -> TraceContextPatternConverter.Baggage.newInstance(new String[0]))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private LogEvent logEvent() {
+        return Log4jLogEvent.newBuilder()
+                .setContextData(new SortedArrayStringMap(contextDataProvider.supplyContextData()))
+                .build();
+    }
+
+    private String format(TraceContextPatternConverter converter, LogEvent event) {
+        StringBuilder result = new StringBuilder();
+        converter.format(event, result);
+        return result.toString();
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Playtika
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.playtika.sleuth.camel;
+
+import brave.Span;
+import brave.Tracer;
+import brave.Tracing;
+import brave.propagation.TraceContext;
+import org.apache.camel.Exchange;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.apache.camel.processor.aggregate.MemoryAggregationRepository;
+import org.apache.camel.spi.AggregationRepository;
+import org.apache.camel.spi.OptimisticLockingAggregationRepository;
+import org.apache.camel.spi.RecoverableAggregationRepository;
+import org.apache.camel.support.DefaultExchange;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static com.playtika.sleuth.camel.SleuthCamelConstants.EXCHANGE_TRACE_STATE;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TracingAggregationRepositoryTest {
+
+    private final TracingFixture fixture = TracingFixture.create(Tracing.newBuilder());
+    private final Tracer tracer = fixture.getTracer();
+    private final DefaultCamelContext camelContext = new DefaultCamelContext();
+    private final MemoryAggregationRepository delegate = new MemoryAggregationRepository();
+    private final AggregationRepository repository = TracingAggregationRepository.wrap(delegate, fixture.getTracing(), fixture.getInFlightSpans());
+
+    @AfterEach
+    public void tearDown() {
+        fixture.close();
+    }
+
+    @Test
+    public void shouldRestoreTraceContextOfParkedExchange() {
+        Span parking = tracer.nextSpan().start();
+        try (Tracer.SpanInScope ignored = tracer.withSpanInScope(parking)) {
+            repository.add(camelContext, "key", new DefaultExchange(camelContext));
+        }
+        parking.finish();
+        Exchange parked = delegate.get(camelContext, "key");
+        // persistent repositories keep string headers only, trace headers of the message are gone or stale
+        parked.getIn().removeHeaders("X-B3-*");
+
+        Exchange resumed = repository.get(camelContext, "key");
+
+        assertThat(resumed.getIn().getHeader(EXCHANGE_TRACE_STATE)).isNull();
+        assertThat(resumed.getIn().getHeader("X-B3-TraceId")).isEqualTo(parking.context().traceIdString());
+        assertThat(resumed.getIn().getHeader("X-B3-SpanId")).isEqualTo(parking.context().spanIdString());
+        assertThat(resumed.getIn().getHeader("X-B3-Sampled")).isEqualTo("1");
+    }
+
+    @Test
+    public void shouldKeepTraceContextOfExchangeStartingAggregate() {
+        Span first = tracer.nextSpan().start();
+        Span second = tracer.nextSpan().start();
+        Exchange aggregate = new DefaultExchange(camelContext);
+        try (Tracer.SpanInScope ignored = tracer.withSpanInScope(first)) {
+            repository.add(camelContext, "key", aggregate);
+        }
+        try (Tracer.SpanInScope ignored = tracer.withSpanInScope(second)) {
+            repository.add(camelContext, "key", aggregate);
+        }
+        Exchange restored = repository.get(camelContext, "key");
+        // aggregate read back and stored again keeps its context without the header
+        try (Tracer.SpanInScope ignored = tracer.withSpanInScope(second)) {
+            repository.add(camelContext, "key", restored);
+        }
+        delegate.get(camelContext, "key").getIn().removeHeaders("X-B3-*");
+
+        Exchange resumed = repository.get(camelContext, "key");
+
+        assertThat(restored.getIn().getHeader("X-B3-SpanId")).isEqualTo(first.context().spanIdString());
+        assertThat(resumed.getIn().getHeader("X-B3-TraceId")).isEqualTo(first.context().traceIdString());
+        assertThat(resumed.getIn().getHeader("X-B3-SpanId")).isEqualTo(first.context().spanIdString());
+    }
+
+    @Test
+    public void shouldKeepInterfacesOfWrappedRepository() {
+        MemoryAggregationRepository optimisticDelegate = new MemoryAggregationRepository(true);
+        AggregationRepository repository = TracingAggregationRepository.wrap(optimisticDelegate, fixture.getTracing(), fixture.getInFlightSpans());
+        Span parking = tracer.nextSpan().start();
+        Exchange aggregate = new DefaultExchange(camelContext);
+        try (Tracer.SpanInScope ignored = tracer.withSpanInScope(parking)) {
+            ((OptimisticLockingAggregationRepository) repository).add(camelContext, "key", null, aggregate);
+        }
+
+        Exchange resumed = repository.get(camelContext, "key");
+
+        assertThat(repository).isInstanceOf(OptimisticLockingAggregationRepository.class)
+                .isNotInstanceOf(RecoverableAggregationRepository.class);
+        assertThat(repository.getKeys()).containsExactly("key");
+        assertThat(repository.toString()).isEqualTo("TracingAggregationRepository[" + optimisticDelegate + "]");
+        assertThat(resumed.getIn().getHeader("X-B3-SpanId")).isEqualTo(parking.context().spanIdString());
+    }
+
+    @Test
+    public void shouldNotTouchExchangesParkedOutsideOfTrace() {
+        repository.add(camelContext, "key", new DefaultExchange(camelContext));
+
+        Exchange resumed = repository.get(camelContext, "key");
+
+        assertThat(resumed.getIn().getHeaders()).isEmpty();
+        assertThat(repository.get(camelContext, "missing")).isNull();
+    }
+
+    @Test
+    public void shouldEncodeTraceContextInFixedSize() {
+        TraceContext context = TraceContext.newBuilder()
+                .traceIdHigh(0x0102030405060708L)
+                .traceId(-1L)
+                .spanId(42L)
+                .sampled(false)
+                .build();
+
+        byte[] encoded = TraceStateCodec.encode(context);
+        TraceContext decoded = TraceStateCodec.decode(encoded, 0);
+
+        assertThat(encoded).hasSize(TraceStateCodec.ENCODED_LENGTH);
+        assertThat(decoded.traceIdHigh()).isEqualTo(context.traceIdHigh());
+        assertThat(decoded.traceId()).isEqualTo(context.traceId());
+        assertThat(decoded.spanId()).isEqualTo(context.spanId());
+        assertThat(decoded.sampled()).isFalse();
+        assertThat(TraceStateCodec.toHeaderValue(context)).hasSize(35);
+        assertThat(TraceStateCodec.fromHeaderValue(TraceStateCodec.toHeaderValue(context.toBuilder().debug(true).build())).debug()).isTrue();
+    }
+
+    @Test
+    public void shouldIgnoreUnreadableTraceState() {
+        assertThat(TraceStateCodec.fromHeaderValue("not a trace state")).isNull();
+        assertThat(TraceStateCodec.fromHeaderValue("")).isNull();
+        assertThat(TraceStateCodec.decode(new byte[TraceStateCodec.ENCODED_LENGTH], 0)).isNull();
+    }
+}
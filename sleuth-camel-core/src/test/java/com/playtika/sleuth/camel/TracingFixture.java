@@ -0,0 +1,122 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Playtika
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.playtika.sleuth.camel;
+
+import brave.Tracer;
+import brave.Tracing;
+import brave.handler.SpanHandler;
+import brave.propagation.CurrentTraceContext;
+import brave.propagation.ThreadLocalCurrentTraceContext;
+import brave.propagation.ThreadLocalSpan;
+import brave.sampler.Sampler;
+import lombok.Getter;
+import org.apache.camel.spi.EventNotifier;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Wires tracing the way the auto-configuration does, without spring application context around: tracing, thread
+ * local span, toggles and in-flight spans shared by the notifiers it creates. Shared by tests, load tests and
+ * benchmarks, which get it with the test jar.
+ */
+@Getter
+public final class TracingFixture implements AutoCloseable {
+
+    private final CurrentTraceContext currentTraceContext;
+    private final Tracing tracing;
+    private final Tracer tracer;
+    private final ThreadLocalSpan threadLocalSpan;
+    private final CamelTracingToggles toggles = new CamelTracingToggles();
+    private final InFlightSpans inFlightSpans = new InFlightSpans();
+
+    private TracingFixture(Tracing.Builder tracingBuilder, CurrentTraceContext currentTraceContext) {
+        this.currentTraceContext = currentTraceContext;
+        this.tracing = tracingBuilder.currentTraceContext(currentTraceContext).build();
+        this.tracer = tracing.tracer();
+        this.threadLocalSpan = ThreadLocalSpan.create(tracer);
+    }
+
+    public static TracingFixture create(SpanHandler spanHandler) {
+        return create(Sampler.ALWAYS_SAMPLE, spanHandler);
+    }
+
+    public static TracingFixture create(Sampler sampler, SpanHandler spanHandler) {
+        return create(sampler, spanHandler, ThreadLocalCurrentTraceContext.create());
+    }
+
+    public static TracingFixture create(Sampler sampler, SpanHandler spanHandler, CurrentTraceContext currentTraceContext) {
+        return create(Tracing.newBuilder().sampler(sampler).addSpanHandler(spanHandler), currentTraceContext);
+    }
+
+    public static TracingFixture create(Tracing.Builder tracingBuilder) {
+        return create(tracingBuilder, ThreadLocalCurrentTraceContext.create());
+    }
+
+    public static TracingFixture create(Tracing.Builder tracingBuilder, CurrentTraceContext currentTraceContext) {
+        return new TracingFixture(tracingBuilder, currentTraceContext);
+    }
+
+    public CreatedEventNotifier createdEventNotifier() {
+        return createdEventNotifierBuilder().build();
+    }
+
+    /**
+     * Builder of created event notifier sharing toggles and in-flight spans of this fixture.
+     */
+    public CreatedEventNotifier.Builder createdEventNotifierBuilder() {
+        return CreatedEventNotifier.newBuilder(tracing, threadLocalSpan, tracer)
+                .toggles(toggles)
+                .inFlightSpans(inFlightSpans);
+    }
+
+    public SentEventNotifier sentEventNotifier() {
+        return new SentEventNotifier(tracer, threadLocalSpan, inFlightSpans);
+    }
+
+    /**
+     * Notifiers tracing exchanges, followed by the given ones.
+     */
+    public List<EventNotifier> notifiers(EventNotifier... notifiers) {
+        List<EventNotifier> all = new ArrayList<>();
+        all.add(createdEventNotifier());
+        all.add(sentEventNotifier());
+        all.addAll(Arrays.asList(notifiers));
+        return all;
+    }
+
+    public CamelContextInstrumenter instrumenter(EventNotifier... notifiers) {
+        return new CamelContextInstrumenter(toggles, notifiers(notifiers));
+    }
+
+    @Override
+    public void close() {
+        if (currentTraceContext instanceof ThreadLocalCurrentTraceContext) {
+            ((ThreadLocalCurrentTraceContext) currentTraceContext).clear();
+        }
+        tracing.close();
+    }
+}
@@ -29,6 +29,8 @@ import brave.Tracer;
 import brave.handler.MutableSpan;
 import brave.propagation.B3SingleFormat;
 import brave.test.TestSpanHandler;
+import com.playtika.sleuth.camel.CamelHotPathsEndpoint;
+import com.playtika.sleuth.camel.HotPathsEventNotifier;
 import org.apache.camel.*;
 import org.apache.camel.component.mock.MockEndpoint;
 import org.junit.jupiter.api.AfterEach;
@@ -37,6 +39,7 @@ import org.junit.jupiter.api.TestInstance;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.ApplicationContext;
 
 import java.util.HashMap;
 import java.util.List;
@@ -84,6 +87,8 @@ public class FunctionalTest {
     private Tracer tracer;
     @Autowired
     private CamelContext camelContext;
+    @Autowired
+    private ApplicationContext applicationContext;
 
     @MockBean
     private Processor mockProcessor;
@@ -218,6 +223,12 @@ public class FunctionalTest {
         assertFailureSpanSent(asyncDirectRouteProducer, ASYNC_DIRECT_ROUTE_ID);
     }
 
+    @Test
+    public void shouldNotCountHotPathsUnlessEnabled() {
+        assertThat(applicationContext.getBeanNamesForType(HotPathsEventNotifier.class)).isEmpty();
+        assertThat(applicationContext.getBeanNamesForType(CamelHotPathsEndpoint.class)).isEmpty();
+    }
+
     private void assertFailureSpanSent(ProducerTemplate routeProducer, String routeName) throws Exception {
         String errorMessage = "Something went wrong";
 
@@ -0,0 +1,307 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Playtika
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.playtika.sleuth.camel.load;
+
+import brave.Tracer;
+import brave.handler.MutableSpan;
+import brave.handler.SpanHandler;
+import brave.propagation.TraceContext;
+import brave.sampler.Sampler;
+import com.playtika.sleuth.camel.RouteStartedEventNotifier;
+import com.playtika.sleuth.camel.TracingFixture;
+import lombok.Value;
+import org.apache.camel.Exchange;
+import org.apache.camel.ProducerTemplate;
+import org.apache.camel.builder.RouteBuilder;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Drives direct, seda and {@code threads()} routes from growing number of producer threads with tracing off,
+ * unsampled and sampled, checks every span against the exchange it was created for and keeps tracing overhead
+ * within the budget. Results are written to {@code target/load-test-report.json}.
+ * <p>
+ * Excluded from the default build, run with {@code ./mvnw -P load-tests -pl sleuth-camel-core test}.
+ * Tunable via {@code load.threads}, {@code load.messages}, {@code load.work.micros}, {@code load.overhead.budget}
+ * and {@code load.report} system properties.
+ */
+@Tag("load")
+public class TracingLoadTest {
+
+    private static final String EXCHANGE_ID_TAG = "camel-exchange-id";
+
+    private static final int[] PRODUCER_THREADS = Arrays.stream(System.getProperty("load.threads", "1,2,4,8,16,32,64").split(","))
+            .map(String::trim)
+            .mapToInt(Integer::parseInt)
+            .toArray();
+    private static final int MESSAGES_PER_THREAD = Integer.getInteger("load.messages", 2_000);
+    private static final int WARMUP_MESSAGES_PER_THREAD = Math.max(1, MESSAGES_PER_THREAD / 10);
+    private static final long WORK_NANOS = TimeUnit.MICROSECONDS.toNanos(Long.getLong("load.work.micros", 100));
+    private static final double OVERHEAD_BUDGET = Double.parseDouble(System.getProperty("load.overhead.budget", "0.05"));
+    private static final Path REPORT = Paths.get(System.getProperty("load.report", "target/load-test-report.json"));
+
+    @Test
+    public void shouldScaleWithinOverheadBudget() throws Exception {
+        List<Result> results = new ArrayList<>();
+        List<String> violations = new ArrayList<>();
+        for (RouteType route : RouteType.values()) {
+            for (int threads : PRODUCER_THREADS) {
+                Map<Mode, Result> byMode = new EnumMap<>(Mode.class);
+                for (Mode mode : Mode.values()) {
+                    Run run = run(route, mode, threads);
+                    violations.addAll(run.violations);
+                    byMode.put(mode, run.result);
+                }
+                double baseline = byMode.get(Mode.OFF).getThroughput();
+                for (Result result : byMode.values()) {
+                    Result withOverhead = result.withOverhead(1 - result.getThroughput() / baseline);
+                    results.add(withOverhead);
+                    if (withOverhead.getOverhead() > OVERHEAD_BUDGET) {
+                        violations.add(String.format(Locale.ROOT, "%s/%s/%d threads: overhead %.2f%% exceeds budget %.2f%%",
+                                route, result.getMode(), threads, withOverhead.getOverhead() * 100, OVERHEAD_BUDGET * 100));
+                    }
+                }
+            }
+        }
+        writeReport(results);
+
+        assertThat(violations).isEmpty();
+    }
+
+    private static Run run(RouteType route, Mode mode, int threads) throws Exception {
+        Queue<MutableSpan> spans = new ConcurrentLinkedQueue<>();
+        Map<String, String> propagatedContexts = new ConcurrentHashMap<>();
+        TracingFixture fixture = TracingFixture.create(mode == Mode.SAMPLED ? Sampler.ALWAYS_SAMPLE : Sampler.NEVER_SAMPLE,
+                new SpanHandler() {
+                    @Override
+                    public boolean end(TraceContext context, MutableSpan span, Cause cause) {
+                        spans.add(span);
+                        return true;
+                    }
+                });
+        DefaultCamelContext camelContext = camelContext(propagatedContexts);
+        if (mode != Mode.OFF) {
+            fixture.instrumenter(new RouteStartedEventNotifier()).instrument(camelContext);
+        }
+        ExecutorService producers = Executors.newFixedThreadPool(threads);
+        try {
+            camelContext.start();
+            List<String> violations = new ArrayList<>();
+            send(camelContext, producers, route, threads, WARMUP_MESSAGES_PER_THREAD, fixture.getTracer(), violations);
+            spans.clear();
+            propagatedContexts.clear();
+
+            long start = System.nanoTime();
+            send(camelContext, producers, route, threads, MESSAGES_PER_THREAD, fixture.getTracer(), violations);
+            long elapsed = System.nanoTime() - start;
+
+            int messages = threads * MESSAGES_PER_THREAD;
+            verify(route, mode, threads, messages, spans, propagatedContexts, violations);
+            double throughput = messages * (double) TimeUnit.SECONDS.toNanos(1) / elapsed;
+            return new Run(new Result(route, mode, threads, messages, throughput, 0), violations);
+        } finally {
+            producers.shutdownNow();
+            camelContext.stop();
+            fixture.close();
+        }
+    }
+
+    private static void send(DefaultCamelContext camelContext, ExecutorService producers, RouteType route,
+                             int threads, int messagesPerThread, Tracer tracer, List<String> violations) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            futures.add(producers.submit(() -> {
+                ProducerTemplate producer = camelContext.createProducerTemplate();
+                start.await();
+                for (int message = 0; message < messagesPerThread; message++) {
+                    producer.sendBody(route.getUri(), message);
+                }
+                if (tracer.currentSpan() != null) {
+                    synchronized (violations) {
+                        violations.add(route + ": span " + tracer.currentSpan() + " leaked into producer thread");
+                    }
+                }
+                producer.stop();
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+    }
+
+    private static void verify(RouteType route, Mode mode, int threads, int messages, Queue<MutableSpan> spans,
+                               Map<String, String> propagatedContexts, List<String> violations) {
+        String run = route + "/" + mode + "/" + threads + " threads: ";
+        if (propagatedContexts.size() != messages) {
+            violations.add(run + "expected " + messages + " exchanges but got " + propagatedContexts.size());
+        }
+        if (mode == Mode.OFF) {
+            if (propagatedContexts.values().stream().anyMatch(context -> !context.isEmpty())) {
+                violations.add(run + "trace context propagated while tracing is off");
+            }
+            return;
+        }
+        if (mode == Mode.UNSAMPLED) {
+            if (propagatedContexts.values().stream().anyMatch(String::isEmpty)) {
+                violations.add(run + "exchange without propagated trace context");
+            }
+            if (!spans.isEmpty()) {
+                violations.add(run + spans.size() + " unsampled spans reported");
+            }
+            return;
+        }
+        if (spans.size() != messages) {
+            violations.add(run + "expected " + messages + " spans but got " + spans.size());
+        }
+        for (MutableSpan span : spans) {
+            String exchangeId = span.tag(EXCHANGE_ID_TAG);
+            String propagated = exchangeId != null ? propagatedContexts.remove(exchangeId) : null;
+            if (propagated == null) {
+                violations.add(run + "span " + span.id() + " has unknown or duplicated exchange id " + exchangeId);
+                continue;
+            }
+            if (span.parentId() != null) {
+                violations.add(run + "span " + span.id() + " of exchange " + exchangeId + " has unexpected parent " + span.parentId());
+            }
+            if (!propagated.equals(span.traceId() + "-" + span.id())) {
+                violations.add(run + "span " + span.id() + " does not match context " + propagated + " of exchange " + exchangeId);
+            }
+        }
+    }
+
+    private static DefaultCamelContext camelContext(Map<String, String> propagatedContexts) throws Exception {
+        DefaultCamelContext camelContext = new DefaultCamelContext();
+        camelContext.addRoutes(new RouteBuilder() {
+            @Override
+            public void configure() {
+                from(RouteType.DIRECT.getUri()).routeId("direct")
+                        .process(exchange -> work(exchange, propagatedContexts));
+                from(RouteType.SEDA.getUri()).routeId("seda")
+                        .process(exchange -> work(exchange, propagatedContexts));
+                from(RouteType.THREADS.getUri()).routeId("threads")
+                        .threads(8)
+                        .process(exchange -> work(exchange, propagatedContexts));
+            }
+        });
+        return camelContext;
+    }
+
+    private static void work(Exchange exchange, Map<String, String> propagatedContexts) {
+        String traceId = exchange.getIn().getHeader("X-B3-TraceId", String.class);
+        String spanId = exchange.getIn().getHeader("X-B3-SpanId", String.class);
+        propagatedContexts.put(exchange.getExchangeId(), traceId != null && spanId != null ? traceId + "-" + spanId : "");
+        long deadline = System.nanoTime() + WORK_NANOS;
+        while (System.nanoTime() < deadline) {
+            // simulates route work tracing overhead is measured against
+        }
+    }
+
+    private static void writeReport(List<Result> results) throws IOException {
+        StringBuilder json = new StringBuilder();
+        json.append("{\n  \"messagesPerThread\": ").append(MESSAGES_PER_THREAD)
+                .append(",\n  \"workMicros\": ").append(TimeUnit.NANOSECONDS.toMicros(WORK_NANOS))
+                .append(",\n  \"overheadBudget\": ").append(OVERHEAD_BUDGET)
+                .append(",\n  \"results\": [");
+        for (int i = 0; i < results.size(); i++) {
+            Result result = results.get(i);
+            json.append(i == 0 ? "\n" : ",\n")
+                    .append(String.format(Locale.ROOT,
+                            "    {\"route\": \"%s\", \"mode\": \"%s\", \"threads\": %d, \"messages\": %d, \"throughput\": %.1f, \"overhead\": %.4f}",
+                            result.getRoute().name().toLowerCase(Locale.ROOT), result.getMode().name().toLowerCase(Locale.ROOT),
+                            result.getThreads(), result.getMessages(), result.getThroughput(), result.getOverhead()));
+        }
+        json.append("\n  ]\n}\n");
+        if (REPORT.getParent() != null) {
+            Files.createDirectories(REPORT.getParent());
+        }
+        Files.write(REPORT, json.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private enum Mode {
+        OFF, UNSAMPLED, SAMPLED
+    }
+
+    private enum RouteType {
+        DIRECT("direct:direct"),
+        SEDA("seda:seda?concurrentConsumers=16&waitForTaskToComplete=Always"),
+        THREADS("direct:threads");
+
+        private final String uri;
+
+        RouteType(String uri) {
+            this.uri = uri;
+        }
+
+        String getUri() {
+            return uri;
+        }
+    }
+
+    @Value
+    private static class Result {
+        RouteType route;
+        Mode mode;
+        int threads;
+        int messages;
+        double throughput;
+        double overhead;
+
+        Result withOverhead(double overhead) {
+            return new Result(route, mode, threads, messages, throughput, overhead);
+        }
+    }
+
+    @Value
+    private static class Run {
+        Result result;
+        List<String> violations;
+    }
+}